@@ -0,0 +1,28 @@
+import { NextResponse } from 'next/server'
+
+const BACKEND_URL = process.env.BACKEND_URL || 'http://localhost:8080'
+
+// Item count, total stock and total value per category, kept in memory by the backend
+export async function GET() {
+  try {
+    const response = await fetch(`${BACKEND_URL}/api/categories/statistics`, {
+      method: 'GET',
+      headers: {
+        'Content-Type': 'application/json',
+      },
+    })
+
+    if (!response.ok) {
+      throw new Error(`Backend responded with status: ${response.status}`)
+    }
+
+    const data = await response.json()
+    return NextResponse.json(data)
+  } catch (error) {
+    console.error('Error fetching category statistics:', error)
+    return NextResponse.json(
+      { error: 'Failed to fetch category statistics' },
+      { status: 500 }
+    )
+  }
+}
@@ -1,6 +1,6 @@
 "use client"
 
-import { useState, useMemo, useEffect } from "react"
+import { useState, useEffect, useCallback } from "react"
 import Navbar from "@/components/navbar"
 import Sidebar from "@/components/sidebar"
 import InventoryTable from "@/components/pages/inventory-table"
@@ -23,70 +23,91 @@ interface Item {
   description: string
 }
 
+const PAGE_SIZE = 20
+
+// Select value -> backend sortBy and sortDir
+const SORT_OPTIONS: Record<string, [string, string]> = {
+  name: ["name", "asc"],
+  "name-desc": ["name", "desc"],
+  "stock-asc": ["stock", "asc"],
+  "stock-desc": ["stock", "desc"],
+  "price-asc": ["price", "asc"],
+  "price-desc": ["price", "desc"],
+}
+
 export default function InventoryPage() {
   const [sidebarOpen, setSidebarOpen] = useState(false)
   const [searchTerm, setSearchTerm] = useState("")
+  const [search, setSearch] = useState("")
   const [selectedCategory, setSelectedCategory] = useState("all")
   const [sortBy, setSortBy] = useState("name")
+  const [page, setPage] = useState(0)
   const [items, setItems] = useState<Item[]>([])
+  const [totalElements, setTotalElements] = useState(0)
+  const [totalPages, setTotalPages] = useState(0)
+  const [categories, setCategories] = useState<string[]>(["all"])
   const [loading, setLoading] = useState(true)
 
   useEffect(() => {
-    const fetchItems = async () => {
+    const fetchCategories = async () => {
       try {
-        const response = await fetch("/api/items")
-        const data = await response.json()
-        setItems(data)
+        const response = await fetch("/api/categories/statistics")
+        const data: { categoryName: string }[] = await response.json()
+        setCategories(["all", ...data.map((c) => c.categoryName)])
       } catch (error) {
-        console.error("Failed to fetch items:", error)
-      } finally {
-        setLoading(false)
+        console.error("Failed to fetch categories:", error)
       }
     }
 
-    fetchItems()
+    fetchCategories()
   }, [])
 
-  const categories = ["all", ...new Set(items.map((s) => s.category.name))]
-
-  const filteredAndSortedSweets = useMemo(() => {
-    const filtered = items.filter((sweet) => {
-      const matchesSearch = sweet.name.toLowerCase().includes(searchTerm.toLowerCase())
-      const matchesCategory = selectedCategory === "all" || sweet.category.name === selectedCategory
-      return matchesSearch && matchesCategory
-    })
-
-    // Sort
-    filtered.sort((a, b) => {
-      switch (sortBy) {
-        case "name-asc":
-          return a.name.localeCompare(b.name)
-        case "name-desc":
-          return b.name.localeCompare(a.name)
-        case "stock-asc":
-          return a.stock - b.stock
-        case "stock-desc":
-          return b.stock - a.stock
-        case "price-asc":
-          return a.price - b.price
-        case "price-desc":
-          return b.price - a.price
-        default:
-          return 0
-      }
+  // Wait for typing to pause before searching, and start again from the first page
+  useEffect(() => {
+    const timeout = setTimeout(() => {
+      setSearch(searchTerm.trim())
+      setPage(0)
+    }, 300)
+    return () => clearTimeout(timeout)
+  }, [searchTerm])
+
+  // Only the shown page is fetched; the backend filters, sorts and pages
+  const fetchItems = useCallback(async () => {
+    const [field, direction] = SORT_OPTIONS[sortBy]
+    const params = new URLSearchParams({
+      page: String(page),
+      size: String(PAGE_SIZE),
+      sortBy: field,
+      sortDir: direction,
     })
+    if (search) params.append("search", search)
+    if (selectedCategory !== "all") params.append("category", selectedCategory)
 
-    return filtered
-  }, [searchTerm, selectedCategory, sortBy, items])
-
-  const handleRefresh = async () => {
     try {
-      const response = await fetch("/api/items")
+      const response = await fetch(`/api/items?${params.toString()}`)
       const data = await response.json()
-      setItems(data)
+      setItems(data.content)
+      setTotalElements(data.totalElements)
+      setTotalPages(data.totalPages)
     } catch (error) {
-      console.error("Failed to refresh items:", error)
+      console.error("Failed to fetch items:", error)
+    } finally {
+      setLoading(false)
     }
+  }, [page, search, selectedCategory, sortBy])
+
+  useEffect(() => {
+    fetchItems()
+  }, [fetchItems])
+
+  const handleCategoryChange = (category: string) => {
+    setSelectedCategory(category)
+    setPage(0)
+  }
+
+  const handleSortChange = (sort: string) => {
+    setSortBy(sort)
+    setPage(0)
   }
 
   return (
@@ -116,7 +137,7 @@ export default function InventoryPage() {
 
                 <div>
                   <label className="text-sm font-medium text-foreground mb-2 block">Category</label>
-                  <Select value={selectedCategory} onValueChange={setSelectedCategory}>
+                  <Select value={selectedCategory} onValueChange={handleCategoryChange}>
                     <SelectTrigger className="bg-input border-border">
                       <SelectValue />
                     </SelectTrigger>
@@ -132,7 +153,7 @@ export default function InventoryPage() {
 
                 <div>
                   <label className="text-sm font-medium text-foreground mb-2 block">Sort By</label>
-                  <Select value={sortBy} onValueChange={setSortBy}>
+                  <Select value={sortBy} onValueChange={handleSortChange}>
                     <SelectTrigger className="bg-input border-border">
                       <SelectValue />
                     </SelectTrigger>
@@ -149,9 +170,27 @@ export default function InventoryPage() {
               </div>
 
               <div className="flex flex-col md:flex-row justify-between items-start md:items-center gap-4">
-                <p className="text-sm text-muted-foreground">
-                  Showing {filteredAndSortedSweets.length} of {items.length} items
-                </p>
+                <div className="flex items-center gap-4">
+                  <p className="text-sm text-muted-foreground">
+                    Showing {items.length} of {totalElements} items
+                  </p>
+                  <div className="flex items-center gap-2">
+                    <Button variant="outline" size="sm" disabled={page === 0} onClick={() => setPage(page - 1)}>
+                      Previous
+                    </Button>
+                    <span className="text-sm text-muted-foreground">
+                      Page {totalPages === 0 ? 0 : page + 1} of {totalPages}
+                    </span>
+                    <Button
+                      variant="outline"
+                      size="sm"
+                      disabled={page + 1 >= totalPages}
+                      onClick={() => setPage(page + 1)}
+                    >
+                      Next
+                    </Button>
+                  </div>
+                </div>
                 <Link href="/add-item">
                   <Button className="w-full md:w-auto bg-primary hover:bg-primary/90 text-primary-foreground">
                     Add New Item
@@ -166,7 +205,7 @@ export default function InventoryPage() {
                 <p className="text-muted-foreground">Loading inventory...</p>
               </div>
             ) : (
-              <InventoryTable sweets={filteredAndSortedSweets} onDelete={() => {}} onRefresh={handleRefresh} />
+              <InventoryTable sweets={items} onDelete={() => {}} onRefresh={fetchItems} />
             )}
           </div>
         </main>
@@ -0,0 +1,197 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Compare two JMH JSON result files (e.g. from bench/jmh.sh on two commits) benchmark by benchmark.
+// Run as a single-file program (JDK 17+):
+//   java JmhCompare.java bench/results/jmh-<base>.json bench/results/jmh-<head>.json [--fail-above 10]
+// A change counts only when the two scores differ by more than their combined error; with --fail-above
+// the exit status is 1 if any benchmark got slower by more than that many percent.
+public class JmhCompare {
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("usage: java JmhCompare.java <base.json> <head.json> [--fail-above <percent>]");
+            System.exit(2);
+        }
+        double failAbove = args.length >= 4 && args[2].equals("--fail-above") ? Double.parseDouble(args[3]) : Double.NaN;
+        Map<String, Result> base = load(Path.of(args[0]));
+        Map<String, Result> head = load(Path.of(args[1]));
+
+        System.out.printf("%-70s %14s %14s %9s  %s%n", "benchmark", "base", "head", "change", "unit");
+        int regressions = 0;
+        for (Map.Entry<String, Result> entry : head.entrySet()) {
+            Result now = entry.getValue();
+            Result before = base.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-70s %14s %14s %9s  %s%n", entry.getKey(), "-", format(now), "new", now.unit);
+                continue;
+            }
+            double change = (now.score - before.score) / before.score * 100;
+            boolean significant = Math.abs(now.score - before.score) > now.error + before.error;
+            // Throughput modes are better when higher, time modes when lower
+            boolean slower = significant && (now.higherIsBetter ? change < 0 : change > 0);
+            String verdict = !significant ? "" : slower ? "  slower" : "  faster";
+            System.out.printf("%-70s %14s %14s %+8.1f%%  %s%s%n", entry.getKey(), format(before), format(now), change, now.unit, verdict);
+            if (slower && !Double.isNaN(failAbove) && Math.abs(change) > failAbove) {
+                regressions++;
+            }
+        }
+        for (String name : base.keySet()) {
+            if (!head.containsKey(name)) {
+                System.out.printf("%-70s %14s %14s %9s%n", name, format(base.get(name)), "-", "removed");
+            }
+        }
+        if (regressions > 0) {
+            System.err.println(regressions + " benchmark(s) slower by more than " + failAbove + "%");
+            System.exit(1);
+        }
+    }
+
+    static String format(Result result) {
+        return String.format("%.3f+-%.3f", result.score, result.error);
+    }
+
+    // Key each result by benchmark name and parameters so parameterised runs line up
+    @SuppressWarnings("unchecked")
+    static Map<String, Result> load(Path file) throws Exception {
+        Map<String, Result> results = new TreeMap<>();
+        for (Object element : (List<Object>) new JsonParser(Files.readString(file)).parse()) {
+            Map<String, Object> run = (Map<String, Object>) element;
+            String name = ((String) run.get("benchmark")).replaceFirst("^com\\.sweetshop\\.benchmark\\.", "");
+            Map<String, Object> params = (Map<String, Object>) run.get("params");
+            if (params != null && !params.isEmpty()) {
+                name += params.toString().replace(" ", "");
+            }
+            Map<String, Object> metric = (Map<String, Object>) run.get("primaryMetric");
+            // JMH writes the error of single-iteration runs as the string "NaN"
+            double error = number(metric.get("scoreError"));
+            results.put(name, new Result(
+                    number(metric.get("score")),
+                    Double.isNaN(error) ? 0 : error,
+                    (String) metric.get("scoreUnit"),
+                    "thrpt".equals(run.get("mode"))));
+        }
+        return results;
+    }
+
+    static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.NaN;
+    }
+
+    static class Result {
+        final double score;
+        final double error;
+        final String unit;
+        final boolean higherIsBetter;
+
+        Result(double score, double error, String unit, boolean higherIsBetter) {
+            this.score = score;
+            this.error = error;
+            this.unit = unit;
+            this.higherIsBetter = higherIsBetter;
+        }
+    }
+
+    // Just enough JSON for JMH result files: objects, arrays, strings, numbers, literals
+    static class JsonParser {
+        private final String text;
+        private int pos;
+
+        JsonParser(String text) {
+            this.text = text;
+        }
+
+        Object parse() {
+            skipWhitespace();
+            char c = text.charAt(pos);
+            if (c == '{') {
+                Map<String, Object> object = new LinkedHashMap<>();
+                pos++;
+                skipWhitespace();
+                if (text.charAt(pos) == '}') {
+                    pos++;
+                    return object;
+                }
+                while (true) {
+                    skipWhitespace();
+                    String key = (String) parse();
+                    skipWhitespace();
+                    expect(':');
+                    object.put(key, parse());
+                    skipWhitespace();
+                    if (text.charAt(pos++) == '}') {
+                        return object;
+                    }
+                }
+            }
+            if (c == '[') {
+                List<Object> array = new ArrayList<>();
+                pos++;
+                skipWhitespace();
+                if (text.charAt(pos) == ']') {
+                    pos++;
+                    return array;
+                }
+                while (true) {
+                    array.add(parse());
+                    skipWhitespace();
+                    if (text.charAt(pos++) == ']') {
+                        return array;
+                    }
+                }
+            }
+            if (c == '"') {
+                StringBuilder value = new StringBuilder();
+                pos++;
+                while ((c = text.charAt(pos++)) != '"') {
+                    if (c == '\\') {
+                        c = text.charAt(pos++);
+                        switch (c) {
+                            case 'n' -> value.append('\n');
+                            case 't' -> value.append('\t');
+                            case 'r' -> value.append('\r');
+                            case 'b' -> value.append('\b');
+                            case 'f' -> value.append('\f');
+                            case 'u' -> {
+                                value.append((char) Integer.parseInt(text.substring(pos, pos + 4), 16));
+                                pos += 4;
+                            }
+                            default -> value.append(c);
+                        }
+                    } else {
+                        value.append(c);
+                    }
+                }
+                return value.toString();
+            }
+            int start = pos;
+            while (pos < text.length() && ",}] \t\r\n".indexOf(text.charAt(pos)) < 0) {
+                pos++;
+            }
+            String literal = text.substring(start, pos);
+            return switch (literal) {
+                case "true" -> Boolean.TRUE;
+                case "false" -> Boolean.FALSE;
+                case "null" -> null;
+                default -> Double.parseDouble(literal);
+            };
+        }
+
+        private void expect(char c) {
+            if (text.charAt(pos++) != c) {
+                throw new IllegalArgumentException("Expected '" + c + "' at offset " + (pos - 1));
+            }
+        }
+
+        private void skipWhitespace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Closed-loop HTTP load driver: each of N client threads issues requests back to back over a mix of
+// paths and records per-request latency. Run as a single-file program (JDK 17+):
+//   java LoadDriver.java --base http://localhost:8080 --concurrency 200 --duration 30 --label platform
+// Prints one CSV line: label,concurrency,requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,max_ms,statuses
+public class LoadDriver {
+    
+    static final String[] DEFAULT_PATHS = {
+            "/api/items?page=0&size=20",
+            "/api/items?search=kaju",
+            "/api/items?category=Milk%20Sweet&minPrice=100",
+            "/api/items/1",
+            "/api/items/low-stock",
+            "/api/categories",
+            "/api/dashboard/stats"
+    };
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String base = options.getOrDefault("base", "http://localhost:8080");
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "50"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "20"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        String label = options.getOrDefault("label", "run");
+        String[] paths = options.containsKey("paths") ? options.get("paths").split(",") : DEFAULT_PATHS;
+        
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        List<HttpRequest> requests = new ArrayList<>();
+        for (String path : paths) {
+            requests.add(HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60)).build());
+        }
+        
+        if (warmup > 0) {
+            run(client, requests, concurrency, warmup);
+        }
+        Result result = run(client, requests, concurrency, duration);
+        
+        long[] latencies = result.latencies();
+        Arrays.sort(latencies);
+        System.out.printf("%s,%d,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%s%n",
+                label, concurrency, latencies.length, result.errors(),
+                latencies.length / (double) duration,
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99),
+                latencies.length == 0 ? 0.0 : latencies[latencies.length - 1] / 1e6,
+                result.statuses().toString().replace(",", ";").replace(" ", ""));
+    }
+    
+    static Result run(HttpClient client, List<HttpRequest> requests, int concurrency, int seconds) throws InterruptedException {
+        AtomicBoolean running = new AtomicBoolean(true);
+        CountDownLatch done = new CountDownLatch(concurrency);
+        Worker[] workers = new Worker[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            workers[i] = new Worker(client, requests, i, running, done);
+            Thread thread = new Thread(workers[i], "load-" + i);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        Thread.sleep(seconds * 1000L);
+        running.set(false);
+        done.await();
+        
+        int total = 0;
+        long errors = 0;
+        Map<Integer, Long> statuses = new TreeMap<>();
+        for (Worker worker : workers) {
+            total += worker.count;
+            errors += worker.errors;
+            worker.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        }
+        long[] latencies = new long[total];
+        int offset = 0;
+        for (Worker worker : workers) {
+            System.arraycopy(worker.latencies, 0, latencies, offset, worker.count);
+            offset += worker.count;
+        }
+        return new Result(latencies, errors, statuses);
+    }
+    
+    static double percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0.0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+    
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+    
+    record Result(long[] latencies, long errors, Map<Integer, Long> statuses) { }
+    
+    static class Worker implements Runnable {
+        final HttpClient client;
+        final List<HttpRequest> requests;
+        final AtomicBoolean running;
+        final CountDownLatch done;
+        final Map<Integer, Long> statuses = new TreeMap<>();
+        long[] latencies = new long[1024];
+        int count;
+        long errors;
+        int next;
+        
+        Worker(HttpClient client, List<HttpRequest> requests, int offset, AtomicBoolean running, CountDownLatch done) {
+            this.client = client;
+            this.requests = requests;
+            this.next = offset;
+            this.running = running;
+            this.done = done;
+        }
+        
+        @Override
+        public void run() {
+            try {
+                while (running.get()) {
+                    HttpRequest request = requests.get(next++ % requests.size());
+                    long started = System.nanoTime();
+                    int status;
+                    try {
+                        status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    } catch (Exception e) {
+                        status = -1;
+                    }
+                    long elapsed = System.nanoTime() - started;
+                    if (status < 200 || status >= 400) {
+                        errors++;
+                    }
+                    statuses.merge(status, 1L, Long::sum);
+                    if (count == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, count * 2);
+                    }
+                    latencies[count++] = elapsed;
+                }
+            } finally {
+                done.countDown();
+            }
+        }
+    }
+}
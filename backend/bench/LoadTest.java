@@ -0,0 +1,338 @@
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Open-loop HTTP load test: issues a weighted mix of item searches, creates, stock adjustments and
+// dashboard polls at a fixed target rate, whether or not earlier requests have finished, and records
+// per-endpoint latency in HdrHistograms. Two figures are reported per endpoint:
+//   service  - from the moment the request was actually sent until the response arrived
+//   response - from the moment the schedule says it should have been sent; queueing behind slow
+//              requests counts, which corrects for coordinated omission
+// Run as a single-file program (JDK 17+) with HdrHistogram on the class path:
+//   java -cp HdrHistogram.jar LoadTest.java --base http://localhost:8080 --rate 200 --duration 60 \
+//        --mix search=55,stock=25,dashboard=15,create=5 --threads 64 --drain 30 --label h2 --out results.csv
+// Writes one CSV line per endpoint and figure:
+//   label,endpoint,figure,target_rps,requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,statuses
+public class LoadTest {
+    
+    static final String CSV_HEADER =
+            "label,endpoint,figure,target_rps,requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,p999_ms,max_ms,statuses";
+    
+    // Same vocabulary as CatalogGenerator, so searches hit generated rows
+    static final String[] FLAVOURS = {
+            "Kesar", "Pista", "Badam", "Kaju", "Malai", "Mango", "Rose", "Elaichi", "Coconut", "Gulkand",
+            "Anjeer", "Khoya", "Chocolate", "Dry Fruit", "Saffron", "Jaggery", "Til", "Besan", "Moong Dal", "Paan"
+    };
+    static final String[] FORMS = {
+            "Barfi", "Ladoo", "Peda", "Halwa", "Katli", "Rasgulla", "Jalebi", "Sandesh", "Gulab Jamun",
+            "Rasmalai", "Chikki", "Modak", "Soan Papdi", "Kalakand", "Roll", "Cham Cham", "Mysore Pak"
+    };
+    static final String[] CATEGORIES = {
+            "Dry Sweet", "Bengali Sweet", "Traditional", "Milk Sweet", "Syrup-based",
+            "Festive Box Kolkata", "Sugar Free Mumbai", "Ghee Sweet Delhi", "Fusion Jaipur", "Seasonal Lucknow"
+    };
+    static final long HIGHEST_TRACKABLE_MICROS = TimeUnit.MINUTES.toMicros(5);
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        String base = options.getOrDefault("base", "http://localhost:8080");
+        double rate = Double.parseDouble(options.getOrDefault("rate", "100"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "60"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "64"));
+        int drain = Integer.parseInt(options.getOrDefault("drain", "30"));
+        String label = options.getOrDefault("label", "run");
+        Map<String, Integer> mix = parseMix(options.getOrDefault("mix", "search=55,stock=25,dashboard=15,create=5"));
+        
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(10))
+                .version(HttpClient.Version.HTTP_1_1)
+                .build();
+        long maxId = discoverMaxId(client, base);
+        String runId = Long.toString(System.currentTimeMillis() % 100_000_000L, 36);
+        
+        Map<String, Endpoint> endpoints = new LinkedHashMap<>();
+        for (String name : mix.keySet()) {
+            endpoints.put(name, new Endpoint(name, requestFactory(name, base, maxId, label + "-" + runId)));
+        }
+        Endpoint[] weighted = weightedTable(endpoints, mix);
+        
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "load");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.err.printf("target %.0f req/s for %d s after %d s warmup, %d items, mix %s%n", rate, duration, warmup, maxId, mix);
+        
+        long interval = (long) (TimeUnit.SECONDS.toNanos(1) / rate);
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmup);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(duration);
+        boolean measuring = warmup == 0;
+        AtomicLong behind = new AtomicLong();
+        for (long n = 0; ; n++) {
+            long intended = start + n * interval;
+            if (intended >= end) {
+                break;
+            }
+            if (!measuring && intended >= measureFrom) {
+                endpoints.values().forEach(Endpoint::reset);
+                measuring = true;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            } else if (wait < -TimeUnit.MILLISECONDS.toNanos(100)) {
+                behind.incrementAndGet();
+            }
+            Endpoint endpoint = weighted[ThreadLocalRandom.current().nextInt(weighted.length)];
+            workers.execute(new Call(endpoint, client, intended));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(drain, TimeUnit.SECONDS)) {
+            // Requests the server never got to still count: as errors whose latency runs until now
+            List<Runnable> unsent = workers.shutdownNow();
+            long now = System.nanoTime();
+            for (Runnable call : unsent) {
+                ((Call) call).abandon(now);
+            }
+            workers.awaitTermination(10, TimeUnit.SECONDS);
+            System.err.printf("warning: %d requests were still queued after a %d s drain and count as errors (status -2)%n", unsent.size(), drain);
+        }
+        if (behind.get() > 0) {
+            System.err.printf("warning: the scheduler itself ran over 100 ms late %d times; latencies are still measured from the schedule%n", behind.get());
+        }
+        
+        List<String> lines = new ArrayList<>();
+        Histogram allService = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        Histogram allResponse = new Histogram(HIGHEST_TRACKABLE_MICROS, 3);
+        long allErrors = 0;
+        Map<Integer, Long> allStatuses = new TreeMap<>();
+        for (Endpoint endpoint : endpoints.values()) {
+            Histogram service = endpoint.service.getIntervalHistogram();
+            Histogram response = endpoint.response.getIntervalHistogram();
+            allService.add(service);
+            allResponse.add(response);
+            allErrors += endpoint.errors.get();
+            endpoint.statuses.forEach((status, count) -> allStatuses.merge(status, count.get(), Long::sum));
+            Map<Integer, Long> statuses = new TreeMap<>();
+            endpoint.statuses.forEach((status, count) -> statuses.put(status, count.get()));
+            double share = rate * mix.get(endpoint.name) / mix.values().stream().mapToInt(Integer::intValue).sum();
+            long completed = service.getTotalCount();
+            lines.add(csv(label, endpoint.name, "service", share, service, completed, endpoint.errors.get(), duration, statuses));
+            lines.add(csv(label, endpoint.name, "response", share, response, completed, endpoint.errors.get(), duration, statuses));
+        }
+        lines.add(csv(label, "all", "service", rate, allService, allService.getTotalCount(), allErrors, duration, allStatuses));
+        lines.add(csv(label, "all", "response", rate, allResponse, allService.getTotalCount(), allErrors, duration, allStatuses));
+        
+        printTable(lines);
+        if (options.containsKey("out")) {
+            write(options.get("out"), lines);
+        }
+    }
+    
+    record Call(Endpoint endpoint, HttpClient client, long intended) implements Runnable {
+        @Override
+        public void run() {
+            endpoint.call(client, intended);
+        }
+        
+        void abandon(long now) {
+            endpoint.abandon(intended, now);
+        }
+    }
+    
+    // One histogram pair per endpoint; Recorders let worker threads record without locking
+    static class Endpoint {
+        final String name;
+        final RequestFactory requests;
+        final Recorder service = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        final Recorder response = new Recorder(HIGHEST_TRACKABLE_MICROS, 3);
+        final AtomicLong errors = new AtomicLong();
+        final Map<Integer, AtomicLong> statuses = new ConcurrentHashMap<>();
+        
+        Endpoint(String name, RequestFactory requests) {
+            this.name = name;
+            this.requests = requests;
+        }
+        
+        void call(HttpClient client, long intended) {
+            HttpRequest request = requests.next(ThreadLocalRandom.current());
+            long sent = System.nanoTime();
+            int status;
+            try {
+                status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+            } catch (Exception e) {
+                status = -1;
+            }
+            record(status, intended, sent, System.nanoTime());
+        }
+        
+        void record(int status, long intended, long sent, long received) {
+            service.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (received - sent) / 1000));
+            response.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (received - intended) / 1000));
+            statuses.computeIfAbsent(status, s -> new AtomicLong()).incrementAndGet();
+            // 4xx such as selling more than is in stock are expected answers, not failures
+            if (status < 0 || status >= 500) {
+                errors.incrementAndGet();
+            }
+        }
+        
+        // Never sent, so there is no service time; the response time is how long it waited
+        void abandon(long intended, long now) {
+            response.recordValue(Math.min(HIGHEST_TRACKABLE_MICROS, (now - intended) / 1000));
+            statuses.computeIfAbsent(-2, s -> new AtomicLong()).incrementAndGet();
+            errors.incrementAndGet();
+        }
+        
+        void reset() {
+            service.reset();
+            response.reset();
+            errors.set(0);
+            statuses.clear();
+        }
+    }
+    
+    interface RequestFactory {
+        HttpRequest next(ThreadLocalRandom random);
+    }
+    
+    static RequestFactory requestFactory(String name, String base, long maxId, String namePrefix) {
+        AtomicLong created = new AtomicLong();
+        return switch (name) {
+            case "search" -> random -> get(base, switch (random.nextInt(3)) {
+                case 0 -> "/api/items?search=" + encode(pick(random, FLAVOURS)) + "&page=" + random.nextInt(5) + "&size=20";
+                case 1 -> "/api/items?category=" + encode(pick(random, CATEGORIES)) + "&size=20&sortBy=price";
+                default -> "/api/items?search=" + encode(pick(random, FORMS)) + "&minPrice=100&maxPrice=800&size=20";
+            });
+            case "dashboard" -> random -> get(base, "/api/dashboard/stats");
+            // Mostly single sales with the occasional restock, on random existing items
+            case "stock" -> random -> send(base, "/api/items/" + (1 + random.nextLong(maxId)) + "/stock", "PATCH",
+                    "{\"delta\":" + (random.nextInt(4) == 0 ? 5 : -1) + "}");
+            case "create" -> random -> send(base, "/api/items", "POST", String.format(
+                    "{\"name\":\"%s %s %s-%d\",\"category\":\"%s\",\"stock\":%d,\"price\":%d.00,\"description\":\"Load test item\"}",
+                    pick(random, FLAVOURS), pick(random, FORMS), namePrefix, created.incrementAndGet(),
+                    pick(random, CATEGORIES), random.nextInt(200), 50 + random.nextInt(950)));
+            default -> throw new IllegalArgumentException("Unknown endpoint in mix: " + name + " (search, create, stock, dashboard)");
+        };
+    }
+    
+    static HttpRequest get(String base, String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(60)).build();
+    }
+    
+    static HttpRequest send(String base, String path, String method, String json) {
+        return HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(60))
+                .header("Content-Type", "application/json")
+                .method(method, HttpRequest.BodyPublishers.ofString(json))
+                .build();
+    }
+    
+    // Highest item id, so stock updates spread over the whole catalog
+    static long discoverMaxId(HttpClient client, String base) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(get(base, "/api/items?page=0&size=1&sortBy=id&sortDir=desc"),
+                HttpResponse.BodyHandlers.ofString());
+        Matcher matcher = Pattern.compile("\"id\"\\s*:\\s*(\\d+)").matcher(response.body());
+        if (response.statusCode() != 200 || !matcher.find()) {
+            throw new IllegalStateException("Could not read the item id range from " + base + ": " + response.statusCode());
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+    
+    static Endpoint[] weightedTable(Map<String, Endpoint> endpoints, Map<String, Integer> mix) {
+        List<Endpoint> table = new ArrayList<>();
+        mix.forEach((name, weight) -> {
+            for (int i = 0; i < weight; i++) {
+                table.add(endpoints.get(name));
+            }
+        });
+        if (table.isEmpty()) {
+            throw new IllegalArgumentException("The mix needs at least one positive weight");
+        }
+        return table.toArray(new Endpoint[0]);
+    }
+    
+    // Throughput counts answered requests only; the response figure also holds the ones never sent
+    static String csv(String label, String endpoint, String figure, double targetRate, Histogram histogram,
+                      long completed, long errors, int duration, Map<Integer, Long> statuses) {
+        return String.format("%s,%s,%s,%.1f,%d,%d,%.1f,%.2f,%.2f,%.2f,%.2f,%.2f,%s",
+                label, endpoint, figure, targetRate, histogram.getTotalCount(), errors,
+                completed / (double) duration,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0,
+                statuses.toString().replace(",", ";").replace(" ", ""));
+    }
+    
+    static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+    
+    static void printTable(List<String> lines) {
+        System.out.printf("%-10s %-9s %9s %7s %9s %9s %9s %9s %9s  %s%n",
+                "endpoint", "figure", "requests", "errors", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms", "statuses");
+        for (String line : lines) {
+            String[] f = line.split(",");
+            System.out.printf("%-10s %-9s %9s %7s %9s %9s %9s %9s %9s  %s%n", f[1], f[2], f[4], f[5], f[7], f[8], f[9], f[10], f[11], f[12]);
+        }
+    }
+    
+    static void write(String file, List<String> lines) throws IOException {
+        boolean header = !new java.io.File(file).exists();
+        try (PrintWriter out = new PrintWriter(new FileWriter(file, true))) {
+            if (header) {
+                out.println(CSV_HEADER);
+            }
+            lines.forEach(out::println);
+        }
+    }
+    
+    static String pick(ThreadLocalRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+    
+    static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+    
+    static Map<String, Integer> parseMix(String spec) {
+        Map<String, Integer> mix = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split("=");
+            mix.put(pair[0], Integer.parseInt(pair[1]));
+        }
+        return mix;
+    }
+    
+    static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new TreeMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        return options;
+    }
+}
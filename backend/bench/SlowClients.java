@@ -0,0 +1,129 @@
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Holds many concurrent streaming requests open with clients that read slowly, and samples the
+// server's threads and connection pools from its actuator while they do. Single-file program:
+//   java SlowClients.java --target http://localhost:8081/api/items --clients 500 --duration 30 --label reactive
+// Prints one CSV line:
+// label,clients,completed,failed,peak_threads,peak_tomcat_busy,peak_hikari_active,peak_hikari_pending,
+// peak_r2dbc_acquired,peak_streams,probe_p50_ms,probe_max_ms
+public class SlowClients {
+    
+    static final String[] METRICS = {
+            "jvm.threads.live", "tomcat.threads.busy", "hikaricp.connections.active", "hikaricp.connections.pending",
+            "sweetshop.reactive.pool.acquired", "sweetshop.reactive.streams.active"
+    };
+    static final Pattern VALUE = Pattern.compile("\"statistic\":\"VALUE\",\"value\":([0-9.Ee+-]+)");
+    
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new TreeMap<>();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            options.put(args[i].replaceFirst("^--", ""), args[i + 1]);
+        }
+        URI target = URI.create(options.getOrDefault("target", "http://localhost:8081/api/items"));
+        String accept = options.getOrDefault("accept", "application/x-ndjson");
+        String actuator = options.getOrDefault("actuator", "http://localhost:8080/actuator/metrics/");
+        String probe = options.getOrDefault("probe", "http://localhost:8080/api/categories");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "200"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int readBytes = Integer.parseInt(options.getOrDefault("read-bytes", "512"));
+        int readIntervalMs = Integer.parseInt(options.getOrDefault("read-interval-ms", "200"));
+        String label = options.getOrDefault("label", target.getPort() + target.getPath());
+        
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger completed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            Thread thread = new Thread(() -> slowRead(target, accept, readBytes, readIntervalMs, running, completed, failed));
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+        
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+        Map<String, Double> peaks = new TreeMap<>();
+        List<Long> probeMillis = new ArrayList<>();
+        long end = System.currentTimeMillis() + duration * 1000L;
+        while (System.currentTimeMillis() < end) {
+            for (String metric : METRICS) {
+                double value = metric(http, actuator + metric);
+                peaks.merge(metric, value, Math::max);
+            }
+            // A short request to the same server shows whether the slow streams starve everything else
+            long started = System.nanoTime();
+            try {
+                http.send(HttpRequest.newBuilder(URI.create(probe)).timeout(Duration.ofSeconds(30)).build(),
+                        HttpResponse.BodyHandlers.discarding());
+                probeMillis.add((System.nanoTime() - started) / 1_000_000);
+            } catch (Exception e) {
+                probeMillis.add(30_000L);
+            }
+            Thread.sleep(1000);
+        }
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join(2000);
+        }
+        
+        probeMillis.sort(Long::compare);
+        System.out.printf("%s,%d,%d,%d,%.0f,%.0f,%.0f,%.0f,%.0f,%.0f,%d,%d%n", label, clients, completed.get(), failed.get(),
+                peaks.get("jvm.threads.live"), peaks.get("tomcat.threads.busy"),
+                peaks.get("hikaricp.connections.active"), peaks.get("hikaricp.connections.pending"),
+                peaks.get("sweetshop.reactive.pool.acquired"), peaks.get("sweetshop.reactive.streams.active"),
+                probeMillis.isEmpty() ? 0 : probeMillis.get(probeMillis.size() / 2),
+                probeMillis.isEmpty() ? 0 : probeMillis.get(probeMillis.size() - 1));
+    }
+    
+    // Raw socket with a small receive buffer, so the server sees a genuinely slow reader
+    static void slowRead(URI target, String accept, int readBytes, int intervalMs, AtomicBoolean running,
+                         AtomicInteger completed, AtomicInteger failed) {
+        try (Socket socket = new Socket()) {
+            socket.setReceiveBufferSize(4096);
+            socket.connect(new InetSocketAddress(target.getHost(), target.getPort()), 5000);
+            OutputStream out = socket.getOutputStream();
+            String query = target.getRawQuery() != null ? "?" + target.getRawQuery() : "";
+            out.write(("GET " + target.getRawPath() + query + " HTTP/1.1\r\nHost: " + target.getHost() +
+                    "\r\nAccept: " + accept + "\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            InputStream in = socket.getInputStream();
+            byte[] buffer = new byte[readBytes];
+            while (running.get()) {
+                if (in.read(buffer) < 0) {
+                    completed.incrementAndGet();
+                    return;
+                }
+                Thread.sleep(intervalMs);
+            }
+        } catch (Exception e) {
+            failed.incrementAndGet();
+        }
+    }
+    
+    static double metric(HttpClient http, String url) {
+        try {
+            String body = http.send(HttpRequest.newBuilder(URI.create(url)).timeout(Duration.ofSeconds(10)).build(),
+                    HttpResponse.BodyHandlers.ofString()).body();
+            Matcher matcher = VALUE.matcher(body);
+            return matcher.find() ? Double.parseDouble(matcher.group(1)) : 0.0;
+        } catch (Exception e) {
+            return 0.0;
+        }
+    }
+}
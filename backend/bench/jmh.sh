@@ -0,0 +1,28 @@
+#!/usr/bin/env bash
+# Run the JMH microbenchmarks (src/jmh/java) against a seeded embedded H2 database and keep the JSON
+# results per commit, so two commits can be compared with JmhCompare:
+#
+#   bench/jmh.sh                      # writes bench/results/jmh-<short sha>[-dirty].json
+#   BASELINE=bench/results/jmh-abc1234.json bench/jmh.sh
+#
+# Environment: INCLUDE benchmark regex (default all), JMH_ARGS JMH options (default "-f 1 -wi 3 -i 5"),
+# BASELINE result file to compare against after the run, FAIL_ABOVE regression percent that fails the run.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+INCLUDE=${INCLUDE:-com.sweetshop.benchmark}
+JMH_ARGS=${JMH_ARGS:-"-f 1 -wi 3 -i 5"}
+REV=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD -- . 2> /dev/null; then
+    REV="$REV-dirty"
+fi
+mkdir -p bench/results
+OUT=$PWD/bench/results/jmh-$REV.json
+
+mvn -B -q -Pjmh verify \
+    -Djmh.include="$INCLUDE" -Djmh.args="$JMH_ARGS" -Djmh.result="$OUT"
+echo "results: $OUT"
+
+if [ -n "${BASELINE:-}" ]; then
+    java bench/JmhCompare.java "$BASELINE" "$OUT" ${FAIL_ABOVE:+--fail-above "$FAIL_ABOVE"}
+fi
@@ -0,0 +1,58 @@
+#!/usr/bin/env bash
+# End-to-end load test, fully offline: starts the packaged jar on an embedded H2 database (h2 profile),
+# lets CatalogGenerator seed a synthetic catalog, then drives a fixed-rate mix of searches, creates,
+# stock adjustments and dashboard polls with bench/LoadTest.java at each target rate. Per-endpoint
+# throughput and HdrHistogram latency percentiles (service time and coordinated-omission-corrected
+# response time) are appended to bench/results/load-test-<timestamp>.csv.
+#
+#   mvn -DskipTests package && bench/load-test.sh
+#
+# Environment: ITEMS catalog size (default 1000000), CATEGORIES (200), RATES req/s (default "100 200 400"),
+# DURATION seconds per rate (60), WARMUP seconds (15), THREADS max in-flight requests (64),
+# MIX endpoint weights (search=55,stock=25,dashboard=15,create=5), HEAP for the app (-Xmx2g), PORT (8080).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+ITEMS=${ITEMS:-1000000}
+CATEGORIES=${CATEGORIES:-200}
+RATES=${RATES:-"100 200 400"}
+DURATION=${DURATION:-60}
+WARMUP=${WARMUP:-15}
+THREADS=${THREADS:-64}
+MIX=${MIX:-search=55,stock=25,dashboard=15,create=5}
+HEAP=${HEAP:--Xmx2g}
+PORT=${PORT:-8080}
+JAR=$(ls target/sweet-shop-backend-*.jar | head -1)
+mkdir -p bench/results
+OUT=bench/results/load-test-$(date +%Y%m%d-%H%M%S).csv
+
+# HdrHistogram already ships inside the application jar (through Micrometer); no download needed
+HDR=bench/results/HdrHistogram.jar
+unzip -p "$JAR" 'BOOT-INF/lib/HdrHistogram-*.jar' > "$HDR"
+
+java $HEAP -jar "$JAR" --server.port="$PORT" --spring.profiles.active=h2 \
+    --sweetshop.catalog-generator.items="$ITEMS" --sweetshop.catalog-generator.categories="$CATEGORIES" \
+    --logging.level.root=WARN --logging.level.com.sweetshop=WARN \
+    --logging.level.com.sweetshop.service.CatalogGenerator=INFO \
+    --logging.level.org.springframework.web=WARN --logging.level.org.hibernate.SQL=WARN \
+    --logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN \
+    > bench/results/app.log 2>&1 &
+APP_PID=$!
+trap 'kill $APP_PID 2> /dev/null || true' EXIT
+
+# Readiness only turns UP once the catalog has been generated
+echo "seeding $ITEMS items; progress in bench/results/app.log" >&2
+until curl -sf "http://localhost:$PORT/actuator/health/readiness" > /dev/null; do
+    if ! kill -0 "$APP_PID" 2> /dev/null; then
+        echo "application exited; see bench/results/app.log" >&2
+        exit 1
+    fi
+    sleep 2
+done
+
+for rate in $RATES; do
+    java -cp "$HDR" bench/LoadTest.java --base "http://localhost:$PORT" --rate "$rate" \
+        --duration "$DURATION" --warmup "$WARMUP" --threads "$THREADS" --mix "$MIX" \
+        --label "rate-$rate" --out "$OUT"
+done
+echo "results: $OUT"
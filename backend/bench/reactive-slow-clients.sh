@@ -0,0 +1,55 @@
+#!/usr/bin/env bash
+# Compare the servlet export stream with the reactive item stream under many slow readers.
+# Starts the packaged jar on an embedded H2 database with the reactive API enabled, imports a generated
+# catalog, then holds CLIENTS slow streaming requests open against each API in turn while sampling
+# threads and connection pools. Results go to bench/results/reactive-slow-clients-<timestamp>.csv.
+#
+#   mvn -DskipTests package && bench/reactive-slow-clients.sh
+#
+# Environment: CLIENTS (default "100 500"), DURATION seconds per run (30), ITEMS in the catalog (20000).
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+CLIENTS=${CLIENTS:-"100 500"}
+DURATION=${DURATION:-30}
+ITEMS=${ITEMS:-20000}
+JAR=$(ls target/sweet-shop-backend-*.jar | head -1)
+mkdir -p bench/results
+OUT=bench/results/reactive-slow-clients-$(date +%Y%m%d-%H%M%S).csv
+echo "label,clients,completed,failed,peak_threads,peak_tomcat_busy,peak_hikari_active,peak_hikari_pending,peak_r2dbc_acquired,peak_streams,probe_p50_ms,probe_max_ms" > "$OUT"
+
+java -jar "$JAR" \
+    --spring.datasource.url='jdbc:h2:mem:benchdb;MODE=MySQL;DB_CLOSE_DELAY=-1' \
+    --spring.datasource.username=sa --spring.datasource.password= \
+    --spring.datasource.driver-class-name=org.h2.Driver \
+    --spring.jpa.database-platform=org.hibernate.dialect.H2Dialect \
+    --spring.sql.init.mode=always --spring.jpa.show-sql=false \
+    --logging.level.root=WARN --logging.level.com.sweetshop=WARN \
+    --logging.level.org.springframework.web=WARN --logging.level.org.hibernate.SQL=WARN \
+    --logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN \
+    --server.tomcat.mbeanregistry.enabled=true \
+    --sweetshop.reactive.enabled=true \
+    '--sweetshop.reactive.r2dbc.url=r2dbc:h2:mem:///benchdb?MODE=MySQL&DB_CLOSE_DELAY=-1' \
+    --sweetshop.reactive.r2dbc.username=sa --sweetshop.reactive.r2dbc.password= \
+    > bench/results/app.log 2>&1 &
+APP_PID=$!
+trap 'kill $APP_PID 2> /dev/null || true' EXIT
+for _ in $(seq 60); do
+    curl -sf http://localhost:8080/actuator/health > /dev/null && break
+    sleep 1
+done
+
+awk -v n="$ITEMS" 'BEGIN {
+    print "name,category,stock,price,description"
+    for (i = 1; i <= n; i++) printf "Bench Sweet %d,Bench %d,%d,%d.50,Generated item %d for the slow-client benchmark\n", i, i % 20, i % 100, 50 + i % 900, i
+}' | curl -sf -H 'Content-Type: text/csv' --data-binary @- http://localhost:8080/api/items/import > /dev/null
+
+for c in $CLIENTS; do
+    java bench/SlowClients.java --target 'http://localhost:8080/api/items/export?format=ndjson' \
+        --clients "$c" --duration "$DURATION" --label servlet-export | tee -a "$OUT"
+    sleep 5
+    java bench/SlowClients.java --target http://localhost:8081/api/items \
+        --clients "$c" --duration "$DURATION" --label reactive | tee -a "$OUT"
+    sleep 5
+done
+echo "results: $OUT"
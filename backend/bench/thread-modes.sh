@@ -0,0 +1,56 @@
+#!/usr/bin/env bash
+# Compare platform-thread and virtual-thread request handling under the same closed-loop load.
+# Starts the packaged jar on an embedded H2 database once per mode, drives it with LoadDriver at each
+# concurrency level and writes one CSV line per run to bench/results/thread-modes-<timestamp>.csv.
+#
+#   mvn -Pjava21 -DskipTests package && bench/thread-modes.sh
+#
+# Environment: CONCURRENCY (default "50 200 1000"), DURATION seconds per run (default 30), PORT (8080).
+# Virtual threads need a Java 21 runtime; on older JVMs both rows measure platform threads.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+CONCURRENCY=${CONCURRENCY:-"50 200 1000"}
+DURATION=${DURATION:-30}
+PORT=${PORT:-8080}
+JAR=$(ls target/sweet-shop-backend-*.jar | head -1)
+mkdir -p bench/results
+OUT=bench/results/thread-modes-$(date +%Y%m%d-%H%M%S).csv
+echo "label,concurrency,requests,errors,throughput_rps,p50_ms,p90_ms,p99_ms,max_ms,statuses" > "$OUT"
+
+java_major=$(java -XshowSettings:properties -version 2>&1 | awk -F'= ' '/java.specification.version/ {print $2}')
+if [ "${java_major%%.*}" -lt 21 ]; then
+    echo "warning: Java $java_major runtime; spring.threads.virtual.enabled has no effect below 21" >&2
+fi
+
+start_app() {
+    java -jar "$JAR" --server.port="$PORT" \
+        --spring.datasource.url='jdbc:h2:mem:benchdb;MODE=MySQL;DB_CLOSE_DELAY=-1' \
+        --spring.datasource.username=sa --spring.datasource.password= \
+        --spring.datasource.driver-class-name=org.h2.Driver \
+        --spring.jpa.database-platform=org.hibernate.dialect.H2Dialect \
+        --spring.sql.init.mode=always --spring.jpa.show-sql=false \
+        --logging.level.root=WARN --logging.level.com.sweetshop=WARN \
+        --logging.level.org.springframework.web=WARN --logging.level.org.hibernate.SQL=WARN \
+        --logging.level.org.hibernate.type.descriptor.sql.BasicBinder=WARN \
+        "$@" > bench/results/app.log 2>&1 &
+    APP_PID=$!
+    for _ in $(seq 60); do
+        curl -sf "http://localhost:$PORT/actuator/health" > /dev/null && return 0
+        sleep 1
+    done
+    echo "application did not start; see bench/results/app.log" >&2
+    kill "$APP_PID"
+    exit 1
+}
+
+for mode in platform virtual-threads; do
+    if [ "$mode" = platform ]; then start_app; else start_app --spring.profiles.active=virtual-threads; fi
+    for c in $CONCURRENCY; do
+        java bench/LoadDriver.java --base "http://localhost:$PORT" --concurrency "$c" \
+            --duration "$DURATION" --label "$mode" | tee -a "$OUT"
+    done
+    kill "$APP_PID"
+    wait "$APP_PID" 2> /dev/null || true
+done
+echo "results: $OUT"
@@ -0,0 +1,107 @@
+package com.sweetshop.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.SweetShopBackendApplication;
+import com.sweetshop.service.ItemImportService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Application context on an embedded H2 database seeded with a generated catalog, shared by all
+// benchmarks of one fork so the context starts once per trial
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    static final int CATEGORY_COUNT = 50;
+    static final String[] FLAVOURS = {
+        "Chocolate", "Caramel", "Toffee", "Fudge", "Mint", "Licorice", "Marshmallow", "Nougat",
+        "Praline", "Truffle", "Gummy", "Lollipop", "Sherbet", "Brittle", "Marzipan", "Honeycomb"
+    };
+
+    @Param({"10000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        SpringApplication application = new SpringApplication(SweetShopBackendApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run(arguments());
+
+        ItemImportService.ImportResult result = bean(ItemImportService.class).importItems(new StringReader(catalogCsv(catalogSize)));
+        if (result.getFailed() > 0) {
+            throw new IllegalStateException("Catalog seeding rejected " + result.getFailed() + " rows");
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public ObjectMapper objectMapper() {
+        return bean(ObjectMapper.class);
+    }
+
+    static String categoryName(int index) {
+        return String.format(Locale.ROOT, "Category %02d", index);
+    }
+
+    // Same settings as the H2 smoke-test setup, without the web server or SQL logging; passed as
+    // command-line arguments so they take precedence over application.properties
+    static String[] arguments() {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("spring.datasource.url", "jdbc:h2:mem:jmh;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        properties.put("spring.datasource.username", "sa");
+        properties.put("spring.datasource.password", "");
+        properties.put("spring.datasource.driver-class-name", "org.h2.Driver");
+        properties.put("spring.jpa.database-platform", "org.hibernate.dialect.H2Dialect");
+        properties.put("spring.jpa.hibernate.ddl-auto", "none");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.sql.init.mode", "always");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.com.sweetshop", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.orm.deprecation", "ERROR");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        return properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+    }
+
+    // Deterministic catalog so results from different commits measure the same data
+    static String catalogCsv(int size) {
+        Random random = new Random(42);
+        StringBuilder csv = new StringBuilder("name,category,stock,price,description\n");
+        for (int i = 0; i < size; i++) {
+            String flavour = FLAVOURS[random.nextInt(FLAVOURS.length)];
+            csv.append(flavour).append(" Sweet ").append(String.format(Locale.ROOT, "%06d", i)).append(',')
+               .append(categoryName(random.nextInt(CATEGORY_COUNT))).append(',')
+               .append(random.nextInt(500)).append(',')
+               .append(String.format(Locale.ROOT, "%d.%02d", 1 + random.nextInt(50), random.nextInt(100))).append(',')
+               .append(flavour).append(" treat number ").append(i).append('\n');
+        }
+        return csv.toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.config.CacheConfig;
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.service.CategoryService;
+import com.sweetshop.service.ItemService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// Category resolution on the item write path: the cached name lookup findOrCreateCategory starts with,
+// the same lookup on a cold cache, and a whole item update that moves the item between categories
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CategoryResolutionBenchmark {
+
+    private CategoryService categoryService;
+    private ItemService itemService;
+    private Cache categoriesByName;
+    private ItemSummary item;
+    // Version the next update sends, as a client would
+    private Long version;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        categoryService = catalog.bean(CategoryService.class);
+        itemService = catalog.bean(ItemService.class);
+        categoriesByName = catalog.bean(CacheManager.class).getCache(CacheConfig.CATEGORIES_BY_NAME);
+        item = itemService.getAllItems(PageRequest.of(0, 1)).getContent().get(0);
+        version = item.getVersion();
+    }
+
+    // Mixed case like client input; the cache key is lower-cased
+    private String category() {
+        String name = CatalogState.categoryName((next++ & 0x7fffffff) % CatalogState.CATEGORY_COUNT);
+        return (next & 1) == 0 ? name : name.toUpperCase();
+    }
+
+    @Benchmark
+    public Optional<Category> cachedLookup() {
+        return categoryService.getCategoryByName(category());
+    }
+
+    @Benchmark
+    public Optional<Category> uncachedLookup() {
+        categoriesByName.clear();
+        return categoryService.getCategoryByName(category());
+    }
+
+    @Benchmark
+    public Item updateItemCategory() {
+        Item details = new Item(item.getName(), new Category(category(), null),
+                item.getStock(), item.getPrice(), item.getDescription());
+        details.setVersion(version);
+        Item updated = itemService.updateItem(item.getId(), details);
+        version = updated.getVersion();
+        return updated;
+    }
+}
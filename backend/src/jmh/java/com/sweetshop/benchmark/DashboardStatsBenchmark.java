@@ -0,0 +1,50 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.service.CategoryService;
+import com.sweetshop.service.InventoryAggregateService;
+import com.sweetshop.service.ItemService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Dashboard and category statistics as served, next to the full recomputation the reconciler runs
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DashboardStatsBenchmark {
+
+    private ItemService itemService;
+    private CategoryService categoryService;
+    private InventoryAggregateService inventoryAggregates;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        itemService = catalog.bean(ItemService.class);
+        categoryService = catalog.bean(CategoryService.class);
+        inventoryAggregates = catalog.bean(InventoryAggregateService.class);
+    }
+
+    @Benchmark
+    public ItemService.DashboardStats dashboardStats() {
+        return itemService.getDashboardStats();
+    }
+
+    @Benchmark
+    public List<CategoryService.CategoryStats> categoryStatistics() {
+        return categoryService.getCategoryStatistics();
+    }
+
+    @Benchmark
+    public ItemService.DashboardStats reloadAggregates() {
+        inventoryAggregates.reload();
+        return itemService.getDashboardStats();
+    }
+}
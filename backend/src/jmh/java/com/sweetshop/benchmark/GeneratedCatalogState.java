@@ -0,0 +1,46 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.SweetShopBackendApplication;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Arrays;
+
+// Application context on an embedded H2 database filled by CatalogGenerator, for catalogs too large to
+// seed through the CSV importer. The generator runs before startup completes and the search index is
+// built on ApplicationReadyEvent, so both are done when run() returns.
+@State(Scope.Benchmark)
+public class GeneratedCatalogState {
+
+    @Param({"1000000"})
+    public int catalogSize;
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        String[] arguments = Arrays.copyOf(CatalogState.arguments(), CatalogState.arguments().length + 1);
+        arguments[arguments.length - 1] = "--sweetshop.catalog-generator.items=" + catalogSize;
+        SpringApplication application = new SpringApplication(SweetShopBackendApplication.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run(arguments);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    public <T> T bean(Class<T> type) {
+        return context.getBean(type);
+    }
+}
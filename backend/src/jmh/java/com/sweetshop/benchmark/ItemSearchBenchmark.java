@@ -0,0 +1,70 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.service.ItemService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+// First page of the item search the listing endpoint runs, one benchmark per filter combination
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemSearchBenchmark {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("name").and(Sort.by("id")));
+
+    private ItemService itemService;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        itemService = catalog.bean(ItemService.class);
+    }
+
+    // Rotate the filter values so each invocation does not hit the same rows
+    private int nextIndex() {
+        return next++ & 0x7fffffff;
+    }
+
+    private String flavour() {
+        return CatalogState.FLAVOURS[nextIndex() % CatalogState.FLAVOURS.length];
+    }
+
+    private String category() {
+        return CatalogState.categoryName(nextIndex() % CatalogState.CATEGORY_COUNT);
+    }
+
+    @Benchmark
+    public Page<ItemSummary> byName() {
+        return itemService.searchItems(flavour(), null, null, null, null, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<ItemSummary> byCategory() {
+        return itemService.searchItems(null, category(), null, null, null, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<ItemSummary> byPriceRange() {
+        BigDecimal min = BigDecimal.valueOf(nextIndex() % 40);
+        return itemService.searchItems(null, null, min, min.add(BigDecimal.TEN), null, null, FIRST_PAGE);
+    }
+
+    @Benchmark
+    public Page<ItemSummary> combined() {
+        return itemService.searchItems(flavour(), category(), BigDecimal.ONE, BigDecimal.valueOf(30), 10, null, FIRST_PAGE);
+    }
+}
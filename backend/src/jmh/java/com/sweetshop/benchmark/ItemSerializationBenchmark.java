@@ -0,0 +1,69 @@
+package com.sweetshop.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.service.ItemService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of item lists with the application's ObjectMapper: the summary projection
+// the listing endpoints return and the full entity shape returned for single items
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ItemSerializationBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int size;
+
+    private ObjectWriter writer;
+    private List<ItemSummary> summaries;
+    private List<Item> entities;
+
+    @Setup(Level.Trial)
+    public void setUp(CatalogState catalog) {
+        writer = catalog.objectMapper().writer();
+        summaries = new ArrayList<>(catalog.bean(ItemService.class).getAllItems(PageRequest.of(0, size)).getContent());
+        entities = new ArrayList<>(summaries.size());
+        for (ItemSummary summary : summaries) {
+            entities.add(toEntity(summary));
+        }
+    }
+
+    // Detached copies so serialization never touches a Hibernate proxy or session
+    private static Item toEntity(ItemSummary summary) {
+        Category category = new Category(summary.getCategory().getName(), null);
+        category.setId(summary.getCategory().getId());
+        Item item = new Item(summary.getName(), category, summary.getStock(), summary.getPrice(), summary.getDescription());
+        item.setId(summary.getId());
+        item.setVersion(summary.getVersion());
+        item.setCreatedAt(summary.getCreatedAt());
+        item.setUpdatedAt(summary.getUpdatedAt());
+        return item;
+    }
+
+    @Benchmark
+    public byte[] summaries() throws JsonProcessingException {
+        return writer.writeValueAsBytes(summaries);
+    }
+
+    @Benchmark
+    public byte[] entities() throws JsonProcessingException {
+        return writer.writeValueAsBytes(entities);
+    }
+}
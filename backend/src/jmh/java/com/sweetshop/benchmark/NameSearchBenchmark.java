@@ -0,0 +1,94 @@
+package com.sweetshop.benchmark;
+
+import com.sweetshop.repository.ItemRepository;
+import com.sweetshop.repository.ItemSearchCriteria;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.service.ItemSearchIndex;
+import com.sweetshop.service.ItemService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Substring search on item names over a generated catalog (1M items by default): the LOWER(name) LIKE
+// '%x%' scan against the trigram index. A selective query is an item number fragment matching a handful
+// of rows; a common one is a flavour matching more rows than max-candidates, where the index gives up
+// and the search falls back to the scan.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(jvmArgsAppend = "-Xmx4g")
+public class NameSearchBenchmark {
+
+    private static final Pageable FIRST_PAGE = PageRequest.of(0, 20, Sort.by("name").and(Sort.by("id")));
+
+    // Words CatalogGenerator puts in item names
+    private static final String[] FLAVOURS = {"kesar", "pista", "badam", "kaju", "malai", "mango", "rose", "elaichi"};
+
+    @Param({"selective", "common"})
+    public String query;
+
+    private ItemService itemService;
+    private ItemRepository itemRepository;
+    private ItemSearchIndex searchIndex;
+    private TransactionTemplate readOnly;
+    private int catalogSize;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp(GeneratedCatalogState catalog) {
+        itemService = catalog.bean(ItemService.class);
+        itemRepository = catalog.bean(ItemRepository.class);
+        searchIndex = catalog.bean(ItemSearchIndex.class);
+        if (!searchIndex.isReady()) {
+            throw new IllegalStateException("Search index was not built");
+        }
+        readOnly = new TransactionTemplate(catalog.bean(TransactionTemplate.class).getTransactionManager());
+        readOnly.setReadOnly(true);
+        catalogSize = catalog.catalogSize;
+    }
+
+    // Rotate the search term so each invocation does not hit the same rows
+    private String nextQuery() {
+        int index = next++ & 0x7fffffff;
+        if ("selective".equals(query)) {
+            return "#" + (1 + (index * 7919L) % catalogSize);
+        }
+        return FLAVOURS[index % FLAVOURS.length];
+    }
+
+    // The query the listing endpoint runs without the index
+    @Benchmark
+    public Page<ItemSummary> like() {
+        ItemSearchCriteria criteria = new ItemSearchCriteria();
+        criteria.setName(nextQuery());
+        return readOnly.execute(status -> itemRepository.findByCriteria(criteria, FIRST_PAGE));
+    }
+
+    // The listing endpoint's search: candidate ids from the index, then only those rows
+    @Benchmark
+    public Page<ItemSummary> index() {
+        return itemService.searchItems(nextQuery(), null, null, null, null, null, FIRST_PAGE);
+    }
+
+    // The in-memory lookup alone
+    @Benchmark
+    public Optional<Set<Long>> indexLookup() {
+        return searchIndex.findIds(nextQuery());
+    }
+}
@@ -2,12 +2,18 @@ package com.sweetshop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcAutoConfiguration;
+import org.springframework.boot.autoconfigure.r2dbc.R2dbcTransactionManagerAutoConfiguration;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+// R2DBC is only used by the reactive API's own pool; a ConnectionFactory bean would switch off the
+// JDBC DataSource and add a second transaction manager
+@SpringBootApplication(exclude = {R2dbcAutoConfiguration.class, R2dbcTransactionManagerAutoConfiguration.class})
 @EntityScan("com.sweetshop.model")
 @EnableJpaRepositories("com.sweetshop.repository")
+@EnableScheduling
 public class SweetShopBackendApplication {
 
     public static void main(String[] args) {
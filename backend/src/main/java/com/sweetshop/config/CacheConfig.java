@@ -0,0 +1,59 @@
+package com.sweetshop.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+@Configuration
+@EnableCaching
+public class CacheConfig {
+    
+    public static final String ITEMS = "items";
+    public static final String CATEGORIES_BY_NAME = "categoriesByName";
+    
+    @Value("${sweetshop.cache.items.spec:maximumSize=10000,expireAfterWrite=30s}")
+    private String itemsSpec;
+    
+    @Value("${sweetshop.cache.categories.spec:maximumSize=1000,expireAfterWrite=10m}")
+    private String categoriesSpec;
+    
+    // Bounded Caffeine caches; see ReadThroughCache for when loaded values are kept
+    @Bean
+    public CacheManager cacheManager() {
+        CaffeineCacheManager caffeineCacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(
+                    String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                return new ReadThroughCache(name, cache, isAllowNullValues());
+            }
+        };
+        caffeineCacheManager.setAllowNullValues(false);
+        caffeineCacheManager.registerCustomCache(ITEMS, Caffeine.from(itemsSpec).recordStats().build());
+        caffeineCacheManager.registerCustomCache(CATEGORIES_BY_NAME, Caffeine.from(categoriesSpec).recordStats().build());
+        return caffeineCacheManager;
+    }
+    
+    // Evict the keys once the current transaction commits, or now outside one. Writers call this before
+    // the change notifier, so the eviction runs ahead of the version bump it registers.
+    public static void evictAfterCommit(Cache cache, Collection<?> keys) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    keys.forEach(cache::evict);
+                }
+            });
+        } else {
+            keys.forEach(cache::evict);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.sweetshop.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.DataSourceInitializer;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+// Read/write splitting, enabled by setting sweetshop.datasource.replica.url. The primary pool keeps the
+// usual spring.datasource.* settings; the replica pool is configured under sweetshop.datasource.replica.*
+@Configuration
+@ConditionalOnProperty(name = "sweetshop.datasource.replica.url")
+public class DataSourceConfig {
+    
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+    
+    // Not a candidate for autowiring, so Boot keeps injecting its own spring.datasource properties
+    @Bean(autowireCandidate = false)
+    @ConfigurationProperties("sweetshop.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+    
+    @Bean
+    @ConfigurationProperties("sweetshop.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = replicaDataSourceProperties().initializeDataSourceBuilder()
+                .type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        return dataSource;
+    }
+    
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(
+            @Qualifier("primaryDataSource") DataSource primary,
+            @Qualifier("replicaDataSource") DataSource replica,
+            @Value("${sweetshop.datasource.replica.validation-timeout-seconds:2}") int validationTimeoutSeconds) {
+        return new ReadWriteRoutingDataSource(primary, replica, validationTimeoutSeconds);
+    }
+    
+    @Bean
+    public FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(
+            ReadWriteRoutingDataSource routingDataSource,
+            @Value("${sweetshop.datasource.replica.read-after-write-ms:1000}") long readAfterWriteMs) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(routingDataSource, readAfterWriteMs));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+    
+    // The DataSource JPA and everything else uses; connections are fetched at the first statement,
+    // once the transaction's read-only flag is set
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+    
+    // Local testing with two embedded databases: give the replica the same schema and seed data
+    @Bean
+    @ConditionalOnProperty(name = "sweetshop.datasource.replica.initialize", havingValue = "true")
+    public DataSourceInitializer replicaInitializer() {
+        DataSourceInitializer initializer = new DataSourceInitializer();
+        initializer.setDataSource(replicaDataSource());
+        initializer.setDatabasePopulator(new ResourceDatabasePopulator(
+                new ClassPathResource("schema.sql"), new ClassPathResource("data.sql")));
+        return initializer;
+    }
+}
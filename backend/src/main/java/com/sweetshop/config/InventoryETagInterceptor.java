@@ -0,0 +1,57 @@
+package com.sweetshop.config;
+
+import com.sweetshop.service.ChangeLogService;
+import com.sweetshop.service.InventoryVersionService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+// Conditional GET for inventory reads: answers 304 from the version counter before the
+// controller (and so any repository) runs, otherwise tags the response with the version.
+// The version counts commits on the primary; a read served by a lagging replica is tagged with the
+// replica's change log position as well, so the tag only settles once the replica has the data.
+@Component
+public class InventoryETagInterceptor implements HandlerInterceptor {
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    // Only present with read/write splitting
+    @Autowired(required = false)
+    private ReadWriteRoutingDataSource routingDataSource;
+    
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!HttpMethod.GET.matches(method) && !HttpMethod.HEAD.matches(method)) {
+            return true;
+        }
+        // Read the version and position before the data, so the tag is never newer than the body it labels
+        long version = inventoryVersion.getVersion();
+        boolean replica = routingDataSource != null && routingDataSource.lockReadRoute();
+        long committed = inventoryVersion.getPosition();
+        String eTag = replica ? "\"" + committed + "." + version + "\"" : "\"" + version + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        if (new ServletWebRequest(request, response).checkNotModified(eTag)) {
+            return false;
+        }
+        // Only a request that misses above asks the replica how far it has got. A tag naming less than
+        // the committed position never matches above; the response is labelled with what the replica
+        // has applied, and is confirmed against the client's tag only after that
+        if (replica) {
+            long applied = changeLogService.getPosition();
+            if (applied != committed) {
+                response.setHeader(HttpHeaders.ETAG, "\"" + applied + "." + version + "\"");
+            }
+        }
+        return true;
+    }
+}
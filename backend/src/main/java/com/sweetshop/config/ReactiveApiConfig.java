@@ -0,0 +1,115 @@
+package com.sweetshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.controller.ReactiveCatalogHandler;
+import com.sweetshop.repository.ReactiveCatalogRepository;
+import com.sweetshop.service.HotStockService;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.pool.PoolMetrics;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.web.cors.CorsConfiguration;
+import org.springframework.web.cors.reactive.CorsWebFilter;
+import org.springframework.web.cors.reactive.UrlBasedCorsConfigurationSource;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.ToIntFunction;
+
+// Reactive read-only catalog API, enabled with sweetshop.reactive.enabled=true. It runs on its own
+// Netty port next to the servlet app and reads through an R2DBC pool kept out of the application
+// context's DataSource wiring (Boot's R2DBC auto-configuration is excluded for that reason).
+@Configuration
+@ConditionalOnProperty(name = "sweetshop.reactive.enabled", havingValue = "true")
+public class ReactiveApiConfig {
+    
+    @Bean
+    public ReactiveCatalogRepository reactiveCatalogRepository(
+            @Value("${sweetshop.reactive.r2dbc.url}") String url,
+            @Value("${sweetshop.reactive.r2dbc.username:}") String username,
+            @Value("${sweetshop.reactive.r2dbc.password:}") String password,
+            @Value("${sweetshop.reactive.pool.initial-size:2}") int initialSize,
+            @Value("${sweetshop.reactive.pool.max-size:10}") int maxSize,
+            @Value("${sweetshop.reactive.pool.max-acquire-time-ms:5000}") long maxAcquireTimeMs,
+            @Value("${sweetshop.reactive.page-size:200}") int pageSize) {
+        ConnectionFactoryOptions options = ConnectionFactoryOptions.parse(url).mutate()
+                .option(ConnectionFactoryOptions.USER, username)
+                .option(ConnectionFactoryOptions.PASSWORD, password)
+                .build();
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(ConnectionFactories.get(options))
+                .name("reactive")
+                .initialSize(initialSize)
+                .maxSize(maxSize)
+                .maxAcquireTime(Duration.ofMillis(maxAcquireTimeMs))
+                .build());
+        // The embedded H2 driver executes on the subscribing thread; keep it off the event loop
+        boolean blockingDriver = "h2".equals(options.getValue(ConnectionFactoryOptions.DRIVER));
+        return new ReactiveCatalogRepository(pool, pageSize,
+                blockingDriver ? Schedulers.boundedElastic() : Schedulers.immediate());
+    }
+    
+    @Bean
+    public ReactiveCatalogHandler reactiveCatalogHandler(ReactiveCatalogRepository repository,
+                                                         HotStockService hotStockService,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        ReactiveCatalogHandler handler = new ReactiveCatalogHandler(repository, hotStockService);
+        meterRegistry.ifAvailable(registry -> {
+            ConnectionPool pool = repository.getPool();
+            poolGauge(registry, pool, "sweetshop.reactive.pool.acquired", PoolMetrics::acquiredSize);
+            poolGauge(registry, pool, "sweetshop.reactive.pool.allocated", PoolMetrics::allocatedSize);
+            poolGauge(registry, pool, "sweetshop.reactive.pool.pending", PoolMetrics::pendingAcquireSize);
+            Gauge.builder("sweetshop.reactive.streams.active", handler, ReactiveCatalogHandler::getActiveStreams)
+                    .register(registry);
+        });
+        return handler;
+    }
+    
+    @Bean
+    public ReactiveApiServer reactiveApiServer(ReactiveCatalogHandler handler, ObjectMapper objectMapper,
+                                               @Value("${sweetshop.reactive.port:8081}") int port) {
+        RouterFunction<ServerResponse> routes = RouterFunctions.route()
+                .GET(ReactiveApiServer.LOW_STOCK_ROUTE, handler::lowStockItems)
+                .GET(ReactiveApiServer.ITEMS_ROUTE, handler::items)
+                .GET(ReactiveApiServer.CATEGORIES_ROUTE, handler::categories)
+                .build();
+        
+        CorsConfiguration cors = new CorsConfiguration();
+        cors.setAllowedOriginPatterns(List.of("*"));
+        cors.setAllowedMethods(List.of("GET", "OPTIONS"));
+        cors.setAllowedHeaders(List.of("*"));
+        cors.setMaxAge(3600L);
+        UrlBasedCorsConfigurationSource corsSource = new UrlBasedCorsConfigurationSource();
+        corsSource.registerCorsConfiguration("/api/**", cors);
+        
+        // Serialize with the application's ObjectMapper so both APIs render the same JSON
+        HandlerStrategies strategies = HandlerStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                })
+                .webFilter(new CorsWebFilter(corsSource))
+                .build();
+        return new ReactiveApiServer(RouterFunctions.toHttpHandler(routes, strategies), port);
+    }
+    
+    private static void poolGauge(MeterRegistry registry, ConnectionPool pool, String name,
+                                  ToIntFunction<PoolMetrics> metric) {
+        Gauge.builder(name, pool, p -> p.getMetrics().map(metric::applyAsInt).orElse(0))
+                .register(registry);
+    }
+}
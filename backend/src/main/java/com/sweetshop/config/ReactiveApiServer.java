@@ -0,0 +1,71 @@
+package com.sweetshop.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import java.util.Set;
+
+// Netty server for the reactive API, started and stopped with the application context
+public class ReactiveApiServer implements SmartLifecycle {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReactiveApiServer.class);
+    
+    static final String ITEMS_ROUTE = "/api/items";
+    static final String LOW_STOCK_ROUTE = "/api/items/low-stock";
+    static final String CATEGORIES_ROUTE = "/api/categories";
+    private static final Set<String> ROUTES = Set.of(ITEMS_ROUTE, LOW_STOCK_ROUTE, CATEGORIES_ROUTE);
+    
+    private final HttpHandler httpHandler;
+    private final int port;
+    private volatile DisposableServer server;
+    
+    public ReactiveApiServer(HttpHandler httpHandler, int port) {
+        this.httpHandler = httpHandler;
+        this.port = port;
+    }
+    
+    @Override
+    public void start() {
+        server = HttpServer.create()
+                .port(port)
+                // reactor.netty.http.server.* meters; unknown paths share one tag so scans cannot add series
+                .metrics(true, ReactiveApiServer::uriTag)
+                .handle(new ReactorHttpHandlerAdapter(httpHandler))
+                .bindNow();
+        log.info("Reactive catalog API listening on port {}", server.port());
+    }
+    
+    static String uriTag(String uri) {
+        int query = uri.indexOf('?');
+        String path = query < 0 ? uri : uri.substring(0, query);
+        if (!path.startsWith("/")) {
+            path = "/" + path;
+        }
+        return ROUTES.contains(path) ? path : "/**";
+    }
+    
+    @Override
+    public void stop() {
+        DisposableServer current = server;
+        if (current != null) {
+            current.disposeNow();
+            server = null;
+        }
+    }
+    
+    // The bound port, which differs from the configured one when that is 0
+    public int getPort() {
+        DisposableServer current = server;
+        return current != null ? current.port() : port;
+    }
+    
+    @Override
+    public boolean isRunning() {
+        return server != null;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sweetshop.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Caffeine cache for @Cacheable read-through methods. A value loaded inside a transaction is put once
+// that transaction commits, and only if nothing was evicted since the miss that started the load: a
+// writer that committed and evicted in between would otherwise leave the pre-write value cached under
+// the new inventory version. Evictions apply at once; writers register them to run after their commit.
+public class ReadThroughCache extends CaffeineCache {
+
+    // Bumped by every eviction, before it applies
+    private final AtomicLong evictions = new AtomicLong();
+
+    // Eviction count at this thread's last miss, taken by the put that follows the load
+    private final ThreadLocal<Long> missedAt = new ThreadLocal<>();
+
+    public ReadThroughCache(String name, Cache<Object, Object> cache, boolean allowNullValues) {
+        super(name, cache, allowNullValues);
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        ValueWrapper value = super.get(key);
+        if (value == null) {
+            missedAt.set(evictions.get());
+        }
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        Long since = missedAt.get();
+        missedAt.remove();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    putUnlessEvictedSince(key, value, since);
+                }
+            });
+        } else {
+            putUnlessEvictedSince(key, value, since);
+        }
+    }
+
+    @Override
+    public void evict(Object key) {
+        evictions.incrementAndGet();
+        super.evict(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        evictions.incrementAndGet();
+        return super.evictIfPresent(key);
+    }
+
+    @Override
+    public void clear() {
+        evictions.incrementAndGet();
+        super.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        evictions.incrementAndGet();
+        return super.invalidate();
+    }
+
+    // Check again after the put: an eviction that lands between the check and the put would miss it
+    private void putUnlessEvictedSince(Object key, Object value, Long since) {
+        if (since == null) {
+            super.put(key, value);
+            return;
+        }
+        if (evictions.get() != since) {
+            return;
+        }
+        super.put(key, value);
+        if (evictions.get() != since) {
+            super.evict(key);
+        }
+    }
+}
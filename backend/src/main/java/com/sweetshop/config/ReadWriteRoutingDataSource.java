@@ -0,0 +1,157 @@
+package com.sweetshop.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+
+// Sends read-only transactions to the replica pool and everything else to the primary. A request whose
+// client wrote recently (see ReadYourWritesFilter) reads from the primary so it sees its own write
+// despite replica lag; other clients keep reading from the replica. All reads fall back to the
+// primary while the replica is unreachable.
+// Must sit behind a LazyConnectionDataSourceProxy: the read-only flag is only known once the
+// transaction has started, after the connection would otherwise have been fetched.
+public class ReadWriteRoutingDataSource extends AbstractDataSource {
+    
+    private static final Logger log = LoggerFactory.getLogger(ReadWriteRoutingDataSource.class);
+    
+    private final DataSource primary;
+    private final DataSource replica;
+    private final int validationTimeoutSeconds;
+    
+    // The client of the request on this thread; unset on scheduler, async and startup threads
+    private final ThreadLocal<Client> client = new ThreadLocal<>();
+    
+    private volatile boolean replicaUp = true;
+    
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, int validationTimeoutSeconds) {
+        this.primary = primary;
+        this.replica = replica;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+    
+    private Connection route(ConnectionOpener opener) throws SQLException {
+        boolean readOnly = TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        Client current = client.get();
+        if (readOnly && replicaUp && (current == null || !current.pinned)) {
+            try {
+                return opener.open(replica);
+            } catch (SQLFeatureNotSupportedException ex) {
+                // Pools with fixed credentials refuse per-call ones; that says nothing about the replica
+                throw ex;
+            } catch (SQLException ex) {
+                replicaDown(ex);
+            }
+        }
+        Connection connection = opener.open(primary);
+        return readOnly || current == null || current.onWrite == null ? connection : recordWriteOnCommit(connection, current);
+    }
+    
+    // Bind the client of the request on this thread. recentWrite pins its reads to the primary;
+    // onWrite, if given, runs once when the request first commits a write transaction.
+    public void bindClient(boolean recentWrite, Runnable onWrite) {
+        Client bound = new Client(onWrite);
+        bound.pinned = recentWrite;
+        client.set(bound);
+    }
+    
+    public void unbindClient() {
+        client.remove();
+    }
+    
+    // Fix where the remaining reads of the request on this thread go and report it: true for the replica.
+    // A request that starts on the primary stays there, so a replica recovering mid-request cannot serve
+    // data older than what the request has already read (the position behind an ETag).
+    public boolean lockReadRoute() {
+        Client current = client.get();
+        if (current == null) {
+            return replicaUp;
+        }
+        if (!replicaUp) {
+            current.pinned = true;
+        }
+        return !current.pinned;
+    }
+    
+    public boolean isReplicaUp() {
+        return replicaUp;
+    }
+    
+    // Probe the replica so reads move back to it once it recovers, or off it before a request notices
+    @Scheduled(fixedDelayString = "${sweetshop.datasource.replica.health-check-interval-ms:5000}")
+    public void checkReplica() {
+        try (Connection connection = replica.getConnection()) {
+            if (!connection.isValid(validationTimeoutSeconds)) {
+                throw new SQLException("Connection validation failed");
+            }
+            if (!replicaUp) {
+                replicaUp = true;
+                log.info("Replica is reachable again; routing read-only transactions to it");
+            }
+        } catch (SQLException ex) {
+            replicaDown(ex);
+        }
+    }
+    
+    private void replicaDown(SQLException ex) {
+        if (replicaUp) {
+            replicaUp = false;
+            log.warn("Replica unavailable, routing reads to the primary until it recovers: {}", ex.getMessage());
+        }
+    }
+    
+    // Only a commit counts: reads on an auto-commit connection never call it, and a rolled back
+    // transaction changed nothing. Later reads of the same request then stay on the primary too.
+    private Connection recordWriteOnCommit(Connection connection, Client current) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getTargetException();
+                    }
+                    if ("commit".equals(method.getName()) && !current.wrote) {
+                        current.wrote = true;
+                        current.pinned = true;
+                        current.onWrite.run();
+                    }
+                    return result;
+                });
+    }
+    
+    @FunctionalInterface
+    private interface ConnectionOpener {
+        Connection open(DataSource dataSource) throws SQLException;
+    }
+    
+    private static class Client {
+        private final Runnable onWrite;
+        // Reads go to the primary
+        private boolean pinned;
+        // A write committed during this request
+        private boolean wrote;
+        
+        Client(Runnable onWrite) {
+            this.onWrite = onWrite;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.sweetshop.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Set;
+
+// Read-your-writes per client. A request that commits a write gets a cookie with the time of the
+// write; while a request carries a cookie younger than the window, its reads go to the primary.
+// Clients that did not write keep reading from the replica, however busy the node is with writes.
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+    
+    static final String COOKIE = "sweetshop-last-write";
+    
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS");
+    
+    private final ReadWriteRoutingDataSource routingDataSource;
+    private final long windowMs;
+    
+    public ReadYourWritesFilter(ReadWriteRoutingDataSource routingDataSource, long windowMs) {
+        this.routingDataSource = routingDataSource;
+        this.windowMs = windowMs;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        boolean recentWrite = System.currentTimeMillis() - lastWrite(request) < windowMs;
+        // A GET that happens to run a read-write transaction is still a read
+        Runnable onWrite = SAFE_METHODS.contains(request.getMethod()) ? null : () -> rememberWrite(response);
+        routingDataSource.bindClient(recentWrite, onWrite);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            routingDataSource.unbindClient();
+        }
+    }
+    
+    // Runs at commit, before the controller writes the body, so the header can still be added
+    private void rememberWrite(HttpServletResponse response) {
+        if (response.isCommitted()) {
+            return;
+        }
+        Cookie cookie = new Cookie(COOKIE, String.valueOf(System.currentTimeMillis()));
+        cookie.setPath("/");
+        cookie.setHttpOnly(true);
+        cookie.setMaxAge((int) Math.max(1, (windowMs + 999) / 1000));
+        response.addCookie(cookie);
+    }
+    
+    private static long lastWrite(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies != null) {
+            for (Cookie cookie : cookies) {
+                if (COOKIE.equals(cookie.getName())) {
+                    try {
+                        return Long.parseLong(cookie.getValue());
+                    } catch (NumberFormatException e) {
+                        return 0;
+                    }
+                }
+            }
+        }
+        return 0;
+    }
+}
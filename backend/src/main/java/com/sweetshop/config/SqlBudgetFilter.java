@@ -0,0 +1,78 @@
+package com.sweetshop.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Counts the SQL statements and database time of each API request, publishes them per endpoint and
+// warns about requests over the statement budget, which is how an N+1 query shows up. Work done
+// off the request thread (streamed export bodies, SSE sends) is not attributed to the request.
+public class SqlBudgetFilter extends OncePerRequestFilter {
+    
+    private static final Logger log = LoggerFactory.getLogger(SqlBudgetFilter.class);
+    
+    static final String STATEMENTS_METRIC = "sweetshop.http.sql.statements";
+    static final String TIME_METRIC = "sweetshop.http.sql.time";
+    static final String OVER_BUDGET_METRIC = "sweetshop.http.sql.over.budget";
+    
+    private final MeterRegistry meterRegistry;
+    private final int statementBudget;
+    
+    public SqlBudgetFilter(MeterRegistry meterRegistry, int statementBudget) {
+        this.meterRegistry = meterRegistry;
+        this.statementBudget = statementBudget;
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlStatementStats stats = SqlStatementStats.begin();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            stats.end();
+            record(request, stats);
+        }
+    }
+    
+    private void record(HttpServletRequest request, SqlStatementStats stats) {
+        // Route template, e.g. /api/items/{id}; never the raw path, which would add a series per id
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern != null ? pattern.toString() : "UNKNOWN";
+        String method = request.getMethod();
+        
+        DistributionSummary.builder(STATEMENTS_METRIC)
+                .description("SQL statements per request")
+                .baseUnit("statements")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.getStatements());
+        Timer.builder(TIME_METRIC)
+                .description("Database time per request")
+                .tags("method", method, "uri", uri)
+                .register(meterRegistry)
+                .record(stats.getDatabaseNanos(), TimeUnit.NANOSECONDS);
+        
+        if (statementBudget > 0 && stats.getStatements() > statementBudget) {
+            Counter.builder(OVER_BUDGET_METRIC)
+                    .description("Requests that ran more SQL statements than the budget")
+                    .tags("method", method, "uri", uri)
+                    .register(meterRegistry)
+                    .increment();
+            log.warn("{} {} ran {} SQL statements (budget {}) taking {} ms",
+                     method, request.getRequestURI(), stats.getStatements(), statementBudget, stats.getDatabaseMillis());
+        }
+    }
+}
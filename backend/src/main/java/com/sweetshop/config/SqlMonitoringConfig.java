@@ -0,0 +1,47 @@
+package com.sweetshop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+// Per-request SQL statement budget and slow-query log, on by default. Wraps the bean named dataSource
+// (Boot's pool, or the read/write routing proxy from DataSourceConfig) so every JDBC statement is seen.
+@Configuration
+@ConditionalOnProperty(name = "sweetshop.sql.monitoring.enabled", havingValue = "true", matchIfMissing = true)
+public class SqlMonitoringConfig {
+    
+    // Static, so the post-processor is registered before the DataSource is created; the registry is
+    // only looked up at the first statement
+    @Bean
+    public static BeanPostProcessor sqlMonitoringDataSourcePostProcessor(
+            @Value("${sweetshop.sql.slow-query-ms:250}") long slowQueryMs,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource
+                        && !(bean instanceof SqlMonitoringDataSource)) {
+                    return new SqlMonitoringDataSource(dataSource, slowQueryMs, meterRegistry);
+                }
+                return bean;
+            }
+        };
+    }
+    
+    @Bean
+    public FilterRegistrationBean<SqlBudgetFilter> sqlBudgetFilter(
+            MeterRegistry meterRegistry,
+            @Value("${sweetshop.sql.statement-budget:20}") int statementBudget) {
+        FilterRegistrationBean<SqlBudgetFilter> registration =
+                new FilterRegistrationBean<>(new SqlBudgetFilter(meterRegistry, statementBudget));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
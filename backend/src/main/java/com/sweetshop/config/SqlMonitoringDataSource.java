@@ -0,0 +1,124 @@
+package com.sweetshop.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Times every statement executed through the application's DataSource, whoever issues it (Hibernate,
+// JdbcTemplate), adds it to the thread's SqlStatementStats scope and logs statements slower than the
+// threshold. A batch counts as one statement, since it is one round trip.
+public class SqlMonitoringDataSource extends DelegatingDataSource {
+    
+    private static final Logger log = LoggerFactory.getLogger(SqlMonitoringDataSource.class);
+    
+    static final String EXECUTION_METRIC = "sweetshop.sql.execution";
+    static final String SLOW_METRIC = "sweetshop.sql.slow";
+    private static final int MAX_LOGGED_SQL_LENGTH = 1000;
+    
+    private final long slowNanos;
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    
+    public SqlMonitoringDataSource(DataSource target, long slowQueryMs, ObjectProvider<MeterRegistry> meterRegistry) {
+        super(target);
+        this.slowNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryMs);
+        this.meterRegistry = meterRegistry;
+    }
+    
+    @Override
+    public Connection getConnection() throws SQLException {
+        return monitored(super.getConnection());
+    }
+    
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return monitored(super.getConnection(username, password));
+    }
+    
+    private Connection monitored(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement statement) {
+                        // prepareStatement/prepareCall carry their SQL; plain statements pass it to execute
+                        String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                        return monitored(statement, sql);
+                    }
+                    return result;
+                });
+    }
+    
+    private Statement monitored(Statement statement, String preparedSql) {
+        Class<?> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class : Statement.class;
+        return (Statement) Proxy.newProxyInstance(Statement.class.getClassLoader(), new Class<?>[] {type},
+                (proxy, method, args) -> {
+                    String operation = operation(method.getName());
+                    if (operation == null) {
+                        return invoke(statement, method, args);
+                    }
+                    long started = System.nanoTime();
+                    try {
+                        return invoke(statement, method, args);
+                    } finally {
+                        long elapsed = System.nanoTime() - started;
+                        String sql = preparedSql != null ? preparedSql
+                                : args != null && args.length > 0 && args[0] instanceof String s ? s : "(batch)";
+                        executed(operation, sql, elapsed);
+                    }
+                });
+    }
+    
+    // query, update, batch or execute for the JDBC methods that run SQL; null for everything else
+    private static String operation(String method) {
+        return switch (method) {
+            case "executeQuery" -> "query";
+            case "executeUpdate", "executeLargeUpdate" -> "update";
+            case "executeBatch", "executeLargeBatch" -> "batch";
+            case "execute" -> "execute";
+            default -> null;
+        };
+    }
+    
+    private void executed(String operation, String sql, long nanos) {
+        boolean slow = nanos >= slowNanos;
+        SqlStatementStats.statementExecuted(nanos, slow);
+        timer(operation).record(nanos, TimeUnit.NANOSECONDS);
+        if (slow) {
+            meterRegistry.ifAvailable(registry -> registry.counter(SLOW_METRIC, "operation", operation).increment());
+            log.warn("Slow SQL {} took {} ms: {}", operation, TimeUnit.NANOSECONDS.toMillis(nanos),
+                     sql.length() > MAX_LOGGED_SQL_LENGTH ? sql.substring(0, MAX_LOGGED_SQL_LENGTH) + "..." : sql);
+        }
+    }
+    
+    private Timer timer(String operation) {
+        return timers.computeIfAbsent(operation, op -> Timer.builder(EXECUTION_METRIC)
+                .description("JDBC statement execution time")
+                .tag("operation", op)
+                .register(meterRegistry.getObject()));
+    }
+    
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException ex) {
+            throw ex.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.sweetshop.config;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+// JDBC statements executed on the current thread while a scope is open, counted by
+// SqlMonitoringDataSource. Scopes nest: closing one adds its counts to the enclosing scope, so a
+// test can wrap a whole request that SqlBudgetFilter also measures.
+//
+//   SqlStatementStats stats = SqlStatementStats.record(() -> mockMvc.perform(get("/api/items/1")));
+//   assertThat(stats.getStatements()).isLessThanOrEqualTo(2);
+public class SqlStatementStats {
+    
+    private static final ThreadLocal<SqlStatementStats> CURRENT = new ThreadLocal<>();
+    
+    private final SqlStatementStats parent;
+    private int statements;
+    private int slowStatements;
+    private long databaseNanos;
+    
+    private SqlStatementStats(SqlStatementStats parent) {
+        this.parent = parent;
+    }
+    
+    // Open a scope on this thread; every begin() must be paired with end() in a finally block
+    public static SqlStatementStats begin() {
+        SqlStatementStats stats = new SqlStatementStats(CURRENT.get());
+        CURRENT.set(stats);
+        return stats;
+    }
+    
+    public void end() {
+        if (CURRENT.get() != this) {
+            throw new IllegalStateException("SQL statement scopes must be closed in the order they were opened");
+        }
+        if (parent != null) {
+            parent.statements += statements;
+            parent.slowStatements += slowStatements;
+            parent.databaseNanos += databaseNanos;
+            CURRENT.set(parent);
+        } else {
+            CURRENT.remove();
+        }
+    }
+    
+    // Counts of everything the action executed on this thread
+    public static SqlStatementStats record(Callable<?> action) throws Exception {
+        SqlStatementStats stats = begin();
+        try {
+            action.call();
+        } finally {
+            stats.end();
+        }
+        return stats;
+    }
+    
+    static void statementExecuted(long nanos, boolean slow) {
+        SqlStatementStats stats = CURRENT.get();
+        if (stats != null) {
+            stats.statements++;
+            stats.databaseNanos += nanos;
+            if (slow) {
+                stats.slowStatements++;
+            }
+        }
+    }
+    
+    public int getStatements() { return statements; }
+    public int getSlowStatements() { return slowStatements; }
+    public long getDatabaseNanos() { return databaseNanos; }
+    public long getDatabaseMillis() { return TimeUnit.NANOSECONDS.toMillis(databaseNanos); }
+}
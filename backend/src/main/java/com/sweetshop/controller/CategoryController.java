@@ -1,6 +1,7 @@
 package com.sweetshop.controller;
 
 import com.sweetshop.model.Category;
+import com.sweetshop.repository.CategorySummary;
 import com.sweetshop.service.CategoryService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,23 +22,23 @@ public class CategoryController {
     
     // Get all categories
     @GetMapping("/categories")
-    public ResponseEntity<List<Category>> getAllCategories() {
-        List<Category> categories = categoryService.getAllCategories();
+    public ResponseEntity<List<CategorySummary>> getAllCategories() {
+        List<CategorySummary> categories = categoryService.getAllCategories();
         return ResponseEntity.ok(categories);
     }
     
     // Get category by ID
     @GetMapping("/categories/{id}")
-    public ResponseEntity<Category> getCategoryById(@PathVariable Long id) {
-        Optional<Category> category = categoryService.getCategoryById(id);
+    public ResponseEntity<CategorySummary> getCategoryById(@PathVariable Long id) {
+        Optional<CategorySummary> category = categoryService.getCategoryById(id);
         return category.map(ResponseEntity::ok)
                       .orElse(ResponseEntity.notFound().build());
     }
     
     // Get category by name
     @GetMapping("/categories/name/{name}")
-    public ResponseEntity<Category> getCategoryByName(@PathVariable String name) {
-        Optional<Category> category = categoryService.getCategoryByName(name);
+    public ResponseEntity<CategorySummary> getCategoryByName(@PathVariable String name) {
+        Optional<CategorySummary> category = categoryService.getCategorySummaryByName(name);
         return category.map(ResponseEntity::ok)
                       .orElse(ResponseEntity.notFound().build());
     }
@@ -94,8 +95,8 @@ public class CategoryController {
     
     // Get categories with items
     @GetMapping("/categories/with-items")
-    public ResponseEntity<List<Category>> getCategoriesWithItems() {
-        List<Category> categories = categoryService.getCategoriesWithItems();
+    public ResponseEntity<List<CategorySummary>> getCategoriesWithItems() {
+        List<CategorySummary> categories = categoryService.getCategoriesWithItems();
         return ResponseEntity.ok(categories);
     }
     
@@ -108,8 +109,8 @@ public class CategoryController {
     
     // Search categories by name
     @GetMapping("/categories/search")
-    public ResponseEntity<List<Category>> searchCategories(@RequestParam String name) {
-        List<Category> categories = categoryService.searchCategoriesByName(name);
+    public ResponseEntity<List<CategorySummary>> searchCategories(@RequestParam String name) {
+        List<CategorySummary> categories = categoryService.searchCategoriesByName(name);
         return ResponseEntity.ok(categories);
     }
     
@@ -0,0 +1,21 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.service.ChangeLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api")
+public class ChangeFeedController {
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    // Item and category changes after a sequence number, oldest first; resume from nextSince
+    @GetMapping("/changes")
+    public ResponseEntity<ChangeLogService.ChangeFeed> getChanges(@RequestParam(required = false) Long since,
+                                                                  @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(changeLogService.getChanges(since, limit));
+    }
+}
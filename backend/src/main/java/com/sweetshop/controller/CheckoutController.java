@@ -0,0 +1,74 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.service.CheckoutService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api")
+public class CheckoutController {
+    
+    @Autowired
+    private CheckoutService checkoutService;
+    
+    // Sell a basket of items atomically
+    @PostMapping("/checkout")
+    public ResponseEntity<CheckoutService.CheckoutResult> checkout(@RequestBody CheckoutRequest checkoutRequest) {
+        if (checkoutRequest.getLines() == null) {
+            throw new ValidationException("lines", "is required");
+        }
+        
+        // Merge repeated lines for the same item
+        Map<Long, Integer> basket = new HashMap<>();
+        for (CheckoutLineRequest line : checkoutRequest.getLines()) {
+            if (line.getItemId() == null) {
+                throw new ValidationException("itemId", "is required");
+            }
+            if (line.getQuantity() == null || line.getQuantity() < 1) {
+                throw new ValidationException("quantity", "must be at least 1");
+            }
+            long total = (long) basket.getOrDefault(line.getItemId(), 0) + line.getQuantity();
+            if (total > Integer.MAX_VALUE) {
+                throw new ValidationException("quantity", "total for item " + line.getItemId()
+                        + " must be at most " + Integer.MAX_VALUE);
+            }
+            basket.put(line.getItemId(), (int) total);
+        }
+        
+        return ResponseEntity.ok(checkoutService.checkout(basket));
+    }
+    
+    // Inner class for request DTO
+    public static class CheckoutRequest {
+        private List<CheckoutLineRequest> lines;
+        
+        // Constructors
+        public CheckoutRequest() {}
+        
+        // Getters and Setters
+        public List<CheckoutLineRequest> getLines() { return lines; }
+        public void setLines(List<CheckoutLineRequest> lines) { this.lines = lines; }
+    }
+    
+    // Inner class for a basket line
+    public static class CheckoutLineRequest {
+        private Long itemId;
+        private Integer quantity;
+        
+        // Constructors
+        public CheckoutLineRequest() {}
+        
+        // Getters and Setters
+        public Long getItemId() { return itemId; }
+        public void setItemId(Long itemId) { this.itemId = itemId; }
+        
+        public Integer getQuantity() { return quantity; }
+        public void setQuantity(Integer quantity) { this.quantity = quantity; }
+    }
+}
@@ -0,0 +1,25 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.service.InventoryEventService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api")
+public class InventoryEventController {
+    
+    @Autowired
+    private InventoryEventService inventoryEventService;
+    
+    // Push stream of item and category changes; a full node answers 503 so clients retry elsewhere
+    @GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe() {
+        return inventoryEventService.subscribe()
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+}
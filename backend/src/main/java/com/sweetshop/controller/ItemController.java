@@ -1,22 +1,45 @@
 package com.sweetshop.controller;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.sweetshop.model.Item;
 import com.sweetshop.model.Category;
 import com.sweetshop.service.ItemService;
 import com.sweetshop.service.CategoryService;
+import com.sweetshop.service.ItemCursor;
+import com.sweetshop.service.ItemImportService;
+import com.sweetshop.repository.ItemSearchCriteria;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.exception.ResourceAlreadyExistsException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.exception.ValidationException;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api")
@@ -28,9 +51,21 @@ public class ItemController {
     @Autowired
     private CategoryService categoryService;
     
+    @Autowired
+    private ItemImportService itemImportService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    // Sort fields backed by an index on the items table
+    private static final Set<String> SORTABLE_FIELDS = Set.of("id", "name", "stock", "price", "createdAt");
+    
+    @Value("${sweetshop.pagination.max-page-size:100}")
+    private int maxPageSize;
+    
     // Get all items
     @GetMapping("/items")
-    public ResponseEntity<List<Item>> getAllItems(
+    public ResponseEntity<?> getAllItems(
             @RequestParam(required = false) String search,
             @RequestParam(required = false) String category,
             @RequestParam(required = false) BigDecimal minPrice,
@@ -40,24 +75,37 @@ public class ItemController {
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "name") String sortBy,
-            @RequestParam(defaultValue = "asc") String sortDir) {
+            @RequestParam(defaultValue = "asc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "false") boolean facets) {
         
-        try {
-            List<Item> items;
-            
-            // If search parameters are provided, use complex search
-            if (search != null || category != null || minPrice != null || maxPrice != null || 
-                minStock != null || maxStock != null) {
-                items = itemService.searchItems(search, category, minPrice, maxPrice, minStock, maxStock);
-            } else {
-                // Otherwise get all items
-                items = itemService.getAllItems();
-            }
-            
-            return ResponseEntity.ok(items);
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        // Keyset mode: an empty cursor starts from the beginning, a token continues after it
+        if (cursor != null) {
+            ItemSearchCriteria criteria = new ItemSearchCriteria(search, category, minPrice, maxPrice, minStock, maxStock);
+            return ResponseEntity.ok(itemService.getItemsAfter(criteria, buildCursor(cursor, sortBy, sortDir), pageSize(size)));
+        }
+        
+        Pageable pageable = buildPageable(page, size, sortBy, sortDir);
+        
+        // Failures are left to GlobalExceptionHandler: 503 with Retry-After when the pool is exhausted, else 500
+        Page<ItemSummary> items;
+        
+        // If search parameters are provided, use complex search
+        if (search != null || category != null || minPrice != null || maxPrice != null || 
+            minStock != null || maxStock != null) {
+            items = itemService.searchItems(search, category, minPrice, maxPrice, minStock, maxStock, pageable);
+        } else {
+            // Otherwise get all items
+            items = itemService.getAllItems(pageable);
+        }
+        
+        PageResponse<ItemSummary> response = PageResponse.from(items);
+        if (facets) {
+            // Counts for the whole filtered result, not just this page
+            response.setFacets(itemService.getItemFacets(
+                    new ItemSearchCriteria(search, category, minPrice, maxPrice, minStock, maxStock)));
         }
+        return ResponseEntity.ok(response);
     }
     
     // Get item by ID
@@ -72,9 +120,8 @@ public class ItemController {
     @PostMapping("/items")
     public ResponseEntity<Item> createItem(@Valid @RequestBody ItemRequest itemRequest) {
         try {
-            // Find or create category
-            Category category = categoryService.getCategoryByName(itemRequest.getCategory())
-                    .orElseGet(() -> categoryService.createCategory(new Category(itemRequest.getCategory(), "")));
+            // Category is resolved (or created) by name in the service
+            Category category = new Category(itemRequest.getCategory(), "");
             
             // Create item
             Item item = new Item();
@@ -86,7 +133,8 @@ public class ItemController {
             
             Item createdItem = itemService.createItem(item);
             return ResponseEntity.status(HttpStatus.CREATED).body(createdItem);
-        } catch (Exception e) {
+        } catch (ResourceAlreadyExistsException | DataIntegrityViolationException e) {
+            // Duplicate name, including one created concurrently; anything else goes to GlobalExceptionHandler
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
@@ -95,9 +143,8 @@ public class ItemController {
     @PutMapping("/items/{id}")
     public ResponseEntity<Item> updateItem(@PathVariable Long id, @Valid @RequestBody ItemRequest itemRequest) {
         try {
-            // Find or create category
-            Category category = categoryService.getCategoryByName(itemRequest.getCategory())
-                    .orElseGet(() -> categoryService.createCategory(new Category(itemRequest.getCategory(), "")));
+            // Category is resolved (or created) by name in the service
+            Category category = new Category(itemRequest.getCategory(), "");
             
             // Create item for update
             Item item = new Item();
@@ -106,36 +153,109 @@ public class ItemController {
             item.setStock(itemRequest.getStock());
             item.setPrice(itemRequest.getPrice());
             item.setDescription(itemRequest.getDescription());
+            item.setVersion(itemRequest.getVersion());
             
             Item updatedItem = itemService.updateItem(id, item);
             return ResponseEntity.ok(updatedItem);
-        } catch (RuntimeException e) {
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
-        } catch (Exception e) {
+        } catch (DataIntegrityViolationException e) {
+            // Renamed to an existing item's name; anything else goes to GlobalExceptionHandler
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).build();
         }
     }
     
+    // Atomically increment or decrement stock
+    @PatchMapping("/items/{id}/stock")
+    public ResponseEntity<StockLevel> adjustStock(@PathVariable Long id, @RequestBody StockAdjustmentRequest request) {
+        if (request.getDelta() == null) {
+            throw new ValidationException("delta", "is required");
+        }
+        Integer stock = itemService.adjustStock(id, request.getDelta());
+        return ResponseEntity.ok(new StockLevel(id, stock));
+    }
+    
+    // Reprice all items matching the filter by a percentage or a fixed amount, in one UPDATE
+    @PatchMapping("/items/bulk/price")
+    public ResponseEntity<BulkUpdateResult> bulkUpdatePrices(@RequestBody BulkPriceRequest request) {
+        int updated = itemService.bulkUpdatePrices(request.toCriteria(), request.getPercent(), request.getAmount());
+        return ResponseEntity.ok(new BulkUpdateResult(updated));
+    }
+    
+    // Set the stock of all items matching the filter, in one UPDATE
+    @PatchMapping("/items/bulk/stock")
+    public ResponseEntity<BulkUpdateResult> bulkSetStock(@RequestBody BulkStockRequest request) {
+        if (request.getStock() == null) {
+            throw new ValidationException("stock", "is required");
+        }
+        int updated = itemService.bulkSetStock(request.toCriteria(), request.getStock());
+        return ResponseEntity.ok(new BulkUpdateResult(updated));
+    }
+    
     // Delete item
     @DeleteMapping("/items/{id}")
     public ResponseEntity<Void> deleteItem(@PathVariable Long id) {
         try {
             itemService.deleteItem(id);
             return ResponseEntity.noContent().build();
-        } catch (RuntimeException e) {
+        } catch (ResourceNotFoundException e) {
+            // Anything else, e.g. an exhausted pool, goes to GlobalExceptionHandler
             return ResponseEntity.notFound().build();
-        } catch (Exception e) {
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
     
     // Get low stock items
     @GetMapping("/items/low-stock")
-    public ResponseEntity<List<Item>> getLowStockItems(@RequestParam(defaultValue = "10") Integer threshold) {
-        List<Item> items = itemService.getLowStockItems(threshold);
+    public ResponseEntity<?> getLowStockItems(
+            @RequestParam(defaultValue = "10") Integer threshold,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(defaultValue = "stock") String sortBy,
+            @RequestParam(defaultValue = "asc") String sortDir) {
+        if (cursor != null) {
+            return ResponseEntity.ok(itemService.getItemsAfter(ItemSearchCriteria.lowStock(threshold),
+                                                               buildCursor(cursor, sortBy, sortDir), pageSize(size)));
+        }
+        List<ItemSummary> items = itemService.getLowStockItems(threshold);
         return ResponseEntity.ok(items);
     }
     
+    // Export the full inventory as NDJSON or CSV, written row by row as it is read
+    @GetMapping("/items/export")
+    public void exportItems(@RequestParam(defaultValue = "ndjson") String format,
+                            HttpServletResponse response) throws IOException {
+        String contentType;
+        if ("ndjson".equalsIgnoreCase(format)) {
+            contentType = "application/x-ndjson";
+        } else if ("csv".equalsIgnoreCase(format)) {
+            contentType = "text/csv";
+        } else {
+            throw new ValidationException("format", "must be 'ndjson' or 'csv'");
+        }
+        
+        response.setContentType(contentType);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+                "attachment; filename=\"items." + format.toLowerCase(Locale.ROOT) + "\"");
+        
+        Writer writer = response.getWriter();
+        ItemExportWriter exporter = "csv".equalsIgnoreCase(format)
+                ? ItemExportWriter.csv(writer)
+                : ItemExportWriter.ndjson(writer, objectMapper);
+        exporter.begin();
+        itemService.exportItems(exporter);
+        writer.flush();
+    }
+    
+    // Bulk import items from a CSV body, upserting by item name
+    @PostMapping(value = "/items/import", consumes = {"text/csv", "text/plain"})
+    public ResponseEntity<ItemImportService.ImportResult> importItems(InputStream body) throws IOException {
+        Reader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        return ResponseEntity.ok(itemImportService.importItems(reader));
+    }
+    
     // Get dashboard statistics
     @GetMapping("/dashboard/stats")
     public ResponseEntity<ItemService.DashboardStats> getDashboardStats() {
@@ -143,6 +263,84 @@ public class ItemController {
         return ResponseEntity.ok(stats);
     }
     
+    // Validate paging parameters and restrict sorting to indexed columns
+    private Pageable buildPageable(int page, int size, String sortBy, String sortDir) {
+        if (page < 0) {
+            throw new ValidationException("page", "must not be negative");
+        }
+        Sort.Direction direction = sortDirection(sortBy, sortDir);
+        
+        // Secondary sort on id keeps page boundaries stable for duplicate values
+        Sort sort = Sort.by(direction, sortBy);
+        if (!"id".equals(sortBy)) {
+            sort = sort.and(Sort.by(direction, "id"));
+        }
+        return PageRequest.of(page, pageSize(size), sort);
+    }
+    
+    // Start a new keyset listing or resume from a continuation token
+    private ItemCursor buildCursor(String cursor, String sortBy, String sortDir) {
+        if (cursor.isEmpty()) {
+            return ItemCursor.first(sortBy, sortDirection(sortBy, sortDir));
+        }
+        ItemCursor position = ItemCursor.decode(cursor);
+        if (!SORTABLE_FIELDS.contains(position.getSortBy())) {
+            throw new ValidationException("cursor", "is not a valid continuation token");
+        }
+        return position;
+    }
+    
+    private Sort.Direction sortDirection(String sortBy, String sortDir) {
+        if (!SORTABLE_FIELDS.contains(sortBy)) {
+            throw new ValidationException("sortBy", "must be one of " + SORTABLE_FIELDS);
+        }
+        return Sort.Direction.fromOptionalString(sortDir)
+                .orElseThrow(() -> new ValidationException("sortDir", "must be 'asc' or 'desc'"));
+    }
+    
+    private int pageSize(int size) {
+        if (size < 1) {
+            throw new ValidationException("size", "must be at least 1");
+        }
+        return Math.min(size, maxPageSize);
+    }
+    
+    // Inner class for paged responses
+    public static class PageResponse<T> {
+        private final List<T> content;
+        private final int page;
+        private final int size;
+        private final long totalElements;
+        private final int totalPages;
+        private final boolean last;
+        
+        @JsonInclude(JsonInclude.Include.NON_NULL)
+        private ItemService.ItemFacets facets;
+        
+        public PageResponse(List<T> content, int page, int size, long totalElements, int totalPages, boolean last) {
+            this.content = content;
+            this.page = page;
+            this.size = size;
+            this.totalElements = totalElements;
+            this.totalPages = totalPages;
+            this.last = last;
+        }
+        
+        public static <T> PageResponse<T> from(Page<T> page) {
+            return new PageResponse<>(page.getContent(), page.getNumber(), page.getSize(),
+                    page.getTotalElements(), page.getTotalPages(), page.isLast());
+        }
+        
+        public List<T> getContent() { return content; }
+        public int getPage() { return page; }
+        public int getSize() { return size; }
+        public long getTotalElements() { return totalElements; }
+        public int getTotalPages() { return totalPages; }
+        public boolean isLast() { return last; }
+        public ItemService.ItemFacets getFacets() { return facets; }
+        public void setFacets(ItemService.ItemFacets facets) { this.facets = facets; }
+    }
+    
     // Inner class for request DTO
     public static class ItemRequest {
         private String name;
@@ -150,6 +348,7 @@ public class ItemController {
         private Integer stock;
         private BigDecimal price;
         private String description;
+        private Long version;
         
         // Constructors
         public ItemRequest() {}
@@ -169,5 +368,91 @@ public class ItemController {
         
         public String getDescription() { return description; }
         public void setDescription(String description) { this.description = description; }
+        
+        public Long getVersion() { return version; }
+        public void setVersion(Long version) { this.version = version; }
+    }
+    
+    // Inner class for stock adjustment requests
+    public static class StockAdjustmentRequest {
+        private Integer delta;
+        
+        public StockAdjustmentRequest() {}
+        
+        public Integer getDelta() { return delta; }
+        public void setDelta(Integer delta) { this.delta = delta; }
+    }
+    
+    // Inner class for stock levels after an adjustment
+    public static class StockLevel {
+        private final Long itemId;
+        private final Integer stock;
+        
+        public StockLevel(Long itemId, Integer stock) {
+            this.itemId = itemId;
+            this.stock = stock;
+        }
+        
+        public Long getItemId() { return itemId; }
+        public Integer getStock() { return stock; }
+    }
+    
+    // Inner class for the filter of bulk updates; fields left null match every item
+    public static class BulkFilter {
+        private String category;
+        private BigDecimal minPrice;
+        private BigDecimal maxPrice;
+        private Integer minStock;
+        private Integer maxStock;
+        
+        public String getCategory() { return category; }
+        public void setCategory(String category) { this.category = category; }
+        
+        public BigDecimal getMinPrice() { return minPrice; }
+        public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+        
+        public BigDecimal getMaxPrice() { return maxPrice; }
+        public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+        
+        public Integer getMinStock() { return minStock; }
+        public void setMinStock(Integer minStock) { this.minStock = minStock; }
+        
+        public Integer getMaxStock() { return maxStock; }
+        public void setMaxStock(Integer maxStock) { this.maxStock = maxStock; }
+        
+        ItemSearchCriteria toCriteria() {
+            return new ItemSearchCriteria(null, category, minPrice, maxPrice, minStock, maxStock);
+        }
+    }
+    
+    // Inner class for bulk price changes: percent (e.g. 8 or -12.5) or amount (e.g. 0.50), not both
+    public static class BulkPriceRequest extends BulkFilter {
+        private BigDecimal percent;
+        private BigDecimal amount;
+        
+        public BigDecimal getPercent() { return percent; }
+        public void setPercent(BigDecimal percent) { this.percent = percent; }
+        
+        public BigDecimal getAmount() { return amount; }
+        public void setAmount(BigDecimal amount) { this.amount = amount; }
+    }
+    
+    // Inner class for bulk stock resets
+    public static class BulkStockRequest extends BulkFilter {
+        private Integer stock;
+        
+        public Integer getStock() { return stock; }
+        public void setStock(Integer stock) { this.stock = stock; }
+    }
+    
+    // Inner class for the number of items a bulk update changed
+    public static class BulkUpdateResult {
+        private final int updated;
+        
+        public BulkUpdateResult(int updated) {
+            this.updated = updated;
+        }
+        
+        public int getUpdated() { return updated; }
     }
 }
@@ -0,0 +1,113 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.model.Item;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.function.Consumer;
+
+// Writes one flat record per item as it arrives, in NDJSON or CSV
+abstract class ItemExportWriter implements Consumer<Item> {
+    
+    protected final Writer writer;
+    
+    protected ItemExportWriter(Writer writer) {
+        this.writer = writer;
+    }
+    
+    static ItemExportWriter ndjson(Writer writer, ObjectMapper objectMapper) {
+        return new NdjsonWriter(writer, objectMapper);
+    }
+    
+    static ItemExportWriter csv(Writer writer) {
+        return new CsvWriter(writer);
+    }
+    
+    // Emit any header before the first row
+    void begin() throws IOException {
+    }
+    
+    @Override
+    public void accept(Item item) {
+        try {
+            write(item);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    protected abstract void write(Item item) throws IOException;
+    
+    private static class NdjsonWriter extends ItemExportWriter {
+        private final ObjectMapper objectMapper;
+        
+        NdjsonWriter(Writer writer, ObjectMapper objectMapper) {
+            super(writer);
+            this.objectMapper = objectMapper;
+        }
+        
+        @Override
+        protected void write(Item item) throws IOException {
+            JsonGenerator json = objectMapper.getFactory().createGenerator(writer);
+            json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            json.writeStartObject();
+            json.writeNumberField("id", item.getId());
+            json.writeStringField("name", item.getName());
+            json.writeStringField("category", item.getCategory().getName());
+            json.writeNumberField("stock", item.getStock());
+            json.writeNumberField("price", item.getPrice());
+            json.writeStringField("description", item.getDescription());
+            json.writeStringField("createdAt", String.valueOf(item.getCreatedAt()));
+            json.writeStringField("updatedAt", String.valueOf(item.getUpdatedAt()));
+            json.writeEndObject();
+            json.close();
+            writer.write('\n');
+        }
+    }
+    
+    private static class CsvWriter extends ItemExportWriter {
+        CsvWriter(Writer writer) {
+            super(writer);
+        }
+        
+        @Override
+        void begin() throws IOException {
+            writer.write("id,name,category,stock,price,description,createdAt,updatedAt\r\n");
+        }
+        
+        @Override
+        protected void write(Item item) throws IOException {
+            writer.write(String.valueOf(item.getId()));
+            writer.write(',');
+            writer.write(escape(item.getName()));
+            writer.write(',');
+            writer.write(escape(item.getCategory().getName()));
+            writer.write(',');
+            writer.write(String.valueOf(item.getStock()));
+            writer.write(',');
+            writer.write(item.getPrice().toPlainString());
+            writer.write(',');
+            writer.write(escape(item.getDescription()));
+            writer.write(',');
+            writer.write(String.valueOf(item.getCreatedAt()));
+            writer.write(',');
+            writer.write(String.valueOf(item.getUpdatedAt()));
+            writer.write("\r\n");
+        }
+        
+        // RFC 4180 quoting for fields containing separators, quotes or line breaks
+        private static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0
+                    && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return value;
+            }
+            return '"' + value.replace("\"", "\"\"") + '"';
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.repository.CategorySummary;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.repository.ReactiveCatalogRepository;
+import com.sweetshop.service.HotStockService;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Read-only catalog endpoints of the reactive API. Results are streamed as they are read: a JSON array
+// by default, or one object per line with Accept: application/x-ndjson
+public class ReactiveCatalogHandler {
+    
+    private final ReactiveCatalogRepository repository;
+    private final HotStockService hotStockService;
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    
+    public ReactiveCatalogHandler(ReactiveCatalogRepository repository, HotStockService hotStockService) {
+        this.repository = repository;
+        this.hotStockService = hotStockService;
+    }
+    
+    public int getActiveStreams() {
+        return activeStreams.get();
+    }
+    
+    // GET /api/items?category=&limit=
+    public Mono<ServerResponse> items(ServerRequest request) {
+        Integer limit;
+        try {
+            limit = intParam(request, "limit", null);
+        } catch (NumberFormatException e) {
+            return badRequest(request, "limit must be a number");
+        }
+        if (limit != null && limit < 1) {
+            return badRequest(request, "limit must be at least 1");
+        }
+        Flux<ItemSummary> items = withLiveStock(repository.findItems(request.queryParam("category").orElse(null)));
+        return stream(request, limit != null ? items.take(limit) : items, ItemSummary.class);
+    }
+    
+    // GET /api/items/low-stock?threshold=
+    public Mono<ServerResponse> lowStockItems(ServerRequest request) {
+        int threshold;
+        try {
+            threshold = intParam(request, "threshold", 10);
+        } catch (NumberFormatException e) {
+            return badRequest(request, "threshold must be a number");
+        }
+        return stream(request, withLiveStock(repository.findLowStockItems(threshold)), ItemSummary.class);
+    }
+    
+    // GET /api/categories
+    public Mono<ServerResponse> categories(ServerRequest request) {
+        return stream(request, repository.findCategories(), CategorySummary.class);
+    }
+    
+    private <T> Mono<ServerResponse> stream(ServerRequest request, Flux<T> body, Class<T> type) {
+        boolean ndjson = request.headers().accept().stream()
+                .anyMatch(MediaType.APPLICATION_NDJSON::equalsTypeAndSubtype);
+        Flux<T> tracked = body
+                .doOnSubscribe(subscription -> activeStreams.incrementAndGet())
+                .doFinally(signal -> activeStreams.decrementAndGet());
+        return ServerResponse.ok()
+                .contentType(ndjson ? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON)
+                .body(tracked, type);
+    }
+    
+    // Hot items report their live in-memory stock, as on the servlet endpoints. Safe to merge into the
+    // emitted rows: the repository seeks the next page from keys it copied when the page was read.
+    private Flux<ItemSummary> withLiveStock(Flux<ItemSummary> items) {
+        return items.doOnNext(hotStockService::mergePending);
+    }
+    
+    private Integer intParam(ServerRequest request, String name, Integer defaultValue) {
+        return request.queryParam(name).map(Integer::valueOf).orElse(defaultValue);
+    }
+    
+    // Same body shape as GlobalExceptionHandler.ErrorResponse
+    private Mono<ServerResponse> badRequest(ServerRequest request, String message) {
+        Map<String, Object> error = new LinkedHashMap<>();
+        error.put("status", 400);
+        error.put("message", message);
+        error.put("timestamp", LocalDateTime.now());
+        error.put("path", "uri=" + request.path());
+        return ServerResponse.badRequest().contentType(MediaType.APPLICATION_JSON).bodyValue(error);
+    }
+}
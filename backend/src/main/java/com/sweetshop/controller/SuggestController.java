@@ -0,0 +1,29 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.service.SuggestService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api")
+public class SuggestController {
+    
+    @Autowired
+    private SuggestService suggestService;
+    
+    // Type-ahead over item and category names, best matches first
+    @GetMapping("/suggest")
+    public ResponseEntity<SuggestService.Suggestions> suggest(@RequestParam(required = false) String q,
+                                                              @RequestParam(required = false) Integer limit) {
+        if (q == null || q.isBlank()) {
+            throw new ValidationException("q", "is required");
+        }
+        if (limit != null && limit < 1) {
+            throw new ValidationException("limit", "must be at least 1");
+        }
+        int size = limit != null ? limit : suggestService.getMaxResults();
+        return ResponseEntity.ok(suggestService.suggest(q, size));
+    }
+}
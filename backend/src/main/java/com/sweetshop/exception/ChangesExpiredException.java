@@ -0,0 +1,11 @@
+package com.sweetshop.exception;
+
+// The requested position in the change log has been compacted away; the consumer must reload
+public class ChangesExpiredException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    public ChangesExpiredException(long since, long oldestRetained) {
+        super("Changes after sequence " + since + " are no longer retained (oldest is " + oldestRetained +
+              "); reload the catalog and resume from the current position");
+    }
+}
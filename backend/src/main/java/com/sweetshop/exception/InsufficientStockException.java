@@ -0,0 +1,43 @@
+package com.sweetshop.exception;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class InsufficientStockException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+    
+    private final List<Shortage> shortages;
+    
+    public InsufficientStockException(Long itemId, int requested) {
+        super("Insufficient stock for item with id: " + itemId + " (requested " + requested + ")");
+        this.shortages = List.of();
+    }
+    
+    public InsufficientStockException(List<Shortage> shortages) {
+        super("Insufficient stock for " + shortages.size() + " line(s)");
+        this.shortages = shortages;
+    }
+    
+    public List<Shortage> getShortages() {
+        return shortages;
+    }
+    
+    // A requested line that could not be fulfilled
+    public static class Shortage implements Serializable {
+        private static final long serialVersionUID = 1L;
+        
+        private final Long itemId;
+        private final int requested;
+        private final int available;
+        
+        public Shortage(Long itemId, int requested, int available) {
+            this.itemId = itemId;
+            this.requested = requested;
+            this.available = available;
+        }
+        
+        public Long getItemId() { return itemId; }
+        public int getRequested() { return requested; }
+        public int getAvailable() { return available; }
+    }
+}
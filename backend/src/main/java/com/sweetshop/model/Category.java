@@ -11,8 +11,10 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 @Table(name = "categories")
 public class Category {
     
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "category_seq")
+    @SequenceGenerator(name = "category_seq", sequenceName = "categories_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Category name is required")
@@ -1,5 +1,6 @@
 package com.sweetshop.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import java.math.BigDecimal;
@@ -9,8 +10,10 @@ import java.time.LocalDateTime;
 @Table(name = "items")
 public class Item {
     
+    // Pooled sequence ids let Hibernate batch inserts; IDENTITY forces one round trip per row
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "item_seq")
+    @SequenceGenerator(name = "item_seq", sequenceName = "items_seq", allocationSize = 50)
     private Long id;
     
     @NotBlank(message = "Item name is required")
@@ -18,8 +21,11 @@ public class Item {
     @Column(nullable = false, length = 100)
     private String name;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    // Lazy: list endpoints read projections, and single-item reads fetch-join the category.
+    // itemCount would load the whole category's item list for every serialized item
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "category_id", nullable = false)
+    @JsonIgnoreProperties({"itemCount", "hibernateLazyInitializer", "handler"})
     private Category category;
     
     @NotNull(message = "Stock quantity is required")
@@ -38,6 +44,11 @@ public class Item {
     @Column(nullable = false, length = 500)
     private String description;
     
+    // Optimistic lock for full updates; atomic stock adjustments bump it too
+    @Version
+    @Column(nullable = false)
+    private Long version;
+    
     @Column(name = "created_at", nullable = false, updatable = false)
     private LocalDateTime createdAt;
     
@@ -108,6 +119,14 @@ public class Item {
         this.description = description;
     }
     
+    public Long getVersion() {
+        return version;
+    }
+    
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -138,6 +157,7 @@ public class Item {
                 ", stock=" + stock +
                 ", price=" + price +
                 ", description='" + description + '\'' +
+                ", version=" + version +
                 ", createdAt=" + createdAt +
                 ", updatedAt=" + updatedAt +
                 '}';
@@ -6,6 +6,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,21 +16,45 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     // Find category by name (case-insensitive)
     Optional<Category> findByNameIgnoreCase(String name);
     
+    // Find categories by a batch of lower-cased names
+    @Query("SELECT c FROM Category c WHERE LOWER(c.name) IN :names")
+    List<Category> findByLowerNameIn(@Param("names") Collection<String> names);
+    
     // Check if category exists by name
     boolean existsByNameIgnoreCase(String name);
     
-    // Find categories with items
-    @Query("SELECT DISTINCT c FROM Category c JOIN c.items i")
-    List<Category> findCategoriesWithItems();
+    // Category rows with item counts for the list endpoints, one grouped query each
+    @Query(CategorySummary.SELECT + "FROM Category c LEFT JOIN c.items i" + CategorySummary.GROUP_BY + " ORDER BY c.id")
+    List<CategorySummary> findAllSummaries();
+    
+    @Query(CategorySummary.SELECT + "FROM Category c LEFT JOIN c.items i WHERE c.id = :id" + CategorySummary.GROUP_BY)
+    Optional<CategorySummary> findSummaryById(@Param("id") Long id);
+    
+    @Query(CategorySummary.SELECT + "FROM Category c LEFT JOIN c.items i WHERE LOWER(c.name) = LOWER(:name)" +
+           CategorySummary.GROUP_BY)
+    Optional<CategorySummary> findSummaryByNameIgnoreCase(@Param("name") String name);
+    
+    @Query(CategorySummary.SELECT + "FROM Category c LEFT JOIN c.items i WHERE c.id IN :ids" + CategorySummary.GROUP_BY)
+    List<CategorySummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Find categories with items; the inner join drops empty categories
+    @Query(CategorySummary.SELECT + "FROM Category c JOIN c.items i" + CategorySummary.GROUP_BY + " ORDER BY c.id")
+    List<CategorySummary> findSummariesWithItems();
     
     // Get category statistics
     @Query("SELECT c.name, COUNT(i) as itemCount, SUM(i.stock) as totalStock, SUM(i.stock * i.price) as totalValue " +
            "FROM Category c LEFT JOIN c.items i GROUP BY c.id, c.name")
     List<Object[]> getCategoryStatistics();
     
+    // Get per-category rollups keyed by id (id, name, item count, total stock, total value)
+    @Query("SELECT c.id, c.name, COUNT(i), COALESCE(SUM(i.stock), 0), COALESCE(SUM(i.stock * i.price), 0) " +
+           "FROM Category c LEFT JOIN c.items i GROUP BY c.id, c.name")
+    List<Object[]> getCategoryRollups();
+    
     // Find categories by name containing (case-insensitive)
-    @Query("SELECT c FROM Category c WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Category> findByNameContainingIgnoreCase(@Param("name") String name);
+    @Query(CategorySummary.SELECT + "FROM Category c LEFT JOIN c.items i " +
+           "WHERE LOWER(c.name) LIKE LOWER(CONCAT('%', :name, '%'))" + CategorySummary.GROUP_BY + " ORDER BY c.id")
+    List<CategorySummary> findSummariesByNameContaining(@Param("name") String name);
     
     // Get all category names
     @Query("SELECT c.name FROM Category c ORDER BY c.name")
@@ -0,0 +1,38 @@
+package com.sweetshop.repository;
+
+import java.time.LocalDateTime;
+
+// Read-only row for category endpoints; the item count comes from a grouped join instead of
+// loading each category's item collection
+public class CategorySummary {
+    
+    // Constructor expression shared by the JPQL queries; alias the category c and its items i,
+    // and close the query with GROUP_BY
+    public static final String SELECT = "SELECT new com.sweetshop.repository.CategorySummary(" +
+            "c.id, c.name, c.description, c.createdAt, c.updatedAt, COUNT(i)) ";
+    public static final String GROUP_BY = " GROUP BY c.id, c.name, c.description, c.createdAt, c.updatedAt";
+    
+    private final Long id;
+    private final String name;
+    private final String description;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    private final long itemCount;
+    
+    public CategorySummary(Long id, String name, String description,
+                           LocalDateTime createdAt, LocalDateTime updatedAt, long itemCount) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.itemCount = itemCount;
+    }
+    
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public long getItemCount() { return itemCount; }
+}
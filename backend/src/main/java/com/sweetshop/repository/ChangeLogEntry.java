@@ -0,0 +1,30 @@
+package com.sweetshop.repository;
+
+import java.time.LocalDateTime;
+
+// One row of the change log: which item or category was written or deleted, and when
+public class ChangeLogEntry {
+    
+    public static final String ITEM = "item";
+    public static final String CATEGORY = "category";
+    
+    private final long seq;
+    private final String entityType;
+    private final long entityId;
+    private final boolean deleted;
+    private final LocalDateTime changedAt;
+    
+    public ChangeLogEntry(long seq, String entityType, long entityId, boolean deleted, LocalDateTime changedAt) {
+        this.seq = seq;
+        this.entityType = entityType;
+        this.entityId = entityId;
+        this.deleted = deleted;
+        this.changedAt = changedAt;
+    }
+    
+    public long getSeq() { return seq; }
+    public String getEntityType() { return entityType; }
+    public long getEntityId() { return entityId; }
+    public boolean isDeleted() { return deleted; }
+    public LocalDateTime getChangedAt() { return changedAt; }
+}
@@ -0,0 +1,94 @@
+package com.sweetshop.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Plain JDBC over change_log: the database assigns seq, so batched inserts stay in commit-local order
+// and run on the connection of the surrounding JPA transaction
+@Repository
+public class ChangeLogRepository {
+    
+    private static final String INSERT =
+            "INSERT INTO change_log (entity_type, entity_id, deleted, changed_at) VALUES (?, ?, ?, ?)";
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    // Returns the highest seq assigned to the new rows, read back from the batch's generated keys
+    public long append(String entityType, Collection<Long> entityIds, boolean deleted) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Long> ids = new ArrayList<>(entityIds);
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(connection -> connection.prepareStatement(INSERT, new String[] {"seq"}),
+                                 new BatchPreparedStatementSetter() {
+                                     @Override
+                                     public void setValues(PreparedStatement ps, int i) throws SQLException {
+                                         ps.setString(1, entityType);
+                                         ps.setLong(2, ids.get(i));
+                                         ps.setBoolean(3, deleted);
+                                         ps.setTimestamp(4, now);
+                                     }
+                                     
+                                     @Override
+                                     public int getBatchSize() {
+                                         return ids.size();
+                                     }
+                                 }, keys);
+        long maxSeq = 0;
+        for (Map<String, Object> row : keys.getKeyList()) {
+            for (Object seq : row.values()) {
+                maxSeq = Math.max(maxSeq, ((Number) seq).longValue());
+            }
+        }
+        return maxSeq;
+    }
+    
+    // Entries after the given sequence number, oldest first
+    public List<ChangeLogEntry> findAfter(long seq, int limit) {
+        return jdbcTemplate.query(
+                "SELECT seq, entity_type, entity_id, deleted, changed_at FROM change_log " +
+                "WHERE seq > ? ORDER BY seq LIMIT ?",
+                (rs, rowNum) -> new ChangeLogEntry(rs.getLong(1), rs.getString(2), rs.getLong(3),
+                        rs.getBoolean(4), rs.getTimestamp(5).toLocalDateTime()),
+                seq, limit);
+    }
+    
+    // Lowest retained sequence number, or null when the log is empty
+    public Long findMinSeq() {
+        return jdbcTemplate.queryForObject("SELECT MIN(seq) FROM change_log", Long.class);
+    }
+    
+    public long findMaxSeq() {
+        Long max = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM change_log", Long.class);
+        return max != null ? max : 0L;
+    }
+    
+    // Delete entries older than the cutoff, always keeping the newest one so the log's position survives
+    public int deleteOlderThan(LocalDateTime cutoff, int batchSize) {
+        Long keep = jdbcTemplate.queryForObject("SELECT MAX(seq) FROM change_log", Long.class);
+        if (keep == null) {
+            return 0;
+        }
+        Long upTo = jdbcTemplate.queryForObject(
+                "SELECT MAX(seq) FROM (SELECT seq FROM change_log WHERE changed_at < ? AND seq < ? " +
+                "ORDER BY seq LIMIT ?) oldest",
+                Long.class, Timestamp.valueOf(cutoff), keep, batchSize);
+        if (upTo == null) {
+            return 0;
+        }
+        return jdbcTemplate.update("DELETE FROM change_log WHERE seq <= ?", upTo);
+    }
+}
@@ -4,59 +4,63 @@ import com.sweetshop.model.Item;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
+    
+    int EXPORT_FETCH_SIZE = 500;
     
     // Find items by category name
-    @Query("SELECT i FROM Item i JOIN i.category c WHERE c.name = :categoryName")
-    List<Item> findByCategoryName(@Param("categoryName") String categoryName);
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE c.name = :categoryName")
+    List<ItemSummary> findByCategoryName(@Param("categoryName") String categoryName);
     
     // Find items by category name with pagination
-    @Query("SELECT i FROM Item i JOIN i.category c WHERE c.name = :categoryName")
-    Page<Item> findByCategoryName(@Param("categoryName") String categoryName, Pageable pageable);
+    @Query(value = ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE c.name = :categoryName",
+           countQuery = "SELECT COUNT(i) FROM Item i JOIN i.category c WHERE c.name = :categoryName")
+    Page<ItemSummary> findByCategoryName(@Param("categoryName") String categoryName, Pageable pageable);
     
     // Search items by name (case-insensitive)
-    @Query("SELECT i FROM Item i WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
-    List<Item> findByNameContainingIgnoreCase(@Param("name") String name);
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    List<ItemSummary> findByNameContainingIgnoreCase(@Param("name") String name);
     
     // Search items by name with pagination
-    @Query("SELECT i FROM Item i WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
-    Page<Item> findByNameContainingIgnoreCase(@Param("name") String name, Pageable pageable);
+    @Query(value = ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))",
+           countQuery = "SELECT COUNT(i) FROM Item i WHERE LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))")
+    Page<ItemSummary> findByNameContainingIgnoreCase(@Param("name") String name, Pageable pageable);
     
     // Find items with low stock (below threshold)
-    @Query("SELECT i FROM Item i WHERE i.stock < :threshold")
-    List<Item> findLowStockItems(@Param("threshold") Integer threshold);
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE i.stock < :threshold ORDER BY i.stock, i.id")
+    List<ItemSummary> findLowStockItems(@Param("threshold") Integer threshold);
     
     // Find items by price range
-    @Query("SELECT i FROM Item i WHERE i.price BETWEEN :minPrice AND :maxPrice")
-    List<Item> findByPriceRange(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE i.price BETWEEN :minPrice AND :maxPrice")
+    List<ItemSummary> findByPriceRange(@Param("minPrice") BigDecimal minPrice, @Param("maxPrice") BigDecimal maxPrice);
     
     // Find items by stock range
-    @Query("SELECT i FROM Item i WHERE i.stock BETWEEN :minStock AND :maxStock")
-    List<Item> findByStockRange(@Param("minStock") Integer minStock, @Param("maxStock") Integer maxStock);
-    
-    // Complex search with multiple criteria
-    @Query("SELECT i FROM Item i WHERE " +
-           "(:name IS NULL OR LOWER(i.name) LIKE LOWER(CONCAT('%', :name, '%'))) AND " +
-           "(:categoryName IS NULL OR i.category.name = :categoryName) AND " +
-           "(:minPrice IS NULL OR i.price >= :minPrice) AND " +
-           "(:maxPrice IS NULL OR i.price <= :maxPrice) AND " +
-           "(:minStock IS NULL OR i.stock >= :minStock) AND " +
-           "(:maxStock IS NULL OR i.stock <= :maxStock)")
-    List<Item> findByMultipleCriteria(@Param("name") String name,
-                                     @Param("categoryName") String categoryName,
-                                     @Param("minPrice") BigDecimal minPrice,
-                                     @Param("maxPrice") BigDecimal maxPrice,
-                                     @Param("minStock") Integer minStock,
-                                     @Param("maxStock") Integer maxStock);
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE i.stock BETWEEN :minStock AND :maxStock")
+    List<ItemSummary> findByStockRange(@Param("minStock") Integer minStock, @Param("maxStock") Integer maxStock);
+    
+    @Query("SELECT i.id FROM Item i WHERE i.category.id = :categoryId")
+    List<Long> findIdsByCategoryId(@Param("categoryId") Long categoryId);
+    
+    // Current rows for a batch of ids, e.g. the items named by a page of the change log
+    @Query(ItemSummary.SELECT + "FROM Item i JOIN i.category c WHERE i.id IN :ids")
+    List<ItemSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
     
     // Get total count of items
     @Query("SELECT COUNT(i) FROM Item i")
@@ -70,9 +74,55 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
     @Query("SELECT SUM(i.stock) FROM Item i")
     Long getTotalStockQuantity();
     
+    // Stream every item with its category for export; rows are fetched from the cursor in batches
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT i FROM Item i JOIN FETCH i.category ORDER BY i.id")
+    Stream<Item> streamAllWithCategory();
+    
+    // Count items with stock below the threshold
+    long countByStockLessThan(Integer threshold);
+    
+    // Find items by a batch of lower-cased names, whatever the column's collation
+    @Query("SELECT i FROM Item i WHERE LOWER(i.name) IN :names")
+    List<Item> findByLowerNameIn(@Param("names") Collection<String> names);
+    
+    // Atomically adjust stock; only rows whose stock lies in [minStock, maxStock] are changed, so the caller
+    // can reject results below zero or past the column range without the sum itself overflowing
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Item i SET i.stock = i.stock + :delta, i.version = i.version + 1, " +
+           "i.updatedAt = CURRENT_TIMESTAMP WHERE i.id = :id AND i.stock BETWEEN :minStock AND :maxStock")
+    int adjustStock(@Param("id") Long id, @Param("delta") int delta,
+                    @Param("minStock") int minStock, @Param("maxStock") int maxStock);
+    
+    // Lock a set of items for update; ordering by id makes concurrent lockers acquire rows in the same order
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT i FROM Item i WHERE i.id IN :ids ORDER BY i.id")
+    List<Item> findAllByIdForUpdate(@Param("ids") Collection<Long> ids);
+    
+    // Get the aggregate-relevant columns of one item (stock, price, category id, category name)
+    @Query("SELECT i.stock, i.price, c.id, c.name FROM Item i JOIN i.category c WHERE i.id = :id")
+    List<Object[]> findStockState(@Param("id") Long id);
+    
+    // Stream the searchable text of every item to build the in-memory name index
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT i.id, i.name, i.description FROM Item i")
+    Stream<Object[]> streamSearchableText();
+    
+    // Stream the fields the suggest index ranks and groups by
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE))
+    @Query("SELECT i.id, i.name, i.stock, c.id FROM Item i JOIN i.category c")
+    Stream<Object[]> streamSuggestFields();
+    
+    // Single item with its category in one statement
+    @Query("SELECT i FROM Item i JOIN FETCH i.category WHERE i.id = :id")
+    Optional<Item> findWithCategoryById(@Param("id") Long id);
+    
     // Check if item exists by name
     boolean existsByName(String name);
     
+    // Check whether a category has any items (one LIMIT 1 query instead of loading the collection)
+    boolean existsByCategoryId(Long categoryId);
+    
     // Find item by name (exact match)
     Optional<Item> findByName(String name);
 }
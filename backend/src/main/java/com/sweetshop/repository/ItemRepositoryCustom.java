@@ -0,0 +1,28 @@
+package com.sweetshop.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface ItemRepositoryCustom {
+    
+    // Keyset (seek) page: rows ordered by (sortField, id) strictly after the given position
+    List<ItemSummary> findByKeyset(ItemSearchCriteria criteria, String sortField, boolean ascending,
+                                   Comparable<?> lastValue, Long lastId, int limit);
+    
+    // Offset page with only the supplied filters applied
+    Page<ItemSummary> findByCriteria(ItemSearchCriteria criteria, Pageable pageable);
+    
+    // One grouped pass over the filtered items: (category id, category name, price band, stock band, count).
+    // Bands are indexes into the ascending bounds; band i holds values below bounds[i], the last band the rest.
+    List<Object[]> countFacets(ItemSearchCriteria criteria, List<BigDecimal> priceBounds, List<Integer> stockBounds);
+    
+    // Lock the filtered items in id order and return (id, stock, price, category id, category name) of each
+    List<Object[]> lockForBulkUpdate(ItemSearchCriteria criteria);
+    
+    // One set-based UPDATE of the filtered items: price raised by pricePercent (rounded to cents) or
+    // shifted by priceAmount, stock set to stock; null leaves the column alone. Returns the rows changed.
+    int bulkUpdate(ItemSearchCriteria criteria, BigDecimal pricePercent, BigDecimal priceAmount, Integer stock);
+}
@@ -0,0 +1,219 @@
+package com.sweetshop.repository;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.CompoundSelection;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.TypedQuery;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.data.support.PageableExecutionUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public List<ItemSummary> findByKeyset(ItemSearchCriteria criteria, String sortField, boolean ascending,
+                                          Comparable<?> lastValue, Long lastId, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ItemSummary> query = cb.createQuery(ItemSummary.class);
+        Root<Item> item = query.from(Item.class);
+        
+        List<Predicate> predicates = new ArrayList<>(criteriaPredicates(cb, item, criteria));
+        
+        Path<Comparable> sortPath = item.get(sortField);
+        Path<Long> idPath = item.get("id");
+        
+        // Seek predicate: (sort > v) OR (sort = v AND id > lastId), mirrored for descending order
+        if (lastId != null) {
+            Predicate afterId = ascending ? cb.greaterThan(idPath, lastId) : cb.lessThan(idPath, lastId);
+            if ("id".equals(sortField)) {
+                predicates.add(afterId);
+            } else {
+                Comparable value = lastValue;
+                Predicate afterValue = ascending ? cb.greaterThan(sortPath, value) : cb.lessThan(sortPath, value);
+                predicates.add(cb.or(afterValue, cb.and(cb.equal(sortPath, value), afterId)));
+            }
+        }
+        
+        query.select(summary(cb, item)).where(predicates.toArray(new Predicate[0]));
+        if ("id".equals(sortField)) {
+            query.orderBy(ascending ? cb.asc(idPath) : cb.desc(idPath));
+        } else {
+            query.orderBy(ascending ? cb.asc(sortPath) : cb.desc(sortPath),
+                          ascending ? cb.asc(idPath) : cb.desc(idPath));
+        }
+        
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+    
+    @Override
+    public Page<ItemSummary> findByCriteria(ItemSearchCriteria criteria, Pageable pageable) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<ItemSummary> query = cb.createQuery(ItemSummary.class);
+        Root<Item> item = query.from(Item.class);
+        query.select(summary(cb, item))
+             .where(criteriaPredicates(cb, item, criteria).toArray(new Predicate[0]))
+             .orderBy(QueryUtils.toOrders(pageable.getSort(), item, cb));
+        
+        TypedQuery<ItemSummary> typedQuery = entityManager.createQuery(query);
+        if (pageable.isPaged()) {
+            typedQuery.setFirstResult((int) pageable.getOffset())
+                      .setMaxResults(pageable.getPageSize());
+        }
+        List<ItemSummary> content = typedQuery.getResultList();
+        
+        // The count query only runs when the page alone cannot tell the total
+        return PageableExecutionUtils.getPage(content, pageable, () -> {
+            CriteriaQuery<Long> countQuery = cb.createQuery(Long.class);
+            Root<Item> countRoot = countQuery.from(Item.class);
+            countQuery.select(cb.count(countRoot))
+                      .where(criteriaPredicates(cb, countRoot, criteria).toArray(new Predicate[0]));
+            return entityManager.createQuery(countQuery).getSingleResult();
+        });
+    }
+    
+    @Override
+    public List<Object[]> countFacets(ItemSearchCriteria criteria, List<BigDecimal> priceBounds, List<Integer> stockBounds) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Item> item = query.from(Item.class);
+        Join<Item, Category> category = item.join("category");
+        Expression<Integer> priceBand = band(cb, item.get("price"), priceBounds);
+        Expression<Integer> stockBand = band(cb, item.get("stock"), stockBounds);
+        query.multiselect(category.get("id"), category.get("name"), priceBand, stockBand, cb.count(item))
+             .where(criteriaPredicates(cb, item, criteria).toArray(new Predicate[0]))
+             .groupBy(category.get("id"), category.get("name"), priceBand, stockBand);
+        return entityManager.createQuery(query).getResultList();
+    }
+    
+    @Override
+    public List<Object[]> lockForBulkUpdate(ItemSearchCriteria criteria) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Item> item = query.from(Item.class);
+        Join<Item, Category> category = item.join("category");
+        query.multiselect(item.get("id"), item.get("stock"), item.get("price"), category.get("id"), category.get("name"))
+             .where(criteriaPredicates(cb, item, criteria).toArray(new Predicate[0]))
+             .orderBy(cb.asc(item.get("id")));
+        return entityManager.createQuery(query)
+                .setLockMode(LockModeType.PESSIMISTIC_WRITE)
+                .getResultList();
+    }
+    
+    @Override
+    @SuppressWarnings("unchecked")
+    public int bulkUpdate(ItemSearchCriteria criteria, BigDecimal pricePercent, BigDecimal priceAmount, Integer stock) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<Item> update = cb.createCriteriaUpdate(Item.class);
+        Root<Item> item = update.from(Item.class);
+        Path<BigDecimal> price = item.get("price");
+        if (pricePercent != null) {
+            // Bind parameters take the column's type, numeric(12,2): the percent fits it exactly, a factor
+            // such as 1.125 would not
+            Expression<BigDecimal> change =
+                    (Expression<BigDecimal>) (Expression<?>) cb.quot(cb.prod(price, pricePercent), 100);
+            update.set(price, cb.round(cb.sum(price, change), 2));
+        } else if (priceAmount != null) {
+            update.set(price, cb.sum(price, priceAmount));
+        }
+        if (stock != null) {
+            update.set(item.<Integer>get("stock"), stock);
+        }
+        Path<Long> version = item.get("version");
+        update.set(version, cb.sum(version, 1L))
+              .set(item.<LocalDateTime>get("updatedAt"), cb.localDateTime());
+        // Hibernate cannot copy an UPDATE whose WHERE clause was set to nothing; leave it unset instead
+        List<Predicate> predicates = criteriaPredicates(cb, item, criteria);
+        if (!predicates.isEmpty()) {
+            update.where(predicates.toArray(new Predicate[0]));
+        }
+        
+        // Same as @Modifying(flushAutomatically, clearAutomatically): managed items would keep stale values
+        entityManager.flush();
+        int updated = entityManager.createQuery(update).executeUpdate();
+        entityManager.clear();
+        return updated;
+    }
+    
+    // Only the columns the list endpoints return, with the category's id and name from one join
+    private CompoundSelection<ItemSummary> summary(CriteriaBuilder cb, Root<Item> item) {
+        Join<Item, Category> category = item.join("category");
+        return cb.construct(ItemSummary.class,
+                item.get("id"), item.get("name"), category.get("id"), category.get("name"),
+                item.get("stock"), item.get("price"), item.get("description"), item.get("version"),
+                item.get("createdAt"), item.get("updatedAt"));
+    }
+    
+    // CASE WHEN v < b0 THEN 0 WHEN v < b1 THEN 1 ... ELSE n; literals rather than bind parameters,
+    // so the grouped expression is textually identical in SELECT and GROUP BY
+    private <N extends Comparable<? super N>> Expression<Integer> band(CriteriaBuilder cb, Expression<N> value, List<N> bounds) {
+        if (bounds.isEmpty()) {
+            return cb.literal(0);
+        }
+        CriteriaBuilder.Case<Integer> band = cb.selectCase();
+        for (int i = 0; i < bounds.size(); i++) {
+            band = band.when(cb.lessThan(value, cb.literal(bounds.get(i))), cb.literal(i));
+        }
+        return band.otherwise(cb.literal(bounds.size()));
+    }
+    
+    // Translate the supplied filters into predicates, skipping the ones left null
+    private List<Predicate> criteriaPredicates(CriteriaBuilder cb, Root<Item> item, ItemSearchCriteria criteria) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (criteria == null) {
+            return predicates;
+        }
+        if (criteria.getItemIds() != null) {
+            predicates.add(criteria.getItemIds().isEmpty()
+                    ? cb.disjunction()
+                    : item.get("id").in(criteria.getItemIds()));
+        }
+        if (criteria.getName() != null) {
+            Expression<String> name = cb.lower(item.get("name"));
+            predicates.add(cb.like(name, "%" + criteria.getName().toLowerCase(Locale.ROOT) + "%"));
+        }
+        if (criteria.getCategoryId() != null) {
+            predicates.add(cb.equal(item.get("category").get("id"), criteria.getCategoryId()));
+        }
+        if (criteria.getCategoryName() != null) {
+            predicates.add(cb.equal(item.get("category").get("name"), criteria.getCategoryName()));
+        }
+        if (criteria.getMinPrice() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(item.get("price"), criteria.getMinPrice()));
+        }
+        if (criteria.getMaxPrice() != null) {
+            predicates.add(cb.lessThanOrEqualTo(item.get("price"), criteria.getMaxPrice()));
+        }
+        if (criteria.getMinStock() != null) {
+            predicates.add(cb.greaterThanOrEqualTo(item.get("stock"), criteria.getMinStock()));
+        }
+        if (criteria.getMaxStock() != null) {
+            predicates.add(cb.lessThanOrEqualTo(item.get("stock"), criteria.getMaxStock()));
+        }
+        return predicates;
+    }
+}
@@ -0,0 +1,62 @@
+package com.sweetshop.repository;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+
+// Optional filters for item searches; null fields are not applied
+public class ItemSearchCriteria {
+    private String name;
+    private String categoryName;
+    private BigDecimal minPrice;
+    private BigDecimal maxPrice;
+    private Integer minStock;
+    private Integer maxStock;
+    private Long categoryId;
+    private Collection<Long> itemIds;
+    
+    // Constructors
+    public ItemSearchCriteria() {}
+    
+    public ItemSearchCriteria(String name, String categoryName,
+                              BigDecimal minPrice, BigDecimal maxPrice,
+                              Integer minStock, Integer maxStock) {
+        this.name = name;
+        this.categoryName = categoryName;
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+        this.minStock = minStock;
+        this.maxStock = maxStock;
+    }
+    
+    // Items whose stock is strictly below the threshold
+    public static ItemSearchCriteria lowStock(Integer threshold) {
+        return new ItemSearchCriteria(null, null, null, null, null, threshold - 1);
+    }
+    
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+    
+    public String getCategoryName() { return categoryName; }
+    public void setCategoryName(String categoryName) { this.categoryName = categoryName; }
+    
+    public BigDecimal getMinPrice() { return minPrice; }
+    public void setMinPrice(BigDecimal minPrice) { this.minPrice = minPrice; }
+    
+    public BigDecimal getMaxPrice() { return maxPrice; }
+    public void setMaxPrice(BigDecimal maxPrice) { this.maxPrice = maxPrice; }
+    
+    public Integer getMinStock() { return minStock; }
+    public void setMinStock(Integer minStock) { this.minStock = minStock; }
+    
+    public Integer getMaxStock() { return maxStock; }
+    public void setMaxStock(Integer maxStock) { this.maxStock = maxStock; }
+    
+    // Category resolved up front; filters on the foreign key without joining categories
+    public Long getCategoryId() { return categoryId; }
+    public void setCategoryId(Long categoryId) { this.categoryId = categoryId; }
+    
+    // Restrict to ids resolved up front, e.g. by the in-memory name index
+    public Collection<Long> getItemIds() { return itemIds; }
+    public void setItemIds(Collection<Long> itemIds) { this.itemIds = itemIds; }
+}
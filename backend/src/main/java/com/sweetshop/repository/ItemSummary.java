@@ -0,0 +1,64 @@
+package com.sweetshop.repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+// Read-only row for item list endpoints, built by a constructor expression over items joined
+// to categories; serializes like Item but carries only the category's id and name
+public class ItemSummary {
+    
+    // Constructor expression shared by the JPQL list queries; alias the item i and its category c
+    public static final String SELECT = "SELECT new com.sweetshop.repository.ItemSummary(" +
+            "i.id, i.name, c.id, c.name, i.stock, i.price, i.description, i.version, i.createdAt, i.updatedAt) ";
+    
+    private final Long id;
+    private final String name;
+    private final CategoryRef category;
+    private Integer stock;
+    private final BigDecimal price;
+    private final String description;
+    private final Long version;
+    private final LocalDateTime createdAt;
+    private final LocalDateTime updatedAt;
+    
+    public ItemSummary(Long id, String name, Long categoryId, String categoryName, Integer stock,
+                       BigDecimal price, String description, Long version,
+                       LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.category = new CategoryRef(categoryId, categoryName);
+        this.stock = stock;
+        this.price = price;
+        this.description = description;
+        this.version = version;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+    
+    public Long getId() { return id; }
+    public String getName() { return name; }
+    public CategoryRef getCategory() { return category; }
+    public Integer getStock() { return stock; }
+    public BigDecimal getPrice() { return price; }
+    public String getDescription() { return description; }
+    public Long getVersion() { return version; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    
+    // Hot items report the live in-memory stock instead of the persisted value
+    public void setStock(Integer stock) { this.stock = stock; }
+    
+    // Inner class for the category reference embedded in each row
+    public static class CategoryRef {
+        private final Long id;
+        private final String name;
+        
+        public CategoryRef(Long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+        
+        public Long getId() { return id; }
+        public String getName() { return name; }
+    }
+}
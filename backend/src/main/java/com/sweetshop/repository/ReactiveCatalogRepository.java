@@ -0,0 +1,128 @@
+package com.sweetshop.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+// Catalog reads over R2DBC for the reactive API. Item streams are read in keyset pages, each its own
+// short query: the next page is fetched only when the client has taken the previous one, so a slow
+// reader holds no connection while it is not reading.
+public class ReactiveCatalogRepository implements DisposableBean {
+    
+    private static final String ITEM_COLUMNS =
+            "SELECT i.id, i.name, c.id AS category_id, c.name AS category_name, i.stock, i.price, " +
+            "i.description, i.version, i.created_at, i.updated_at FROM items i JOIN categories c ON c.id = i.category_id ";
+    
+    private final ConnectionPool pool;
+    private final DatabaseClient databaseClient;
+    private final int pageSize;
+    private final Scheduler queryScheduler;
+    
+    // Queries run on queryScheduler; pass an elastic one for drivers that block the calling thread
+    public ReactiveCatalogRepository(ConnectionPool pool, int pageSize, Scheduler queryScheduler) {
+        this.pool = pool;
+        this.databaseClient = DatabaseClient.create(pool);
+        this.pageSize = pageSize;
+        this.queryScheduler = queryScheduler;
+    }
+    
+    public ConnectionPool getPool() {
+        return pool;
+    }
+    
+    // All items in id order, optionally in one category
+    public Flux<ItemSummary> findItems(String categoryName) {
+        return pages(last -> {
+            DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(ITEM_COLUMNS + "WHERE i.id > :afterId" +
+                    (categoryName != null ? " AND LOWER(c.name) = LOWER(:category)" : "") +
+                    " ORDER BY i.id LIMIT :limit")
+                    .bind("afterId", last != null ? last.lastId : 0L)
+                    .bind("limit", pageSize);
+            return categoryName != null ? spec.bind("category", categoryName) : spec;
+        });
+    }
+    
+    // Items below the threshold, lowest stock first, like the servlet low-stock endpoint
+    public Flux<ItemSummary> findLowStockItems(int threshold) {
+        return pages(last -> databaseClient.sql(ITEM_COLUMNS +
+                        "WHERE i.stock < :threshold AND (i.stock > :afterStock OR (i.stock = :afterStock AND i.id > :afterId)) " +
+                        "ORDER BY i.stock, i.id LIMIT :limit")
+                .bind("threshold", threshold)
+                .bind("afterStock", last != null ? last.lastStock : -1)
+                .bind("afterId", last != null ? last.lastId : 0L)
+                .bind("limit", pageSize));
+    }
+    
+    // Categories with item counts; a short list, read in one query
+    public Flux<CategorySummary> findCategories() {
+        return databaseClient.sql(
+                        "SELECT c.id, c.name, c.description, c.created_at, c.updated_at, COUNT(i.id) AS item_count " +
+                        "FROM categories c LEFT JOIN items i ON i.category_id = c.id " +
+                        "GROUP BY c.id, c.name, c.description, c.created_at, c.updated_at ORDER BY c.id")
+                .map(row -> new CategorySummary(
+                        row.get("id", Long.class),
+                        row.get("name", String.class),
+                        row.get("description", String.class),
+                        row.get("created_at", LocalDateTime.class),
+                        row.get("updated_at", LocalDateTime.class),
+                        row.get("item_count", Long.class)))
+                .all()
+                .subscribeOn(queryScheduler);
+    }
+    
+    // Chain keyset pages on demand; a short page is the last one
+    private Flux<ItemSummary> pages(Function<Page, DatabaseClient.GenericExecuteSpec> query) {
+        Function<Page, Mono<Page>> page = last -> query.apply(last)
+                .map(ReactiveCatalogRepository::itemSummary)
+                .all()
+                .collectList()
+                .map(Page::new)
+                .subscribeOn(queryScheduler);
+        return page.apply(null)
+                .expand(last -> last.rows.size() < pageSize ? Mono.empty() : page.apply(last))
+                .concatMapIterable(last -> last.rows);
+    }
+    
+    private static ItemSummary itemSummary(Readable row) {
+        return new ItemSummary(
+                row.get("id", Long.class),
+                row.get("name", String.class),
+                row.get("category_id", Long.class),
+                row.get("category_name", String.class),
+                row.get("stock", Integer.class),
+                row.get("price", BigDecimal.class),
+                row.get("description", String.class),
+                row.get("version", Long.class),
+                row.get("created_at", LocalDateTime.class),
+                row.get("updated_at", LocalDateTime.class));
+    }
+    
+    @Override
+    public void destroy() {
+        pool.dispose();
+    }
+    
+    // A page of rows with the keyset of its last row. The keyset is copied as read: subscribers may
+    // change the emitted items (the handler merges live stock) before the next page is queried.
+    private static class Page {
+        private final List<ItemSummary> rows;
+        private final long lastId;
+        private final int lastStock;
+        
+        Page(List<ItemSummary> rows) {
+            this.rows = rows;
+            ItemSummary last = rows.isEmpty() ? null : rows.get(rows.size() - 1);
+            this.lastId = last != null ? last.getId() : 0L;
+            this.lastStock = last != null ? last.getStock() : -1;
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Seeds a synthetic catalog for load tests: tops the items table up to sweetshop.catalog-generator.items
+// rows spread over generated categories. Runs once at startup before the application reports ready;
+// rows are inserted in batches without the per-write hooks, and the in-memory views are reloaded after.
+@Component
+public class CatalogGenerator implements ApplicationRunner {
+    
+    private static final Logger log = LoggerFactory.getLogger(CatalogGenerator.class);
+    
+    // bench/LoadTest.java searches for these words; keep the two lists in step
+    static final String[] FLAVOURS = {
+        "Kesar", "Pista", "Badam", "Kaju", "Malai", "Mango", "Rose", "Elaichi", "Coconut", "Gulkand",
+        "Anjeer", "Khoya", "Chocolate", "Dry Fruit", "Saffron", "Jaggery", "Til", "Besan", "Moong Dal", "Paan"
+    };
+    static final String[] FORMS = {
+        "Barfi", "Ladoo", "Peda", "Halwa", "Katli", "Rasgulla", "Jalebi", "Sandesh", "Gulab Jamun",
+        "Rasmalai", "Chikki", "Modak", "Soan Papdi", "Kalakand", "Roll", "Cham Cham", "Mysore Pak"
+    };
+    private static final String[] CATEGORY_KINDS = {
+        "Dry Sweet", "Bengali Sweet", "Traditional", "Milk Sweet", "Syrup-based",
+        "Festive Box", "Sugar Free", "Ghee Sweet", "Fusion", "Seasonal"
+    };
+    private static final String[] REGIONS = {
+        "Kolkata", "Mumbai", "Delhi", "Jaipur", "Lucknow", "Chennai", "Hyderabad", "Pune", "Agra", "Mathura",
+        "Varanasi", "Mysore", "Ahmedabad", "Indore", "Amritsar", "Bikaner", "Surat", "Nagpur", "Patna", "Goa"
+    };
+    private static final String[] FINISHES = {
+        "topped with silver leaf", "with roasted nuts", "slow cooked in pure ghee", "lightly sweetened",
+        "made with fresh milk", "finished with cardamom", "in a festive gift pack", "with a saffron glaze"
+    };
+    
+    @Value("${sweetshop.catalog-generator.items:0}")
+    private long targetItems;
+    
+    @Value("${sweetshop.catalog-generator.categories:100}")
+    private int targetCategories;
+    
+    @Value("${sweetshop.catalog-generator.batch-size:1000}")
+    private int batchSize;
+    
+    @Value("${sweetshop.catalog-generator.seed:42}")
+    private long seed;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private InventoryAggregateService inventoryAggregates;
+    
+    @Autowired
+    private SuggestService suggestService;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    @Override
+    public void run(ApplicationArguments args) {
+        if (targetItems <= 0) {
+            return;
+        }
+        long existing = itemRepository.count();
+        if (existing >= targetItems) {
+            log.info("Catalog already has {} items, generator target is {}", existing, targetItems);
+            return;
+        }
+        
+        long started = System.currentTimeMillis();
+        Random random = new Random(seed + existing);
+        List<Category> categories = ensureCategories();
+        long created = 0;
+        while (existing + created < targetItems) {
+            int size = (int) Math.min(batchSize, targetItems - existing - created);
+            long first = existing + created;
+            transactionTemplate.executeWithoutResult(status -> {
+                for (int i = 0; i < size; i++) {
+                    Category category = entityManager.getReference(Category.class,
+                            categories.get(skewedIndex(random, categories.size())).getId());
+                    entityManager.persist(randomItem(random, first + i + 1, category));
+                }
+                entityManager.flush();
+                entityManager.clear();
+            });
+            created += size;
+            if (created % (batchSize * 100L) == 0) {
+                log.info("Catalog generator: {} of {} items", existing + created, targetItems);
+            }
+        }
+        
+        // Nothing above went through the write hooks, so rebuild what they would have maintained;
+        // the search index is built after this runner, on ApplicationReadyEvent
+        inventoryAggregates.reload();
+        suggestService.load();
+        inventoryVersion.changed();
+        log.info("Catalog generator created {} items in {} categories in {} ms",
+                 created, categories.size(), System.currentTimeMillis() - started);
+    }
+    
+    // Existing categories count towards the target; generated names combine a kind and a region
+    private List<Category> ensureCategories() {
+        return transactionTemplate.execute(status -> {
+            List<Category> categories = new ArrayList<>(categoryRepository.findAll());
+            for (int i = 0; categories.size() < targetCategories; i++) {
+                String name = CATEGORY_KINDS[i % CATEGORY_KINDS.length] + " " + REGIONS[(i / CATEGORY_KINDS.length) % REGIONS.length];
+                if (i >= CATEGORY_KINDS.length * REGIONS.length) {
+                    name += " " + (i / (CATEGORY_KINDS.length * REGIONS.length) + 1);
+                }
+                if (categoryRepository.findByNameIgnoreCase(name).isEmpty()) {
+                    categories.add(categoryRepository.save(new Category(name, "Generated category")));
+                }
+            }
+            return categories;
+        });
+    }
+    
+    private static Item randomItem(Random random, long number, Category category) {
+        String flavour = FLAVOURS[skewedIndex(random, FLAVOURS.length)];
+        String form = FORMS[random.nextInt(FORMS.length)];
+        // Roughly one item in ten is below the low-stock threshold, the rest spread up to 500
+        int stock = random.nextInt(10) == 0
+                ? random.nextInt(InventoryAggregateService.LOW_STOCK_THRESHOLD)
+                : InventoryAggregateService.LOW_STOCK_THRESHOLD + (int) (Math.abs(random.nextGaussian()) * 150) % 490;
+        // Log-normal prices around 400, in steps of 5 between 20 and 5000
+        double price = Math.min(5000, Math.max(20, Math.exp(6 + random.nextGaussian() * 0.6)));
+        BigDecimal rounded = BigDecimal.valueOf(Math.round(price / 5) * 5L).setScale(2, RoundingMode.UNNECESSARY);
+        StringBuilder description = new StringBuilder(flavour).append(' ').append(form.toLowerCase(Locale.ROOT))
+                .append(' ').append(FINISHES[random.nextInt(FINISHES.length)]);
+        if (random.nextBoolean()) {
+            description.append(" and ").append(FINISHES[random.nextInt(FINISHES.length)]);
+        }
+        return new Item(flavour + " " + form + " #" + number, category, stock, rounded, description.toString());
+    }
+    
+    // Popular entries come up more often, so some searches and categories are much hotter than others
+    private static int skewedIndex(Random random, int size) {
+        double u = random.nextDouble();
+        return (int) (size * u * u);
+    }
+}
@@ -2,14 +2,23 @@ package com.sweetshop.service;
 
 import com.sweetshop.model.Category;
 import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.CategorySummary;
 import com.sweetshop.repository.ItemRepository;
 import com.sweetshop.exception.ResourceNotFoundException;
 import com.sweetshop.exception.ResourceAlreadyExistsException;
+import com.sweetshop.config.CacheConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
 import java.util.Optional;
 
 @Service
@@ -22,17 +31,35 @@ public class CategoryService {
     @Autowired
     private ItemRepository itemRepository;
     
+    @Autowired
+    private InventoryAggregateService inventoryAggregates;
+    
+    @Autowired
+    private InventoryChangeNotifier inventoryChanges;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
     // Get all categories
-    public List<Category> getAllCategories() {
-        return categoryRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<CategorySummary> getAllCategories() {
+        return categoryRepository.findAllSummaries();
     }
     
     // Get category by ID
-    public Optional<Category> getCategoryById(Long id) {
-        return categoryRepository.findById(id);
+    @Transactional(readOnly = true)
+    public Optional<CategorySummary> getCategoryById(Long id) {
+        return categoryRepository.findSummaryById(id);
     }
     
-    // Get category by name
+    // Get category by name with its item count
+    @Transactional(readOnly = true)
+    public Optional<CategorySummary> getCategorySummaryByName(String name) {
+        return categoryRepository.findSummaryByNameIgnoreCase(name);
+    }
+    
+    // Get category by name; misses are not cached so a category created later is found
+    @Cacheable(cacheNames = CacheConfig.CATEGORIES_BY_NAME, key = "#name.toLowerCase(T(java.util.Locale).ROOT)", unless = "#result == null")
     public Optional<Category> getCategoryByName(String name) {
         return categoryRepository.findByNameIgnoreCase(name);
     }
@@ -42,17 +69,31 @@ public class CategoryService {
         if (categoryRepository.existsByNameIgnoreCase(category.getName())) {
             throw new ResourceAlreadyExistsException("Category", category.getName());
         }
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        inventoryChanges.categorySaved(savedCategory);
+        return savedCategory;
     }
     
-    // Update category
+    // Update category; a rename or new description changes the category embedded in its cached items too
     public Category updateCategory(Long id, Category categoryDetails) {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", id));
         
+        String oldName = category.getName();
+        boolean renamed = !oldName.equals(categoryDetails.getName());
+        boolean redescribed = !Objects.equals(category.getDescription(), categoryDetails.getDescription());
         category.setName(categoryDetails.getName());
         category.setDescription(categoryDetails.getDescription());
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        // Evict before notifying, so the caches are clear by the time the version is bumped. The new
+        // name is evicted too: a lookup that missed it may have cached another category under it.
+        evictAfterCommit(CacheConfig.CATEGORIES_BY_NAME,
+                         renamed ? List.of(nameKey(oldName), nameKey(savedCategory.getName())) : List.of(nameKey(oldName)));
+        // Cached items embed the name and description; the change feed only carries the name
+        List<Long> itemIds = renamed || redescribed ? itemRepository.findIdsByCategoryId(id) : List.of();
+        evictAfterCommit(CacheConfig.ITEMS, itemIds);
+        inventoryChanges.categorySaved(savedCategory, renamed ? itemIds : List.of());
+        return savedCategory;
     }
     
     // Delete category
@@ -60,37 +101,48 @@ public class CategoryService {
         Category category = categoryRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Category", id));
         
-        // Check if category has items
-        if (!category.getItems().isEmpty()) {
+        // Check if category has items, without loading them
+        if (itemRepository.existsByCategoryId(id)) {
             throw new RuntimeException("Cannot delete category with existing items. Please move or delete items first.");
         }
         categoryRepository.deleteById(id);
+        evictAfterCommit(CacheConfig.CATEGORIES_BY_NAME, List.of(nameKey(category.getName())));
+        inventoryChanges.categoryRemoved(id);
+    }
+    
+    // Drop the keys from a cache once the current transaction commits
+    private void evictAfterCommit(String cacheName, Collection<?> keys) {
+        Cache cache = cacheManager.getCache(cacheName);
+        if (cache != null && !keys.isEmpty()) {
+            CacheConfig.evictAfterCommit(cache, keys);
+        }
+    }
+    
+    // Same key as getCategoryByName
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
     }
     
     // Get categories with items
-    public List<Category> getCategoriesWithItems() {
-        return categoryRepository.findCategoriesWithItems();
+    @Transactional(readOnly = true)
+    public List<CategorySummary> getCategoriesWithItems() {
+        return categoryRepository.findSummariesWithItems();
     }
     
-    // Get category statistics
+    // Get category statistics; served from memory, so no transaction or connection is needed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public List<CategoryStats> getCategoryStatistics() {
-        List<Object[]> results = categoryRepository.getCategoryStatistics();
-        return results.stream()
-                .map(result -> new CategoryStats(
-                    (String) result[0],
-                    ((Number) result[1]).longValue(),
-                    ((Number) result[2]).longValue(),
-                    (java.math.BigDecimal) result[3]
-                ))
-                .toList();
+        return inventoryAggregates.getCategoryStatistics();
     }
     
     // Search categories by name
-    public List<Category> searchCategoriesByName(String name) {
-        return categoryRepository.findByNameContainingIgnoreCase(name);
+    @Transactional(readOnly = true)
+    public List<CategorySummary> searchCategoriesByName(String name) {
+        return categoryRepository.findSummariesByNameContaining(name);
     }
     
     // Get all category names
+    @Transactional(readOnly = true)
     public List<String> getAllCategoryNames() {
         return categoryRepository.findAllCategoryNames();
     }
@@ -0,0 +1,290 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.sweetshop.exception.ChangesExpiredException;
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.CategorySummary;
+import com.sweetshop.repository.ChangeLogEntry;
+import com.sweetshop.repository.ChangeLogRepository;
+import com.sweetshop.repository.ItemRepository;
+import com.sweetshop.repository.ItemSummary;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Append-only log of item and category writes for incremental sync. Writes are collected per
+// transaction and inserted just before it commits, so a change is logged exactly when its write lands.
+// Readers get the current state of each changed entity, or a tombstone when it has been deleted.
+@Service
+public class ChangeLogService {
+    
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogService.class);
+    
+    @Value("${sweetshop.changes.default-page-size:100}")
+    private int defaultPageSize;
+    
+    @Value("${sweetshop.changes.max-page-size:1000}")
+    private int maxPageSize;
+    
+    @Value("${sweetshop.changes.settle-ms:5000}")
+    private long settleMs;
+    
+    @Value("${sweetshop.changes.retention-hours:168}")
+    private long retentionHours;
+    
+    @Value("${sweetshop.changes.compaction-batch-size:10000}")
+    private int compactionBatchSize;
+    
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private HotStockService hotStockService;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    public void itemChanged(Long id) {
+        pending().put(ChangeLogEntry.ITEM, id, false);
+    }
+    
+    public void itemsChanged(Collection<Long> ids) {
+        PendingChanges pending = pending();
+        ids.forEach(id -> pending.put(ChangeLogEntry.ITEM, id, false));
+    }
+    
+    public void itemRemoved(Long id) {
+        pending().put(ChangeLogEntry.ITEM, id, true);
+    }
+    
+    public void categoryChanged(Long id) {
+        pending().put(ChangeLogEntry.CATEGORY, id, false);
+    }
+    
+    public void categoryRemoved(Long id) {
+        pending().put(ChangeLogEntry.CATEGORY, id, true);
+    }
+    
+    // Changes after the given sequence number; without one, just the current position to start from
+    @Transactional(readOnly = true)
+    public ChangeFeed getChanges(Long since, Integer limit) {
+        if (since == null) {
+            return new ChangeFeed(List.of(), changeLogRepository.findMaxSeq(), false);
+        }
+        if (since < 0) {
+            throw new ValidationException("since", "must not be negative");
+        }
+        if (limit != null && limit < 1) {
+            throw new ValidationException("limit", "must be at least 1");
+        }
+        int size = Math.min(limit != null ? limit : defaultPageSize, maxPageSize);
+        
+        Long minSeq = changeLogRepository.findMinSeq();
+        if (minSeq != null && since < minSeq - 1) {
+            throw new ChangesExpiredException(since, minSeq);
+        }
+        
+        List<ChangeLogEntry> entries = changeLogRepository.findAfter(since, size + 1);
+        boolean hasMore = entries.size() > size;
+        
+        // A gap in the sequence may be a transaction that has taken its number but not yet committed;
+        // stop in front of recent gaps so that entry is not skipped, and accept old ones as rollbacks
+        LocalDateTime settled = LocalDateTime.now().minusNanos(settleMs * 1_000_000);
+        long next = since;
+        Map<String, ChangeLogEntry> latest = new LinkedHashMap<>();
+        for (ChangeLogEntry entry : entries.subList(0, Math.min(size, entries.size()))) {
+            if (entry.getSeq() != next + 1 && entry.getChangedAt().isAfter(settled)) {
+                hasMore = true;
+                break;
+            }
+            latest.remove(entry.getEntityType() + ":" + entry.getEntityId());
+            latest.put(entry.getEntityType() + ":" + entry.getEntityId(), entry);
+            next = entry.getSeq();
+        }
+        
+        return new ChangeFeed(resolve(latest.values()), next, hasMore);
+    }
+    
+    // Newest logged change as seen by the database this request reads from; every item and category write
+    // logs in its own transaction, so a replica at this position has applied every write up to it
+    @Transactional(readOnly = true)
+    public long getPosition() {
+        long position = changeLogRepository.findMaxSeq();
+        inventoryVersion.seen(position);
+        return position;
+    }
+    
+    // Drop entries past the retention window; consumers further behind than that must reload
+    @Scheduled(fixedDelayString = "${sweetshop.changes.compaction-interval-ms:3600000}",
+               initialDelayString = "${sweetshop.changes.compaction-interval-ms:3600000}")
+    public void compact() {
+        LocalDateTime cutoff = LocalDateTime.now().minusHours(retentionHours);
+        long removed = 0;
+        int batch;
+        do {
+            batch = changeLogRepository.deleteOlderThan(cutoff, compactionBatchSize);
+            removed += batch;
+        } while (batch > 0);
+        if (removed > 0) {
+            log.info("Compacted {} change log entries older than {}", removed, cutoff);
+        }
+    }
+    
+    // Pair each entry with the entity's current state; entities gone since then become tombstones
+    private List<Change> resolve(Collection<ChangeLogEntry> entries) {
+        Set<Long> itemIds = idsOf(entries, ChangeLogEntry.ITEM);
+        Set<Long> categoryIds = idsOf(entries, ChangeLogEntry.CATEGORY);
+        Map<Long, ItemSummary> items = itemIds.isEmpty() ? Map.of() :
+                itemRepository.findSummariesByIdIn(itemIds).stream()
+                        .collect(Collectors.toMap(ItemSummary::getId, Function.identity()));
+        items.values().forEach(hotStockService::mergePending);
+        Map<Long, CategorySummary> categories = categoryIds.isEmpty() ? Map.of() :
+                categoryRepository.findSummariesByIdIn(categoryIds).stream()
+                        .collect(Collectors.toMap(CategorySummary::getId, Function.identity()));
+        
+        List<Change> changes = new ArrayList<>(entries.size());
+        for (ChangeLogEntry entry : entries) {
+            if (ChangeLogEntry.ITEM.equals(entry.getEntityType())) {
+                changes.add(new Change(entry, items.get(entry.getEntityId()), null));
+            } else {
+                changes.add(new Change(entry, null, categories.get(entry.getEntityId())));
+            }
+        }
+        changes.sort((a, b) -> Long.compare(a.seq, b.seq));
+        return changes;
+    }
+    
+    private Set<Long> idsOf(Collection<ChangeLogEntry> entries, String entityType) {
+        return entries.stream()
+                .filter(entry -> !entry.isDeleted() && entityType.equals(entry.getEntityType()))
+                .map(ChangeLogEntry::getEntityId)
+                .collect(Collectors.toSet());
+    }
+    
+    // Changes of the current transaction, written once just before it commits
+    private PendingChanges pending() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return new PendingChanges(true);
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingChanges bound = new PendingChanges(false);
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    bound.write();
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ChangeLogService.this);
+                }
+            });
+            pending = bound;
+        }
+        return pending;
+    }
+    
+    private class PendingChanges {
+        private final boolean immediate;
+        // Keyed by type and id so repeated writes in one transaction log once; a delete overrides
+        private final Map<String, Map<Long, Boolean>> byType = new LinkedHashMap<>();
+        
+        PendingChanges(boolean immediate) {
+            this.immediate = immediate;
+        }
+        
+        void put(String entityType, Long id, boolean deleted) {
+            byType.computeIfAbsent(entityType, type -> new LinkedHashMap<>()).merge(id, deleted, Boolean::logicalOr);
+            if (immediate) {
+                write();
+            }
+        }
+        
+        void write() {
+            if (byType.isEmpty()) {
+                return;
+            }
+            long maxSeq = 0;
+            for (Map.Entry<String, Map<Long, Boolean>> entry : byType.entrySet()) {
+                Map<Boolean, List<Long>> split = entry.getValue().entrySet().stream().collect(Collectors.partitioningBy(
+                        Map.Entry::getValue, Collectors.mapping(Map.Entry::getKey, Collectors.toList())));
+                if (!split.get(false).isEmpty()) {
+                    maxSeq = Math.max(maxSeq, changeLogRepository.append(entry.getKey(), split.get(false), false));
+                }
+                if (!split.get(true).isEmpty()) {
+                    maxSeq = Math.max(maxSeq, changeLogRepository.append(entry.getKey(), split.get(true), true));
+                }
+            }
+            byType.clear();
+            // Published with the version bump after commit, so the position never names an uncommitted entry
+            inventoryVersion.logged(maxSeq);
+        }
+    }
+    
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Change {
+        private final long seq;
+        private final String type;
+        private final long id;
+        private final Boolean deleted;
+        private final ItemSummary item;
+        private final CategorySummary category;
+        
+        Change(ChangeLogEntry entry, ItemSummary item, CategorySummary category) {
+            this.seq = entry.getSeq();
+            this.type = entry.getEntityType();
+            this.id = entry.getEntityId();
+            this.item = item;
+            this.category = category;
+            this.deleted = item == null && category == null ? Boolean.TRUE : null;
+        }
+        
+        public long getSeq() { return seq; }
+        public String getType() { return type; }
+        public long getId() { return id; }
+        public Boolean getDeleted() { return deleted; }
+        public ItemSummary getItem() { return item; }
+        public CategorySummary getCategory() { return category; }
+    }
+    
+    public static class ChangeFeed {
+        private final List<Change> changes;
+        private final long nextSince;
+        private final boolean hasMore;
+        
+        public ChangeFeed(List<Change> changes, long nextSince, boolean hasMore) {
+            this.changes = changes;
+            this.nextSince = nextSince;
+            this.hasMore = hasMore;
+        }
+        
+        public List<Change> getChanges() { return changes; }
+        public long getNextSince() { return nextSince; }
+        public boolean isHasMore() { return hasMore; }
+    }
+}
@@ -0,0 +1,158 @@
+package com.sweetshop.service;
+
+import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@Transactional
+public class CheckoutService {
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private HotStockService hotStockService;
+    
+    @Autowired
+    private ItemService itemService;
+    
+    @Autowired
+    private InventoryChangeNotifier inventoryChanges;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Decrement stock for a whole basket in one transaction, or reject it with the short lines
+    public CheckoutResult checkout(Map<Long, Integer> basket) {
+        if (basket.isEmpty()) {
+            throw new ValidationException("lines", "must not be empty");
+        }
+        
+        // Sorted by id so every checkout locks rows in the same order and cannot deadlock another.
+        // Hot items are only read: their stock is taken from memory, so their rows are not locked.
+        Map<Long, Integer> quantities = new TreeMap<>(basket);
+        List<Long> hotIds = new ArrayList<>();
+        List<Long> coldIds = new ArrayList<>();
+        for (Long id : quantities.keySet()) {
+            (hotStockService.isHot(id) ? hotIds : coldIds).add(id);
+        }
+        List<Item> items = new ArrayList<>(quantities.size());
+        if (!coldIds.isEmpty()) {
+            items.addAll(itemRepository.findAllByIdForUpdate(coldIds));
+        }
+        if (!hotIds.isEmpty()) {
+            items.addAll(itemRepository.findAllById(hotIds));
+        }
+        items.sort(Comparator.comparing(Item::getId));
+        if (items.size() != quantities.size()) {
+            for (Item item : items) {
+                quantities.remove(item.getId());
+            }
+            throw new ResourceNotFoundException("Item", quantities.keySet().iterator().next());
+        }
+        
+        // Hot items are taken from their in-memory counters, the rest are checked against the locked rows
+        Map<Long, Integer> heldHotStock = new HashMap<>();
+        List<InsufficientStockException.Shortage> shortages = new ArrayList<>();
+        for (Item item : items) {
+            int requested = quantities.get(item.getId());
+            if (hotStockService.isHot(item.getId())) {
+                if (hotStockService.tryTake(item.getId(), requested)) {
+                    heldHotStock.put(item.getId(), requested);
+                } else {
+                    shortages.add(new InsufficientStockException.Shortage(item.getId(), requested,
+                                                                          hotStockService.available(item.getId())));
+                }
+            } else if (item.getStock() < requested) {
+                shortages.add(new InsufficientStockException.Shortage(item.getId(), requested, item.getStock()));
+            }
+        }
+        if (!shortages.isEmpty()) {
+            hotStockService.release(heldHotStock);
+            throw new InsufficientStockException(shortages);
+        }
+        hotStockService.releaseOnRollback(heldHotStock);
+        
+        List<CheckoutLine> lines = new ArrayList<>(items.size());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Item item : items) {
+            int quantity = quantities.get(item.getId());
+            int remainingStock;
+            itemService.evictCachedItem(item.getId());
+            if (heldHotStock.containsKey(item.getId())) {
+                remainingStock = hotStockService.available(item.getId());
+                inventoryChanges.hotStockChanged(item.getId(), remainingStock, item.getPrice(), item.getCategory().getId());
+            } else {
+                InventoryAggregateService.ItemState before = InventoryAggregateService.ItemState.of(item);
+                item.setStock(item.getStock() - quantity);
+                inventoryChanges.stockChanged(item.getId(), before, InventoryAggregateService.ItemState.of(item));
+                remainingStock = item.getStock();
+            }
+            
+            BigDecimal amount = item.getPrice().multiply(BigDecimal.valueOf(quantity));
+            lines.add(new CheckoutLine(item.getId(), item.getName(), quantity, item.getPrice(), amount, remainingStock));
+            total = total.add(amount);
+        }
+        
+        // One flush sends every decrement as a single JDBC batch of updates
+        entityManager.flush();
+        return new CheckoutResult(lines, total);
+    }
+    
+    // Inner class for a fulfilled basket line
+    public static class CheckoutLine {
+        private final Long itemId;
+        private final String name;
+        private final int quantity;
+        private final BigDecimal unitPrice;
+        private final BigDecimal amount;
+        private final int remainingStock;
+        
+        public CheckoutLine(Long itemId, String name, int quantity, BigDecimal unitPrice,
+                            BigDecimal amount, int remainingStock) {
+            this.itemId = itemId;
+            this.name = name;
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.amount = amount;
+            this.remainingStock = remainingStock;
+        }
+        
+        public Long getItemId() { return itemId; }
+        public String getName() { return name; }
+        public int getQuantity() { return quantity; }
+        public BigDecimal getUnitPrice() { return unitPrice; }
+        public BigDecimal getAmount() { return amount; }
+        public int getRemainingStock() { return remainingStock; }
+    }
+    
+    // Inner class for checkout results
+    public static class CheckoutResult {
+        private final List<CheckoutLine> lines;
+        private final BigDecimal total;
+        
+        public CheckoutResult(List<CheckoutLine> lines, BigDecimal total) {
+            this.lines = lines;
+            this.total = total;
+        }
+        
+        public List<CheckoutLine> getLines() { return lines; }
+        public BigDecimal getTotal() { return total; }
+    }
+}
@@ -0,0 +1,104 @@
+package com.sweetshop.service;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Minimal RFC 4180 reader that pulls one record at a time from the underlying stream
+class CsvReader {
+    
+    private final Reader reader;
+    private int peeked = -2;
+    private long line = 1;
+    private long recordLine;
+    
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+    
+    // Next record, or null at end of input
+    List<String> readRecord() throws IOException {
+        recordLine = line;
+        int c = read();
+        if (c == -1) {
+            return null;
+        }
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new MalformedRecordException(recordLine, "Unterminated quoted field");
+                }
+                if (c == '"') {
+                    if (peek() == '"') {
+                        read();
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                if (c == '\r' && peek() == '\n') {
+                    read();
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+    
+    // Line on which the last returned record started
+    long getRecordLine() {
+        return recordLine;
+    }
+    
+    private int read() throws IOException {
+        int c;
+        if (peeked != -2) {
+            c = peeked;
+            peeked = -2;
+        } else {
+            c = reader.read();
+        }
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+    
+    private int peek() throws IOException {
+        if (peeked == -2) {
+            peeked = reader.read();
+        }
+        return peeked;
+    }
+    
+    // A record that cannot be parsed; the input ends inside it, so no record follows
+    static class MalformedRecordException extends IOException {
+        private static final long serialVersionUID = 1L;
+        
+        private final long line;
+        
+        MalformedRecordException(long line, String message) {
+            super(message);
+            this.line = line;
+        }
+        
+        long getLine() {
+            return line;
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.sweetshop.service;
+
+import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.ResourceNotFoundException;
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemSummary;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Write-behind stock counters for designated hot items: tills adjust striped in-memory
+// counters and the accumulated deltas are flushed to the items table on a short interval
+@Service
+public class HotStockService {
+    
+    private static final Logger log = LoggerFactory.getLogger(HotStockService.class);
+    
+    @Value("${sweetshop.hot-stock.enabled:false}")
+    private boolean enabled;
+    
+    @Value("${sweetshop.hot-stock.item-ids:}")
+    private Set<Long> hotItemIds;
+    
+    @Value("${sweetshop.hot-stock.stripes:8}")
+    private int stripes;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    // Lazy to break the cycle: ItemService routes hot adjustments here, flushes go back through it
+    @Lazy
+    @Autowired
+    private ItemService itemService;
+    
+    private final Map<Long, StripedCounter> counters = new ConcurrentHashMap<>();
+    
+    // Held for a whole flush, from snapshot to recording what was written, and by every resync.
+    // A resync in the middle of a flush would read a row the flush is about to change, and the
+    // flush would then record its stale snapshot as flushed, writing the same delta twice.
+    private final ReentrantLock flushLock = new ReentrantLock();
+    
+    public boolean isHot(Long itemId) {
+        return enabled && hotItemIds.contains(itemId);
+    }
+    
+    // Apply a delta in memory; returns the stock clients should now see
+    public Integer adjust(Long itemId, int delta) {
+        if (delta < -ItemService.MAX_STOCK_DELTA || delta > ItemService.MAX_STOCK_DELTA) {
+            throw new ValidationException("delta", "must be between " + -ItemService.MAX_STOCK_DELTA
+                    + " and " + ItemService.MAX_STOCK_DELTA);
+        }
+        StripedCounter counter = counter(itemId);
+        if (delta > 0) {
+            if (!counter.tryAdd(delta)) {
+                throw new ValidationException("delta", "would take stock above " + Integer.MAX_VALUE);
+            }
+        } else if (!counter.tryTake(-delta)) {
+            throw new InsufficientStockException(itemId, -delta);
+        }
+        return counter.available();
+    }
+    
+    // Take stock for one line of a larger operation; pair with release or releaseOnRollback
+    public boolean tryTake(Long itemId, int amount) {
+        return counter(itemId).tryTake(amount);
+    }
+    
+    public int available(Long itemId) {
+        return counter(itemId).available();
+    }
+    
+    // Give back stock taken with tryTake
+    public void release(Map<Long, Integer> taken) {
+        taken.forEach((itemId, amount) -> {
+            StripedCounter counter = counters.get(itemId);
+            if (counter != null) {
+                counter.add(amount);
+            }
+        });
+    }
+    
+    // Give back stock taken with tryTake if the surrounding transaction does not commit
+    public void releaseOnRollback(Map<Long, Integer> taken) {
+        if (taken.isEmpty() || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    release(taken);
+                }
+            }
+        });
+    }
+    
+    // Replace the persisted stock of a hot item with its live in-memory value
+    public void mergePending(Item item) {
+        if (!isHot(item.getId())) {
+            return;
+        }
+        StripedCounter counter = counters.get(item.getId());
+        if (counter != null) {
+            item.setStock(counter.available());
+        }
+    }
+    
+    public void mergePending(ItemSummary item) {
+        if (!isHot(item.getId())) {
+            return;
+        }
+        StripedCounter counter = counters.get(item.getId());
+        if (counter != null) {
+            item.setStock(counter.available());
+        }
+    }
+    
+    // Re-seed the counter after another path wrote the row directly; unflushed deltas are kept
+    public void resyncAfterCommit(Long itemId) {
+        if (!isHot(itemId)) {
+            return;
+        }
+        afterCommit(() -> {
+            flushLock.lock();
+            try {
+                StripedCounter counter = counters.get(itemId);
+                if (counter != null) {
+                    counter.lock.lock();
+                    try {
+                        resync(itemId, counter);
+                    } finally {
+                        counter.lock.unlock();
+                    }
+                }
+            } finally {
+                flushLock.unlock();
+            }
+        });
+    }
+    
+    // Drop the counter of a deleted item together with its unflushed deltas
+    public void removeAfterCommit(Long itemId) {
+        if (!isHot(itemId)) {
+            return;
+        }
+        afterCommit(() -> counters.remove(itemId));
+    }
+    
+    @Scheduled(fixedDelayString = "${sweetshop.hot-stock.flush-interval-ms:200}")
+    public void flush() {
+        if (!enabled || counters.isEmpty()) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            flushCounters();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+    
+    // Caller holds flushLock
+    private void flushCounters() {
+        // Coalesce everything that changed since the last flush into one batch
+        Map<Long, Integer> deltas = new TreeMap<>();
+        Map<Long, Integer> snapshots = new TreeMap<>();
+        for (Map.Entry<Long, StripedCounter> entry : counters.entrySet()) {
+            StripedCounter counter = entry.getValue();
+            counter.lock.lock();
+            try {
+                int available = counter.available();
+                int delta = available - counter.flushedStock;
+                if (delta != 0) {
+                    deltas.put(entry.getKey(), delta);
+                    snapshots.put(entry.getKey(), available);
+                }
+            } finally {
+                counter.lock.unlock();
+            }
+        }
+        if (deltas.isEmpty()) {
+            return;
+        }
+        
+        try {
+            itemService.applyStockDeltas(deltas);
+            snapshots.forEach((itemId, available) -> {
+                StripedCounter counter = counters.get(itemId);
+                if (counter != null) {
+                    counter.lock.lock();
+                    try {
+                        counter.flushedStock = available;
+                    } finally {
+                        counter.lock.unlock();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // The row changed underneath us (or vanished); re-read it and keep the deltas pending
+            log.warn("Hot stock flush failed, resynchronising counters {}: {}", deltas.keySet(), e.getMessage());
+            for (Long itemId : deltas.keySet()) {
+                StripedCounter counter = counters.get(itemId);
+                if (counter != null) {
+                    counter.lock.lock();
+                    try {
+                        resync(itemId, counter);
+                    } finally {
+                        counter.lock.unlock();
+                    }
+                }
+            }
+        }
+    }
+    
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+    
+    private StripedCounter counter(Long itemId) {
+        StripedCounter counter = counters.get(itemId);
+        if (counter != null) {
+            return counter;
+        }
+        // Query outside computeIfAbsent, which would hold the map's bin lock (and pin a virtual thread) across it
+        Item item = itemRepository.findById(itemId)
+                .orElseThrow(() -> new ResourceNotFoundException("Item", itemId));
+        return counters.computeIfAbsent(itemId, id -> new StripedCounter(stripes, item.getStock()));
+    }
+    
+    // Caller holds flushLock and the counter's lock, so no flush is in flight and no till is
+    // adjusting flushedStock
+    private void resync(Long itemId, StripedCounter counter) {
+        Integer persisted = itemRepository.findById(itemId).map(Item::getStock).orElse(null);
+        if (persisted == null) {
+            counters.remove(itemId);
+            return;
+        }
+        int available = counter.available();
+        int pending = available - counter.flushedStock;
+        long target = (long) persisted + pending;
+        if (target < 0 || target > Integer.MAX_VALUE) {
+            log.warn("Hot stock for item {} cannot absorb {} pending units; discarding the excess", itemId, pending);
+            target = Math.max(0, Math.min(target, Integer.MAX_VALUE));
+        }
+        counter.correct((int) target - available);
+        counter.flushedStock = persisted;
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    // Available stock split across stripes so concurrent tills rarely contend on the same cell;
+    // every stripe is guarded so it never drops below zero
+    static class StripedCounter {
+        private final AtomicInteger[] cells;
+        private final int mask;
+        
+        // A lock rather than a monitor: resync queries the database while holding it, and a virtual
+        // thread blocked inside synchronized would pin its carrier thread
+        final ReentrantLock lock = new ReentrantLock();
+        
+        // Stock as last written to the database; guarded by lock
+        private int flushedStock;
+        
+        StripedCounter(int requestedStripes, int stock) {
+            // Round up to a power of two so the home stripe is a cheap mask of the thread's hash
+            int stripes = 1;
+            while (stripes < requestedStripes) {
+                stripes <<= 1;
+            }
+            this.cells = new AtomicInteger[stripes];
+            this.mask = stripes - 1;
+            for (int i = 0; i < stripes; i++) {
+                cells[i] = new AtomicInteger(stock / stripes + (i < stock % stripes ? 1 : 0));
+            }
+            this.flushedStock = stock;
+        }
+        
+        // Give back or correct stock; callers only return what fits in an int
+        void add(int amount) {
+            if (amount < 0) {
+                throw new IllegalArgumentException("amount must not be negative: " + amount);
+            }
+            cells[home()].getAndUpdate(current -> Math.addExact(current, amount));
+        }
+        
+        // Restock unless the total would pass Integer.MAX_VALUE; restocks take the lock so the check
+        // and the add are not interleaved with another restock
+        boolean tryAdd(int amount) {
+            lock.lock();
+            try {
+                if ((long) available() + amount > Integer.MAX_VALUE) {
+                    return false;
+                }
+                add(amount);
+                return true;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        // Take from the home stripe first, then from the others. A sweep can miss stock that another
+        // till's sweep is moving between stripes, so a failed sweep is retried under the lock for as
+        // long as the summed total still covers the amount; only a real shortage is rejected.
+        boolean tryTake(int amount) {
+            if (amount < 0) {
+                throw new IllegalArgumentException("amount must not be negative: " + amount);
+            }
+            if (sweep(amount)) {
+                return true;
+            }
+            lock.lock();
+            try {
+                while (available() >= amount) {
+                    if (sweep(amount)) {
+                        return true;
+                    }
+                    Thread.onSpinWait();
+                }
+                return false;
+            } finally {
+                lock.unlock();
+            }
+        }
+        
+        // One pass over the stripes; gives everything back if it could not take the whole amount
+        private boolean sweep(int amount) {
+            int start = home();
+            int remaining = amount;
+            int[] taken = new int[cells.length];
+            for (int i = 0; i < cells.length && remaining > 0; i++) {
+                int index = (start + i) & mask;
+                AtomicInteger cell = cells[index];
+                while (true) {
+                    int current = cell.get();
+                    int take = Math.min(current, remaining);
+                    if (take == 0) {
+                        break;
+                    }
+                    if (cell.compareAndSet(current, current - take)) {
+                        taken[index] += take;
+                        remaining -= take;
+                        break;
+                    }
+                }
+            }
+            if (remaining > 0) {
+                for (int i = 0; i < cells.length; i++) {
+                    if (taken[i] > 0) {
+                        cells[i].addAndGet(taken[i]);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+        
+        // Apply an external correction; negative corrections drain stripes without going below zero
+        void correct(int amount) {
+            if (amount >= 0) {
+                add(amount);
+                return;
+            }
+            int remaining = -amount;
+            for (int i = 0; i < cells.length && remaining > 0; i++) {
+                while (true) {
+                    int current = cells[i].get();
+                    int take = Math.min(current, remaining);
+                    if (take == 0 || cells[i].compareAndSet(current, current - take)) {
+                        remaining -= take;
+                        break;
+                    }
+                }
+            }
+        }
+        
+        // Summed as a long: a release racing a capped restock can briefly push the stripes past the int range
+        int available() {
+            long sum = 0;
+            for (AtomicInteger cell : cells) {
+                sum += cell.get();
+            }
+            return (int) Math.min(sum, Integer.MAX_VALUE);
+        }
+        
+        private int home() {
+            int hash = System.identityHashCode(Thread.currentThread());
+            return (hash ^ (hash >>> 16)) & mask;
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Dashboard and per-category totals kept in memory and adjusted on every committed write
+@Service
+public class InventoryAggregateService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InventoryAggregateService.class);
+    
+    public static final int LOW_STOCK_THRESHOLD = 10;
+    
+    private static final int MAX_RELOAD_ATTEMPTS = 3;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private final Object lock = new Object();
+    private final Map<Long, CategoryRollup> categories = new TreeMap<>();
+    private long itemCount;
+    private long totalStock;
+    private BigDecimal totalValue = BigDecimal.ZERO;
+    private long lowStockCount;
+    
+    // Orders commits against reloads. A write takes an epoch just before its database commit
+    // (prepared) and another when its delta is applied; a reload takes one on each side of the
+    // query that fixes its snapshot. Pending holds the prepared epochs of commits whose delta has not
+    // been applied yet; the buffer holds deltas applied while a reload runs. All guarded by lock.
+    private final AtomicLong epoch = new AtomicLong();
+    private final TreeSet<Long> pending = new TreeSet<>();
+    private List<Delta> reloadBuffer;
+    
+    // Load totals before the application starts serving requests
+    @PostConstruct
+    public void initialize() {
+        reload();
+    }
+    
+    // Recompute from the database to correct any drift from writes that bypassed the services
+    @Scheduled(fixedDelayString = "${sweetshop.aggregates.reconcile-interval-ms:300000}",
+               initialDelayString = "${sweetshop.aggregates.reconcile-interval-ms:300000}")
+    public void reconcile() {
+        DashboardTotals before = totals();
+        reload();
+        DashboardTotals after = totals();
+        if (!before.equals(after)) {
+            log.warn("Inventory aggregates drifted from the database: {} -> {}", before, after);
+            inventoryVersion.changed();
+        }
+    }
+    
+    // Replace the totals with a database snapshot. Writes keep being applied while it is read; the
+    // ones the snapshot cannot have seen are replayed on top of it, and if a commit raced the start of
+    // the snapshot, so that it is unknown whether the snapshot includes it, the reload is retried.
+    public void reload() {
+        for (int attempt = 1; attempt <= MAX_RELOAD_ATTEMPTS; attempt++) {
+            if (tryReload()) {
+                return;
+            }
+        }
+        log.warn("Inventory aggregates not reloaded: writes kept racing the snapshot {} times", MAX_RELOAD_ATTEMPTS);
+    }
+    
+    // Reads in a read-write transaction so they hit the primary; totals from a lagging replica
+    // would look like drift and overwrite correct values. Repeatable read keeps the low-stock count
+    // on the snapshot that the rollup query, the first read, fixed.
+    private boolean tryReload() {
+        synchronized (lock) {
+            reloadBuffer = new ArrayList<>();
+        }
+        try {
+            TransactionTemplate snapshotTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+            snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+            Map<Long, CategoryRollup> loaded = new TreeMap<>();
+            long[] snapshotEpochs = new long[2];
+            long lowStock = snapshotTemplate.execute(status -> {
+                snapshotEpochs[0] = epoch.incrementAndGet();
+                List<Object[]> rows = categoryRepository.getCategoryRollups();
+                snapshotEpochs[1] = epoch.incrementAndGet();
+                for (Object[] row : rows) {
+                    CategoryRollup rollup = new CategoryRollup((String) row[1]);
+                    rollup.itemCount = ((Number) row[2]).longValue();
+                    rollup.totalStock = ((Number) row[3]).longValue();
+                    rollup.totalValue = toBigDecimal(row[4]);
+                    loaded.put((Long) row[0], rollup);
+                }
+                return itemRepository.countByStockLessThan(LOW_STOCK_THRESHOLD);
+            });
+            
+            synchronized (lock) {
+                long started = snapshotEpochs[0];
+                long fixed = snapshotEpochs[1];
+                // A commit prepared before the snapshot was fixed is still applying its delta
+                if (!pending.isEmpty() && pending.first() <= fixed) {
+                    return false;
+                }
+                List<Delta> missed = new ArrayList<>();
+                for (Delta delta : reloadBuffer) {
+                    if (delta.prepared > fixed) {
+                        missed.add(delta);
+                    } else if (delta.applied > started) {
+                        return false;
+                    }
+                }
+                
+                categories.clear();
+                categories.putAll(loaded);
+                itemCount = 0;
+                totalStock = 0;
+                totalValue = BigDecimal.ZERO;
+                for (CategoryRollup rollup : loaded.values()) {
+                    itemCount += rollup.itemCount;
+                    totalStock += rollup.totalStock;
+                    totalValue = totalValue.add(rollup.totalValue);
+                }
+                lowStockCount = lowStock;
+                missed.forEach(delta -> delta.change.run());
+                return true;
+            }
+        } finally {
+            synchronized (lock) {
+                reloadBuffer = null;
+            }
+        }
+    }
+    
+    // Record an item write; before is null for creates and after is null for deletes
+    public void itemChanged(ItemState before, ItemState after) {
+        afterCommit(() -> {
+            if (before != null) {
+                apply(before, -1);
+            }
+            if (after != null) {
+                apply(after, 1);
+            }
+        });
+    }
+    
+    // Record a bulk write as one change; before and after hold the same items in the same order
+    public void itemsChanged(List<ItemState> before, List<ItemState> after) {
+        afterCommit(() -> {
+            before.forEach(state -> apply(state, -1));
+            after.forEach(state -> apply(state, 1));
+        });
+    }
+    
+    // Record a created or renamed category
+    public void categoryChanged(Category category) {
+        Long id = category.getId();
+        String name = category.getName();
+        afterCommit(() -> categories.computeIfAbsent(id, key -> new CategoryRollup(name)).name = name);
+    }
+    
+    // Record a deleted category; only empty categories can be deleted
+    public void categoryRemoved(Long id) {
+        afterCommit(() -> categories.remove(id));
+    }
+    
+    public ItemService.DashboardStats getDashboardStats() {
+        synchronized (lock) {
+            return new ItemService.DashboardStats(itemCount, totalStock, totalValue, (int) lowStockCount);
+        }
+    }
+    
+    public List<CategoryService.CategoryStats> getCategoryStatistics() {
+        synchronized (lock) {
+            List<CategoryService.CategoryStats> stats = new ArrayList<>(categories.size());
+            for (CategoryRollup rollup : categories.values()) {
+                stats.add(new CategoryService.CategoryStats(rollup.name, rollup.itemCount,
+                                                            rollup.totalStock, rollup.totalValue));
+            }
+            return stats;
+        }
+    }
+    
+    private void apply(ItemState state, int sign) {
+        BigDecimal value = state.price.multiply(BigDecimal.valueOf(state.stock));
+        itemCount += sign;
+        totalStock += (long) sign * state.stock;
+        totalValue = sign > 0 ? totalValue.add(value) : totalValue.subtract(value);
+        if (state.stock < LOW_STOCK_THRESHOLD) {
+            lowStockCount += sign;
+        }
+        CategoryRollup rollup = categories.computeIfAbsent(state.categoryId, key -> new CategoryRollup(state.categoryName));
+        rollup.itemCount += sign;
+        rollup.totalStock += (long) sign * state.stock;
+        rollup.totalValue = sign > 0 ? rollup.totalValue.add(value) : rollup.totalValue.subtract(value);
+    }
+    
+    private DashboardTotals totals() {
+        synchronized (lock) {
+            return new DashboardTotals(itemCount, totalStock, totalValue, lowStockCount);
+        }
+    }
+    
+    // Apply in-memory changes only once the write is durable; rolled back writes never count.
+    // A change made outside a transaction is already in the database, so it is treated as prepared
+    // before any snapshot.
+    private void afterCommit(Runnable change) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                private long prepared;
+                
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    synchronized (lock) {
+                        prepared = epoch.incrementAndGet();
+                        pending.add(prepared);
+                    }
+                }
+                
+                @Override
+                public void afterCommit() {
+                    applyDelta(prepared, change);
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    synchronized (lock) {
+                        pending.remove(prepared);
+                    }
+                }
+            });
+        } else {
+            applyDelta(0, change);
+        }
+    }
+    
+    private void applyDelta(long prepared, Runnable change) {
+        synchronized (lock) {
+            pending.remove(prepared);
+            change.run();
+            if (reloadBuffer != null) {
+                reloadBuffer.add(new Delta(prepared, epoch.incrementAndGet(), change));
+            }
+        }
+    }
+    
+    private static BigDecimal toBigDecimal(Object value) {
+        return value instanceof BigDecimal ? (BigDecimal) value : new BigDecimal(value.toString());
+    }
+    
+    // Values of an item that feed the aggregates, captured before or after a write
+    public static class ItemState {
+        private final Long categoryId;
+        private final String categoryName;
+        private final int stock;
+        private final BigDecimal price;
+        
+        public ItemState(Long categoryId, String categoryName, int stock, BigDecimal price) {
+            this.categoryId = categoryId;
+            this.categoryName = categoryName;
+            this.stock = stock;
+            this.price = price;
+        }
+        
+        public static ItemState of(Item item) {
+            return new ItemState(item.getCategory().getId(), item.getCategory().getName(),
+                                 item.getStock(), item.getPrice());
+        }
+        
+        public Long getCategoryId() { return categoryId; }
+        public String getCategoryName() { return categoryName; }
+        public int getStock() { return stock; }
+        public BigDecimal getPrice() { return price; }
+    }
+    
+    private static class Delta {
+        private final long prepared;
+        private final long applied;
+        private final Runnable change;
+        
+        Delta(long prepared, long applied, Runnable change) {
+            this.prepared = prepared;
+            this.applied = applied;
+            this.change = change;
+        }
+    }
+    
+    private static class CategoryRollup {
+        private String name;
+        private long itemCount;
+        private long totalStock;
+        private BigDecimal totalValue = BigDecimal.ZERO;
+        
+        CategoryRollup(String name) {
+            this.name = name;
+        }
+    }
+    
+    private static class DashboardTotals {
+        private final long itemCount;
+        private final long totalStock;
+        private final BigDecimal totalValue;
+        private final long lowStockCount;
+        
+        DashboardTotals(long itemCount, long totalStock, BigDecimal totalValue, long lowStockCount) {
+            this.itemCount = itemCount;
+            this.totalStock = totalStock;
+            this.totalValue = totalValue;
+            this.lowStockCount = lowStockCount;
+        }
+        
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof DashboardTotals)) {
+                return false;
+            }
+            DashboardTotals other = (DashboardTotals) o;
+            return itemCount == other.itemCount && totalStock == other.totalStock
+                    && lowStockCount == other.lowStockCount && totalValue.compareTo(other.totalValue) == 0;
+        }
+        
+        @Override
+        public int hashCode() {
+            return Objects.hash(itemCount, totalStock, lowStockCount, totalValue.stripTrailingZeros());
+        }
+        
+        @Override
+        public String toString() {
+            return "{items=" + itemCount + ", stock=" + totalStock + ", value=" + totalValue +
+                   ", lowStock=" + lowStockCount + "}";
+        }
+    }
+}
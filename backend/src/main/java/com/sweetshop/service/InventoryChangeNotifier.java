@@ -0,0 +1,148 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// The one place that tells every in-memory view about a write: aggregates, search index, suggestions,
+// change feed, live events, hot-stock counters and the inventory version. Each view applies the
+// change only once the surrounding transaction commits, so writers call this before returning.
+@Service
+public class InventoryChangeNotifier {
+    
+    @Autowired
+    private InventoryAggregateService inventoryAggregates;
+    
+    @Autowired
+    private ItemSearchIndex searchIndex;
+    
+    @Autowired
+    private SuggestService suggestService;
+    
+    @Autowired
+    private ChangeLogService changeLog;
+    
+    @Autowired
+    private InventoryEventService inventoryEvents;
+    
+    @Autowired
+    private HotStockService hotStockService;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    // Item created (before is null) or rewritten by an update
+    public void itemSaved(InventoryAggregateService.ItemState before, Item item) {
+        notifyItemSaved(before, item);
+        inventoryVersion.changed();
+    }
+    
+    // Items created or rewritten by an import batch; before holds the state of those that existed
+    public void itemsSaved(Map<Item, InventoryAggregateService.ItemState> before, Iterable<Item> items) {
+        for (Item item : items) {
+            notifyItemSaved(before.get(item), item);
+        }
+        inventoryVersion.changed();
+    }
+    
+    // Row stock of an item changed by a checkout or a delta; only the stock differs between the states
+    public void stockChanged(Long id, InventoryAggregateService.ItemState before,
+                             InventoryAggregateService.ItemState after) {
+        inventoryAggregates.itemChanged(before, after);
+        suggestService.stockChanged(id, after.getStock());
+        changeLog.itemChanged(id);
+        // Hot items already announced their live stock; the flushed row value may lag behind it
+        if (!hotStockService.isHot(id)) {
+            inventoryEvents.itemChanged(id, after.getStock(), after.getPrice(), after.getCategoryId());
+        }
+        inventoryVersion.changed();
+    }
+    
+    // Buffered stock of a hot item changed; its row and change log entry follow at the next flush
+    // (see stockChanged), but the event stream already serves the live stock. Price and category may
+    // be null when the writer does not know them.
+    public void hotStockChanged(Long id, int liveStock, BigDecimal price, Long categoryId) {
+        inventoryEvents.itemChanged(id, liveStock, price, categoryId);
+        inventoryVersion.changed();
+    }
+    
+    // Bulk price or stock change; before and after hold the changed items in the order of ids.
+    // Names and descriptions are untouched, so the search index needs no update.
+    public void itemsChanged(List<Long> ids, List<InventoryAggregateService.ItemState> before,
+                             List<InventoryAggregateService.ItemState> after, boolean stockSet) {
+        inventoryAggregates.itemsChanged(before, after);
+        if (stockSet) {
+            Map<Long, Integer> stocks = new LinkedHashMap<>();
+            for (int i = 0; i < ids.size(); i++) {
+                stocks.put(ids.get(i), after.get(i).getStock());
+            }
+            suggestService.stocksChanged(stocks);
+            ids.forEach(hotStockService::resyncAfterCommit);
+        }
+        changeLog.itemsChanged(ids);
+        inventoryVersion.changed();
+        // After the version bump, so a resync names the version that includes this write
+        if (!inventoryEvents.resyncForBulkChange(ids.size())) {
+            for (int i = 0; i < ids.size(); i++) {
+                Long id = ids.get(i);
+                InventoryAggregateService.ItemState state = after.get(i);
+                // The row value of a hot item may lag behind its live stock; leave it out unless it was just set
+                Integer stock = stockSet || !hotStockService.isHot(id) ? state.getStock() : null;
+                inventoryEvents.itemChanged(id, stock, state.getPrice(), state.getCategoryId());
+            }
+        }
+    }
+    
+    public void itemRemoved(Item item) {
+        Long id = item.getId();
+        inventoryAggregates.itemChanged(InventoryAggregateService.ItemState.of(item), null);
+        searchIndex.itemChanged(id, null);
+        suggestService.itemChanged(id, null);
+        changeLog.itemRemoved(id);
+        inventoryEvents.itemRemoved(id);
+        hotStockService.removeAfterCommit(id);
+        inventoryVersion.changed();
+    }
+    
+    // Category created or updated; item rows in the change feed carry the category name, so a
+    // rename lists the ids of the category's items to mark them changed as well
+    public void categorySaved(Category category, List<Long> renamedItemIds) {
+        inventoryAggregates.categoryChanged(category);
+        suggestService.categoryChanged(category);
+        changeLog.categoryChanged(category.getId());
+        if (!renamedItemIds.isEmpty()) {
+            changeLog.itemsChanged(renamedItemIds);
+        }
+        inventoryEvents.categoryChanged(category);
+        inventoryVersion.changed();
+    }
+    
+    public void categorySaved(Category category) {
+        categorySaved(category, List.of());
+    }
+    
+    // Only empty categories can be deleted, so no item views change
+    public void categoryRemoved(Long id) {
+        inventoryAggregates.categoryRemoved(id);
+        suggestService.categoryRemoved(id);
+        changeLog.categoryRemoved(id);
+        inventoryEvents.categoryRemoved(id);
+        inventoryVersion.changed();
+    }
+    
+    private void notifyItemSaved(InventoryAggregateService.ItemState before, Item item) {
+        Long id = item.getId();
+        inventoryAggregates.itemChanged(before, InventoryAggregateService.ItemState.of(item));
+        searchIndex.itemChanged(id, item);
+        suggestService.itemChanged(id, item);
+        changeLog.itemChanged(id);
+        inventoryEvents.itemChanged(id, item.getStock(), item.getPrice(), item.getCategory().getId());
+        hotStockService.resyncAfterCommit(id);
+    }
+}
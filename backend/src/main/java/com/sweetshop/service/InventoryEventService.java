@@ -0,0 +1,412 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.model.Category;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Server-sent change events for items and categories, published after commit. Each subscriber
+// has a bounded buffer drained by a small shared sender pool; a subscriber that falls behind
+// loses its buffered events and gets a single "resync" event telling it to reload over REST.
+// A send blocked past its deadline drops the subscriber and hands its sender thread's slot to a new
+// thread, so clients that stop reading cannot hold up everyone else. The pool never grows past
+// max-sender-threads; while a blocked send has no replacement, new subscribers are turned away.
+@Service
+public class InventoryEventService {
+    
+    private static final Logger log = LoggerFactory.getLogger(InventoryEventService.class);
+    
+    @Value("${sweetshop.events.buffer-size:256}")
+    private int bufferSize;
+    
+    @Value("${sweetshop.events.max-subscribers:10000}")
+    private int maxSubscribers;
+    
+    @Value("${sweetshop.events.timeout-ms:1800000}")
+    private long timeoutMs;
+    
+    @Value("${sweetshop.events.send-timeout-ms:5000}")
+    private long sendTimeoutMs;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong subscriberIds = new AtomicLong();
+    private final AtomicLong eventIds = new AtomicLong();
+    private final AtomicLong resyncs = new AtomicLong();
+    private final AtomicInteger senderThreads = new AtomicInteger();
+    private final ThreadPoolExecutor senders;
+    private final int baseSenders;
+    private final int maxSenders;
+    
+    // Sends blocked past the deadline that have not returned yet; guarded by senders
+    private int blockedSends;
+    
+    public InventoryEventService(@Value("${sweetshop.events.sender-threads:4}") int threads,
+                                 @Value("${sweetshop.events.max-sender-threads:16}") int maxThreads) {
+        if (maxThreads < threads) {
+            throw new IllegalArgumentException("sweetshop.events.max-sender-threads (" + maxThreads
+                    + ") must not be less than sweetshop.events.sender-threads (" + threads + ")");
+        }
+        baseSenders = threads;
+        maxSenders = maxThreads;
+        senders = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "inventory-events-" + senderThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+    
+    // Register a new subscriber; empty when the node already serves its maximum, or when blocked
+    // sends hold sender threads the pool is not allowed to replace
+    public Optional<SseEmitter> subscribe() {
+        if (subscribers.size() >= maxSubscribers || sendersExhausted()) {
+            return Optional.empty();
+        }
+        SseEmitter emitter = createEmitter();
+        Subscriber subscriber = new Subscriber(subscriberIds.incrementAndGet(), emitter);
+        subscribers.put(subscriber.id, subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber.id));
+        emitter.onTimeout(() -> subscribers.remove(subscriber.id));
+        emitter.onError(error -> subscribers.remove(subscriber.id));
+        
+        // Tell the client which inventory version the stream starts from
+        subscriber.enqueue(frame(versionEvent("ready")));
+        return Optional.of(emitter);
+    }
+    
+    // Separate so tests can stand in a client that reads slowly
+    SseEmitter createEmitter() {
+        return new SseEmitter(timeoutMs);
+    }
+    
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+    
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+    
+    // Item written; any value may be null when the writer does not know it (e.g. buffered hot stock)
+    public void itemChanged(Long id, Integer stock, BigDecimal price, Long categoryId) {
+        InventoryEvent event = new InventoryEvent("item", id);
+        event.stock = stock;
+        event.price = price;
+        event.categoryId = categoryId;
+        publishAfterCommit(event);
+    }
+    
+    // Bulk write of more items than a subscriber buffers: every subscriber would overflow anyway, so
+    // they all get one resync after commit instead. Returns false when per-item events should be sent
+    public boolean resyncForBulkChange(int changedItems) {
+        if (changedItems <= bufferSize) {
+            return false;
+        }
+        Runnable resync = () -> {
+            if (!subscribers.isEmpty()) {
+                publish(versionEvent("resync"));
+                resyncs.addAndGet(subscribers.size());
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    resync.run();
+                }
+            });
+        } else {
+            resync.run();
+        }
+        return true;
+    }
+    
+    public void itemRemoved(Long id) {
+        InventoryEvent event = new InventoryEvent("item", id);
+        event.deleted = Boolean.TRUE;
+        publishAfterCommit(event);
+    }
+    
+    public void categoryChanged(Category category) {
+        InventoryEvent event = new InventoryEvent("category", category.getId());
+        event.name = category.getName();
+        publishAfterCommit(event);
+    }
+    
+    public void categoryRemoved(Long id) {
+        InventoryEvent event = new InventoryEvent("category", id);
+        event.deleted = Boolean.TRUE;
+        publishAfterCommit(event);
+    }
+    
+    // Keep idle connections open through proxies and notice clients that went away
+    @Scheduled(fixedDelayString = "${sweetshop.events.heartbeat-interval-ms:15000}")
+    public void heartbeat() {
+        Frame heartbeat = new Frame(null, null, null);
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.offerIfRoom(heartbeat);
+        }
+    }
+    
+    // Drop subscribers whose current send has been blocked past the deadline; the blocked thread is
+    // replaced until its write returns, and the emitter is completed then
+    @Scheduled(fixedDelayString = "${sweetshop.events.send-check-interval-ms:1000}")
+    public void dropStalledSubscribers() {
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.dropIfSendingSince(deadline);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        subscribers.values().forEach(subscriber -> subscriber.emitter.complete());
+        subscribers.clear();
+        senders.shutdownNow();
+    }
+    
+    private void publishAfterCommit(InventoryEvent event) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(event);
+                }
+            });
+        } else {
+            publish(event);
+        }
+    }
+    
+    private void publish(InventoryEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        // Serialized once and shared by every subscriber's buffer
+        Frame frame = frame(event);
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.enqueue(frame);
+        }
+    }
+    
+    private InventoryEvent versionEvent(String type) {
+        InventoryEvent event = new InventoryEvent(type, null);
+        event.version = inventoryVersion.getVersion();
+        return event;
+    }
+    
+    private Frame frame(InventoryEvent event) {
+        try {
+            return new Frame(String.valueOf(eventIds.incrementAndGet()), event.type, objectMapper.writeValueAsString(event));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize inventory event", e);
+        }
+    }
+    
+    // One more sender thread while a stalled one is blocked in its write, unless the pool is at its
+    // cap; returns whether the thread was added
+    private boolean sendBlocked() {
+        synchronized (senders) {
+            blockedSends++;
+            if (senders.getMaximumPoolSize() >= maxSenders) {
+                return false;
+            }
+            senders.setMaximumPoolSize(senders.getMaximumPoolSize() + 1);
+            senders.setCorePoolSize(senders.getCorePoolSize() + 1);
+            return true;
+        }
+    }
+    
+    // A blocked send returned; one less sender thread if one was added for it
+    private void blockedSendReturned(boolean replaced) {
+        synchronized (senders) {
+            blockedSends--;
+            if (replaced) {
+                senders.setCorePoolSize(senders.getCorePoolSize() - 1);
+                senders.setMaximumPoolSize(senders.getMaximumPoolSize() - 1);
+            }
+        }
+    }
+    
+    // Some blocked send has no replacement thread, so fewer than sender-threads are sending
+    private boolean sendersExhausted() {
+        synchronized (senders) {
+            return blockedSends > senders.getMaximumPoolSize() - baseSenders;
+        }
+    }
+    
+    private class Subscriber {
+        private final long id;
+        private final SseEmitter emitter;
+        private final ArrayBlockingQueue<Frame> buffer = new ArrayBlockingQueue<>(bufferSize);
+        private final AtomicBoolean draining = new AtomicBoolean();
+        // System.nanoTime() when the current send started, 0 between sends
+        private volatile long sendingSince;
+        private volatile boolean stalled;
+        // A sender thread was added while this subscriber's send is blocked; guarded by this
+        private boolean replaced;
+        
+        Subscriber(long id, SseEmitter emitter) {
+            this.id = id;
+            this.emitter = emitter;
+        }
+        
+        // Full buffer: drop everything queued and send one resync instead
+        synchronized void enqueue(Frame frame) {
+            if (stalled) {
+                return;
+            }
+            if (!buffer.offer(frame)) {
+                buffer.clear();
+                buffer.offer(frame(versionEvent("resync")));
+                resyncs.incrementAndGet();
+            }
+            scheduleDrain();
+        }
+        
+        synchronized void offerIfRoom(Frame frame) {
+            if (!stalled && buffer.offer(frame)) {
+                scheduleDrain();
+            }
+        }
+        
+        private void scheduleDrain() {
+            if (draining.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+        
+        synchronized void dropIfSendingSince(long deadline) {
+            long since = sendingSince;
+            if (stalled || since == 0 || since - deadline > 0) {
+                return;
+            }
+            stalled = true;
+            subscribers.remove(id);
+            buffer.clear();
+            replaced = sendBlocked();
+            if (replaced) {
+                log.debug("Dropping event subscriber {}: send blocked for more than {} ms", id, sendTimeoutMs);
+            } else {
+                log.warn("Dropping event subscriber {}: send blocked for more than {} ms and all {} sender threads "
+                         + "are in use; refusing new subscribers until blocked sends return", id, sendTimeoutMs, maxSenders);
+            }
+        }
+        
+        // At most one sender per subscriber at a time, so events stay in order
+        private void drain() {
+            do {
+                Frame frame;
+                while (!stalled && (frame = buffer.poll()) != null) {
+                    sendingSince = System.nanoTime();
+                    try {
+                        emitter.send(frame.toEvent());
+                    } catch (IOException | IllegalStateException e) {
+                        // Client went away; the emitter callbacks may not fire for a dead socket
+                        subscribers.remove(id);
+                        buffer.clear();
+                        log.debug("Dropping event subscriber {}: {}", id, e.getMessage());
+                        return;
+                    } finally {
+                        if (sendReturned()) {
+                            release();
+                        }
+                    }
+                }
+                draining.set(false);
+            } while (!stalled && !buffer.isEmpty() && draining.compareAndSet(false, true));
+        }
+        
+        // Under the same lock as the deadline check, so a send is either dropped or done, never both
+        private synchronized boolean sendReturned() {
+            sendingSince = 0;
+            return stalled;
+        }
+        
+        // The stalled send has returned: give back the extra thread, if any, and end the stream
+        private void release() {
+            boolean added;
+            synchronized (this) {
+                added = replaced;
+            }
+            blockedSendReturned(added);
+            emitter.complete();
+        }
+    }
+    
+    // Pre-serialized event; SseEventBuilder is stateful, so each send builds its own
+    private static class Frame {
+        private final String id;
+        private final String name;
+        private final String data;
+        
+        Frame(String id, String name, String data) {
+            this.id = id;
+            this.name = name;
+            this.data = data;
+        }
+        
+        SseEmitter.SseEventBuilder toEvent() {
+            if (data == null) {
+                return SseEmitter.event().comment("heartbeat");
+            }
+            return SseEmitter.event().id(id).name(name).data(data);
+        }
+    }
+    
+    // Inner class for the compact event payload; unset fields are left out of the JSON.
+    // version is only set on ready and resync: the inventory version to reload from
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class InventoryEvent {
+        private final String type;
+        private final Long id;
+        private Integer stock;
+        private BigDecimal price;
+        private Long categoryId;
+        private String name;
+        private Boolean deleted;
+        private Long version;
+        
+        public InventoryEvent(String type, Long id) {
+            this.type = type;
+            this.id = id;
+        }
+        
+        public String getType() { return type; }
+        public Long getId() { return id; }
+        public Integer getStock() { return stock; }
+        public BigDecimal getPrice() { return price; }
+        public Long getCategoryId() { return categoryId; }
+        public String getName() { return name; }
+        public Boolean getDeleted() { return deleted; }
+        public Long getVersion() { return version; }
+    }
+}
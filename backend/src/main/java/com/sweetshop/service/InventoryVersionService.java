@@ -0,0 +1,85 @@
+package com.sweetshop.service;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+// Monotonic version of everything the read endpoints return; any committed write bumps it,
+// so an unchanged version means an unchanged response
+@Service
+public class InventoryVersionService {
+    
+    // Seeded from the clock (in microseconds) so the version keeps rising across restarts
+    // and an ETag handed out before a restart can never match afterwards
+    private final AtomicLong version = new AtomicLong(System.currentTimeMillis() * 1000);
+    
+    // Highest change log sequence number committed by this node or seen on the database, so tagging a
+    // replica read needs no query when the replica has caught up with it
+    private final AtomicLong position = new AtomicLong();
+    
+    public long getVersion() {
+        return version.get();
+    }
+    
+    public long getPosition() {
+        return position.get();
+    }
+    
+    // Strong ETag for the current version
+    public String getETag() {
+        return "\"" + version.get() + "\"";
+    }
+    
+    // Bump once the current transaction commits, so readers never see a new version with old data
+    public void changed() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            pending().bumps++;
+        } else {
+            version.incrementAndGet();
+        }
+    }
+    
+    // The current transaction logged changes up to seq; published together with its version bump
+    public void logged(long seq) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            PendingBump pending = pending();
+            pending.position = Math.max(pending.position, seq);
+        } else {
+            seen(seq);
+        }
+    }
+    
+    // A database has applied changes up to seq, possibly written by another node
+    public void seen(long seq) {
+        position.accumulateAndGet(seq, Math::max);
+    }
+    
+    private PendingBump pending() {
+        PendingBump pending = (PendingBump) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            PendingBump bound = new PendingBump();
+            TransactionSynchronizationManager.bindResource(this, bound);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    seen(bound.position);
+                    version.addAndGet(bound.bumps);
+                }
+                
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(InventoryVersionService.this);
+                }
+            });
+            pending = bound;
+        }
+        return pending;
+    }
+    
+    private static class PendingBump {
+        private int bumps;
+        private long position;
+    }
+}
@@ -0,0 +1,89 @@
+package com.sweetshop.service;
+
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.repository.ItemSummary;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+// Position in a keyset-paginated item listing, exchanged with clients as an opaque token
+public class ItemCursor {
+    
+    private static final String VERSION = "v1";
+    
+    private final String sortBy;
+    private final Sort.Direction direction;
+    private final Comparable<?> lastValue;
+    private final Long lastId;
+    
+    private ItemCursor(String sortBy, Sort.Direction direction, Comparable<?> lastValue, Long lastId) {
+        this.sortBy = sortBy;
+        this.direction = direction;
+        this.lastValue = lastValue;
+        this.lastId = lastId;
+    }
+    
+    // Cursor positioned before the first row
+    public static ItemCursor first(String sortBy, Sort.Direction direction) {
+        return new ItemCursor(sortBy, direction, null, null);
+    }
+    
+    // Cursor positioned just after the given row
+    public ItemCursor after(ItemSummary item) {
+        return new ItemCursor(sortBy, direction, sortValue(item), item.getId());
+    }
+    
+    // Encode as version|sortBy|direction|id|value in URL-safe base64
+    public String encode() {
+        String raw = String.join("|", VERSION, sortBy, direction.name(),
+                String.valueOf(lastId), String.valueOf(lastValue));
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+    
+    public static ItemCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            // The value goes last so that names containing '|' survive the split
+            String[] parts = raw.split("\\|", 5);
+            if (parts.length != 5 || !VERSION.equals(parts[0])) {
+                throw new ValidationException("cursor", "is not a valid continuation token");
+            }
+            String sortBy = parts[1];
+            Sort.Direction direction = Sort.Direction.valueOf(parts[2]);
+            Long lastId = Long.valueOf(parts[3]);
+            return new ItemCursor(sortBy, direction, parseValue(sortBy, parts[4]), lastId);
+        } catch (IllegalArgumentException | java.time.DateTimeException e) {
+            throw new ValidationException("cursor", "is not a valid continuation token");
+        }
+    }
+    
+    private Comparable<?> sortValue(ItemSummary item) {
+        return switch (sortBy) {
+            case "id" -> item.getId();
+            case "name" -> item.getName();
+            case "stock" -> item.getStock();
+            case "price" -> item.getPrice();
+            case "createdAt" -> item.getCreatedAt();
+            default -> throw new ValidationException("sortBy", "is not sortable: " + sortBy);
+        };
+    }
+    
+    private static Comparable<?> parseValue(String sortBy, String value) {
+        return switch (sortBy) {
+            case "id" -> Long.valueOf(value);
+            case "name" -> value;
+            case "stock" -> Integer.valueOf(value);
+            case "price" -> new BigDecimal(value);
+            case "createdAt" -> LocalDateTime.parse(value);
+            default -> throw new IllegalArgumentException("Unknown sort field: " + sortBy);
+        };
+    }
+    
+    public String getSortBy() { return sortBy; }
+    public Sort.Direction getDirection() { return direction; }
+    public Comparable<?> getLastValue() { return lastValue; }
+    public Long getLastId() { return lastId; }
+}
@@ -0,0 +1,311 @@
+package com.sweetshop.service;
+
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+public class ItemImportService {
+    
+    // Rows written per transaction; matches the id allocation size and JDBC batch size
+    static final int BATCH_SIZE = 50;
+    
+    // Cap on per-row errors kept in the response; the failed count is always exact
+    static final int MAX_REPORTED_ERRORS = 1000;
+    
+    private static final List<String> REQUIRED_COLUMNS = List.of("name", "category", "stock", "price", "description");
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private ItemService itemService;
+    
+    @Autowired
+    private InventoryChangeNotifier inventoryChanges;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private Validator validator;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Read CSV records incrementally and upsert them by item name, one transaction per batch
+    public ImportResult importItems(Reader input) throws IOException {
+        CsvReader csv = new CsvReader(input);
+        Map<String, Integer> columns = readHeader(csv.readRecord());
+        
+        ImportResult result = new ImportResult();
+        List<ImportRow> batch = new ArrayList<>(BATCH_SIZE);
+        List<String> record;
+        while ((record = readRecord(csv, result)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            result.processed++;
+            ImportRow row = parseRow(csv.getRecordLine(), record, columns, result);
+            if (row != null) {
+                batch.add(row);
+            }
+            if (batch.size() == BATCH_SIZE) {
+                writeBatch(batch, result);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            writeBatch(batch, result);
+        }
+        return result;
+    }
+    
+    // Next record, or null at end of input; a malformed last record is reported as a row error
+    private List<String> readRecord(CsvReader csv, ImportResult result) throws IOException {
+        try {
+            return csv.readRecord();
+        } catch (CsvReader.MalformedRecordException e) {
+            result.processed++;
+            result.addError(e.getLine(), e.getMessage());
+            return null;
+        }
+    }
+    
+    private Map<String, Integer> readHeader(List<String> header) {
+        if (header == null) {
+            throw new ValidationException("Import file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        for (String column : REQUIRED_COLUMNS) {
+            if (!columns.containsKey(column)) {
+                throw new ValidationException("Import header must contain columns " + REQUIRED_COLUMNS);
+            }
+        }
+        return columns;
+    }
+    
+    // Parse and validate one record; failures are recorded and null is returned
+    private ImportRow parseRow(long line, List<String> record, Map<String, Integer> columns, ImportResult result) {
+        try {
+            ImportRow row = new ImportRow(line,
+                    field(record, columns, "name"),
+                    field(record, columns, "category"),
+                    Integer.valueOf(field(record, columns, "stock")),
+                    new BigDecimal(field(record, columns, "price")),
+                    field(record, columns, "description"));
+            
+            Category category = new Category(row.categoryName, "");
+            Item item = new Item(row.name, category, row.stock, row.price, row.description);
+            Set<ConstraintViolation<Object>> violations = new LinkedHashSet<>(validator.validate((Object) item));
+            violations.addAll(validator.validate((Object) category));
+            if (!violations.isEmpty()) {
+                result.addError(line, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .collect(Collectors.joining("; ")));
+                return null;
+            }
+            return row;
+        } catch (NumberFormatException e) {
+            result.addError(line, "Stock and price must be numeric");
+            return null;
+        } catch (IllegalArgumentException e) {
+            result.addError(line, e.getMessage());
+            return null;
+        }
+    }
+    
+    private String field(List<String> record, Map<String, Integer> columns, String column) {
+        int index = columns.get(column);
+        if (index >= record.size()) {
+            throw new IllegalArgumentException("Missing value for column '" + column + "'");
+        }
+        return record.get(index).trim();
+    }
+    
+    // Write the batch in one transaction; if it fails, retry row by row to isolate the bad rows
+    private void writeBatch(List<ImportRow> rows, ImportResult result) {
+        // A name repeated within the batch is written once, from its last row, as a sequential upsert would
+        Map<String, ImportRow> byName = new LinkedHashMap<>();
+        for (ImportRow row : rows) {
+            if (byName.remove(nameKey(row.name)) != null) {
+                result.duplicates++;
+            }
+            byName.put(nameKey(row.name), row);
+        }
+        List<ImportRow> batch = new ArrayList<>(byName.values());
+        try {
+            int[] counts = transactionTemplate.execute(status -> upsert(batch));
+            result.created += counts[0];
+            result.updated += counts[1];
+        } catch (RuntimeException batchFailure) {
+            for (ImportRow row : batch) {
+                try {
+                    int[] counts = transactionTemplate.execute(status -> upsert(List.of(row)));
+                    result.created += counts[0];
+                    result.updated += counts[1];
+                } catch (RuntimeException rowFailure) {
+                    result.addError(row.line, rootCauseMessage(rowFailure));
+                }
+            }
+        } finally {
+            entityManager.clear();
+        }
+    }
+    
+    // Resolve all categories and existing items for the batch with one query each, then write
+    private int[] upsert(List<ImportRow> rows) {
+        Map<String, Category> categories = new HashMap<>();
+        Set<String> categoryKeys = rows.stream()
+                .map(row -> row.categoryName.toLowerCase(Locale.ROOT))
+                .collect(Collectors.toSet());
+        for (Category category : categoryRepository.findByLowerNameIn(categoryKeys)) {
+            categories.put(category.getName().toLowerCase(Locale.ROOT), category);
+        }
+        
+        List<Category> newCategories = new ArrayList<>();
+        for (ImportRow row : rows) {
+            categories.computeIfAbsent(row.categoryName.toLowerCase(Locale.ROOT), key -> {
+                Category category = new Category(row.categoryName, "Auto-generated category");
+                newCategories.add(category);
+                return category;
+            });
+        }
+        categoryRepository.saveAll(newCategories);
+        newCategories.forEach(inventoryChanges::categorySaved);
+        
+        // Matched on lower-cased names, the same key the rows were deduplicated by, on every database
+        Map<String, Item> items = new HashMap<>();
+        Set<String> names = rows.stream().map(row -> nameKey(row.name)).collect(Collectors.toSet());
+        for (Item item : itemRepository.findByLowerNameIn(names)) {
+            items.putIfAbsent(nameKey(item.getName()), item);
+        }
+        
+        // Names are unique within the rows (see writeBatch), so each row creates or updates one item
+        int created = 0;
+        int updated = 0;
+        List<Item> newItems = new ArrayList<>();
+        Map<Item, InventoryAggregateService.ItemState> before = new IdentityHashMap<>();
+        for (ImportRow row : rows) {
+            Item item = items.get(nameKey(row.name));
+            if (item == null) {
+                item = new Item();
+                item.setName(row.name);
+                items.put(nameKey(row.name), item);
+                newItems.add(item);
+                created++;
+            } else {
+                before.put(item, InventoryAggregateService.ItemState.of(item));
+                updated++;
+            }
+            item.setCategory(categories.get(row.categoryName.toLowerCase(Locale.ROOT)));
+            item.setStock(row.stock);
+            item.setPrice(row.price);
+            item.setDescription(row.description);
+        }
+        itemRepository.saveAll(newItems);
+        entityManager.flush();
+        items.values().forEach(item -> itemService.evictCachedItem(item.getId()));
+        inventoryChanges.itemsSaved(before, items.values());
+        return new int[] {created, updated};
+    }
+    
+    private static String nameKey(String name) {
+        return name.toLowerCase(Locale.ROOT);
+    }
+    
+    private String rootCauseMessage(Throwable e) {
+        Throwable cause = e;
+        while (cause.getCause() != null && cause.getCause() != cause) {
+            cause = cause.getCause();
+        }
+        return cause.getMessage();
+    }
+    
+    // Parsed CSV record
+    private static class ImportRow {
+        private final long line;
+        private final String name;
+        private final String categoryName;
+        private final Integer stock;
+        private final BigDecimal price;
+        private final String description;
+        
+        ImportRow(long line, String name, String categoryName, Integer stock, BigDecimal price, String description) {
+            this.line = line;
+            this.name = name;
+            this.categoryName = categoryName;
+            this.stock = stock;
+            this.price = price;
+            this.description = description;
+        }
+    }
+    
+    // Inner class for import results
+    public static class ImportResult {
+        private long processed;
+        private long created;
+        private long updated;
+        private long duplicates;
+        private long failed;
+        private final List<RowError> errors = new ArrayList<>();
+        
+        void addError(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new RowError(line, message));
+            }
+        }
+        
+        public long getProcessed() { return processed; }
+        public long getCreated() { return created; }
+        public long getUpdated() { return updated; }
+        // Rows superseded by a later row of the same batch with the same name
+        public long getDuplicates() { return duplicates; }
+        public long getFailed() { return failed; }
+        public List<RowError> getErrors() { return errors; }
+    }
+    
+    // Inner class for a rejected row
+    public static class RowError {
+        private final long line;
+        private final String message;
+        
+        public RowError(long line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+        
+        public long getLine() { return line; }
+        public String getMessage() { return message; }
+    }
+}
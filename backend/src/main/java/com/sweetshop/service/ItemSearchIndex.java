@@ -0,0 +1,250 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// In-memory trigram index over item names (and optionally descriptions) that answers
+// substring searches without the full scan a leading-wildcard LIKE forces on the database
+@Service
+public class ItemSearchIndex {
+    
+    private static final Logger log = LoggerFactory.getLogger(ItemSearchIndex.class);
+    
+    @Value("${sweetshop.search-index.enabled:true}")
+    private boolean enabled;
+    
+    @Value("${sweetshop.search-index.include-descriptions:false}")
+    private boolean includeDescriptions;
+    
+    // Above this many matches an id list is no better than letting the database scan
+    @Value("${sweetshop.search-index.max-candidates:5000}")
+    private int maxCandidates;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, String> texts = new HashMap<>();
+    private final Map<Long, PostingList> postings = new HashMap<>();
+    
+    // Ids written while the initial build was streaming; the build must not overwrite them
+    private Set<Long> touchedDuringBuild = new HashSet<>();
+    private volatile boolean ready;
+    
+    // Build after startup; searches fall back to the database until the index is ready. Not read-only,
+    // so it reads the primary: rows a lagging replica has not applied yet would never be indexed
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void build() {
+        if (!enabled) {
+            return;
+        }
+        long started = System.currentTimeMillis();
+        try (Stream<Object[]> rows = itemRepository.streamSearchableText()) {
+            rows.forEach(row -> {
+                Long id = (Long) row[0];
+                String text = normalize((String) row[1], (String) row[2]);
+                lock.writeLock().lock();
+                try {
+                    if (!touchedDuringBuild.contains(id)) {
+                        put(id, text);
+                    }
+                } finally {
+                    lock.writeLock().unlock();
+                }
+            });
+        }
+        lock.writeLock().lock();
+        try {
+            touchedDuringBuild = null;
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Item search index built: {} items, {} trigrams in {} ms",
+                 texts.size(), postings.size(), System.currentTimeMillis() - started);
+    }
+    
+    public boolean isReady() {
+        return ready;
+    }
+    
+    // Ids of items whose indexed text contains the query, or empty if the index cannot help. Queries
+    // shorter than a trigram are left to the database: answering them here means scanning every
+    // indexed text while holding the read lock, which would also stall index writers.
+    public Optional<Set<Long>> findIds(String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        if (!ready || needle.length() < 3) {
+            return Optional.empty();
+        }
+        Set<Long> matches = new LinkedHashSet<>();
+        lock.readLock().lock();
+        try {
+            // Intersect from the rarest trigram, then verify to drop false positives
+            PostingList[] lists = new PostingList[needle.length() - 2];
+            for (int i = 0; i < lists.length; i++) {
+                PostingList list = postings.get(trigram(needle, i));
+                if (list == null) {
+                    return Optional.of(matches);
+                }
+                lists[i] = list;
+            }
+            Arrays.sort(lists, (a, b) -> Integer.compare(a.size, b.size));
+            PostingList smallest = lists[0];
+            for (int i = 0; i < smallest.size; i++) {
+                long id = smallest.ids[i];
+                boolean inAll = true;
+                for (int j = 1; j < lists.length && inAll; j++) {
+                    inAll = lists[j].contains(id);
+                }
+                if (inAll && texts.get(id).contains(needle) && !addWithinLimit(matches, id)) {
+                    return Optional.empty();
+                }
+            }
+            return Optional.of(matches);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Keep the index in step with committed item writes; item is null for deletes
+    public void itemChanged(Long id, Item item) {
+        if (!enabled) {
+            return;
+        }
+        String text = item != null ? normalize(item.getName(), item.getDescription()) : null;
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (touchedDuringBuild != null) {
+                    touchedDuringBuild.add(id);
+                }
+                remove(id);
+                if (text != null) {
+                    put(id, text);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    private boolean addWithinLimit(Set<Long> matches, Long id) {
+        matches.add(id);
+        return matches.size() <= maxCandidates;
+    }
+    
+    // Caller holds the write lock
+    private void put(Long id, String text) {
+        remove(id);
+        texts.put(id, text);
+        for (long gram : trigrams(text)) {
+            postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+        }
+    }
+    
+    // Caller holds the write lock
+    private void remove(Long id) {
+        String previous = texts.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (long gram : trigrams(previous)) {
+            PostingList list = postings.get(gram);
+            if (list != null && list.remove(id) && list.size == 0) {
+                postings.remove(gram);
+            }
+        }
+    }
+    
+    private String normalize(String name, String description) {
+        String text = name == null ? "" : name;
+        if (includeDescriptions && description != null) {
+            // The separator never appears in a query, so no trigram spans both fields
+            text = text + '\u0000' + description;
+        }
+        return text.toLowerCase(Locale.ROOT);
+    }
+    
+    private static Set<Long> trigrams(String text) {
+        Set<Long> grams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            grams.add(trigram(text, i));
+        }
+        return grams;
+    }
+    
+    // Pack three UTF-16 chars into one long key
+    private static long trigram(String text, int offset) {
+        return ((long) text.charAt(offset) << 32) | ((long) text.charAt(offset + 1) << 16) | text.charAt(offset + 2);
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    // Sorted array of item ids; compact and binary-searchable
+    private static class PostingList {
+        private long[] ids = new long[4];
+        private int size;
+        
+        boolean contains(long id) {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        }
+        
+        void add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+        
+        boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -4,41 +4,106 @@ import com.sweetshop.model.Item;
 import com.sweetshop.model.Category;
 import com.sweetshop.repository.ItemRepository;
 import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemSearchCriteria;
+import com.sweetshop.repository.ItemSummary;
 import com.sweetshop.exception.ResourceNotFoundException;
 import com.sweetshop.exception.ResourceAlreadyExistsException;
+import com.sweetshop.exception.InsufficientStockException;
+import com.sweetshop.exception.ValidationException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import com.sweetshop.config.CacheConfig;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @Transactional
 public class ItemService {
     
+    // Largest change a single stock adjustment may make, in either direction
+    static final int MAX_STOCK_DELTA = 1_000_000;
+    
     @Autowired
     private ItemRepository itemRepository;
     
     @Autowired
     private CategoryRepository categoryRepository;
     
+    @Autowired
+    private CategoryService categoryService;
+    
+    @Autowired
+    private InventoryAggregateService inventoryAggregates;
+    
+    @Autowired
+    private HotStockService hotStockService;
+    
+    @Autowired
+    private ItemSearchIndex searchIndex;
+    
+    @Autowired
+    private InventoryChangeNotifier inventoryChanges;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @PersistenceContext
+    private EntityManager entityManager;
+    
+    // Upper bounds of the price and stock facet bands, ascending
+    @Value("${sweetshop.facets.price-bands:100,250,500}")
+    private List<BigDecimal> priceBands;
+    
+    @Value("${sweetshop.facets.stock-bands:1,10,50}")
+    private List<Integer> stockBands;
+    
     // Get all items
-    public List<Item> getAllItems() {
-        return itemRepository.findAll();
+    @Transactional(readOnly = true)
+    public List<ItemSummary> getAllItems() {
+        return withLiveStock(itemRepository.findByCriteria(new ItemSearchCriteria(), Pageable.unpaged()).getContent());
     }
     
     // Get all items with pagination
-    public Page<Item> getAllItems(Pageable pageable) {
-        return itemRepository.findAll(pageable);
+    @Transactional(readOnly = true)
+    public Page<ItemSummary> getAllItems(Pageable pageable) {
+        return withLiveStock(itemRepository.findByCriteria(new ItemSearchCriteria(), pageable));
     }
     
-    // Get item by ID
+    // Get item by ID; hot items bypass the cache because their stock changes constantly, and a
+    // missing item is not cached (the cache holds no nulls, and it may be created later)
+    @Cacheable(cacheNames = CacheConfig.ITEMS, key = "#id", condition = "!@hotStockService.isHot(#id)",
+               unless = "#result == null")
     public Optional<Item> getItemById(Long id) {
-        return itemRepository.findById(id);
+        return itemRepository.findWithCategoryById(id).map(this::withLiveStock);
     }
     
     // Create new item
@@ -51,13 +116,24 @@ public class ItemService {
         // Ensure category exists
         Category category = findOrCreateCategory(item.getCategory().getName());
         item.setCategory(category);
-        return itemRepository.save(item);
+        Item savedItem = itemRepository.save(item);
+        inventoryChanges.itemSaved(null, savedItem);
+        return savedItem;
     }
     
-    // Update item
+    // Update item; the caller sends the version it read, so there is no blind last-writer-wins path
     public Item updateItem(Long id, Item itemDetails) {
+        if (itemDetails.getVersion() == null) {
+            throw new ValidationException("version", "is required");
+        }
         Item item = itemRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Item", id));
+        InventoryAggregateService.ItemState before = InventoryAggregateService.ItemState.of(item);
+        
+        // A client that read an older version must not overwrite newer changes
+        if (!itemDetails.getVersion().equals(item.getVersion())) {
+            throw new ObjectOptimisticLockingFailureException(Item.class, id);
+        }
         
         item.setName(itemDetails.getName());
         
@@ -69,75 +145,434 @@ public class ItemService {
         item.setPrice(itemDetails.getPrice());
         item.setDescription(itemDetails.getDescription());
         
-        return itemRepository.save(item);
+        Item savedItem = itemRepository.save(item);
+        evictCachedItem(id);
+        inventoryChanges.itemSaved(before, savedItem);
+        return savedItem;
+    }
+    
+    // Atomically adjust stock by delta; returns the new stock. Hot items are never cached.
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Integer adjustStock(Long id, int delta) {
+        if (delta == 0) {
+            throw new ValidationException("delta", "must not be zero");
+        }
+        checkStockDelta(delta);
+        // Hot items are buffered in memory and written behind, without a transaction or connection;
+        // their change log entry is written by the flush
+        if (hotStockService.isHot(id)) {
+            Integer stock = hotStockService.adjust(id, delta);
+            inventoryChanges.hotStockChanged(id, stock, null, null);
+            return stock;
+        }
+        return transactionTemplate.execute(status -> applyStockDelta(id, delta));
+    }
+    
+    // Write coalesced deltas in id order within one transaction
+    public void applyStockDeltas(Map<Long, Integer> deltas) {
+        new TreeMap<>(deltas).forEach(this::applyStockDelta);
+    }
+    
+    // Drop a cached item once the current transaction commits. Writers call this before the change
+    // notifier: after-commit actions run in the order they were registered, and the eviction has to
+    // land before the version bump, or a GET in between would serve the old item under the new ETag.
+    public void evictCachedItem(Long id) {
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS);
+        if (cache != null) {
+            CacheConfig.evictAfterCommit(cache, List.of(id));
+        }
+    }
+    
+    // Drop the given cached items once the current transaction commits; same ordering as evictCachedItem
+    public void evictCachedItems(Collection<Long> ids) {
+        Cache cache = cacheManager.getCache(CacheConfig.ITEMS);
+        if (cache != null) {
+            CacheConfig.evictAfterCommit(cache, ids);
+        }
+    }
+    
+    // Reject adjustments too large to apply or to negate without overflow
+    private void checkStockDelta(int delta) {
+        if (delta < -MAX_STOCK_DELTA || delta > MAX_STOCK_DELTA) {
+            throw new ValidationException("delta", "must be between " + -MAX_STOCK_DELTA + " and " + MAX_STOCK_DELTA);
+        }
+    }
+    
+    // Single conditional UPDATE; no row is read before the write
+    private Integer applyStockDelta(Long id, int delta) {
+        // Bounds on the current stock that keep the result within [0, Integer.MAX_VALUE]. Flushed deltas
+        // are differences of two non-negative counts and requests are checked, so -delta cannot overflow.
+        int minStock = delta < 0 ? -delta : 0;
+        int maxStock = delta > 0 ? Integer.MAX_VALUE - delta : Integer.MAX_VALUE;
+        if (itemRepository.adjustStock(id, delta, minStock, maxStock) == 0) {
+            // Cold path: tell a missing item apart from insufficient stock or an overflowing increment
+            if (!itemRepository.existsById(id)) {
+                throw new ResourceNotFoundException("Item", id);
+            }
+            if (delta > 0) {
+                throw new ValidationException("delta", "would take stock above " + Integer.MAX_VALUE);
+            }
+            throw new InsufficientStockException(id, -delta);
+        }
+        
+        // The row is locked by our update, so this read sees exactly the value we wrote
+        Object[] state = itemRepository.findStockState(id).get(0);
+        int stock = (Integer) state[0];
+        BigDecimal price = (BigDecimal) state[1];
+        Long categoryId = (Long) state[2];
+        String categoryName = (String) state[3];
+        evictCachedItem(id);
+        inventoryChanges.stockChanged(id,
+                new InventoryAggregateService.ItemState(categoryId, categoryName, stock - delta, price),
+                new InventoryAggregateService.ItemState(categoryId, categoryName, stock, price));
+        return stock;
     }
     
     // Delete item
     public void deleteItem(Long id) {
-        if (!itemRepository.existsById(id)) {
-            throw new ResourceNotFoundException("Item", id);
+        Item item = itemRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Item", id));
+        itemRepository.delete(item);
+        evictCachedItem(id);
+        inventoryChanges.itemRemoved(item);
+    }
+    
+    // Reprice every item matching the filter by a percentage or by a fixed amount; returns the items changed
+    public int bulkUpdatePrices(ItemSearchCriteria criteria, BigDecimal percent, BigDecimal amount) {
+        if ((percent == null) == (amount == null)) {
+            throw new ValidationException("percent", "exactly one of percent and amount is required");
+        }
+        if (percent != null && percent.compareTo(BigDecimal.valueOf(-100)) <= 0) {
+            throw new ValidationException("percent", "must be greater than -100");
+        }
+        if (percent != null && percent.stripTrailingZeros().scale() > 2) {
+            throw new ValidationException("percent", "must have at most 2 decimal places");
+        }
+        if (amount != null && amount.stripTrailingZeros().scale() > 2) {
+            throw new ValidationException("amount", "must have at most 2 decimal places");
+        }
+        return bulkUpdate(criteria, percent, amount, null);
+    }
+    
+    // Set the stock of every item matching the filter; returns the items changed
+    public int bulkSetStock(ItemSearchCriteria criteria, int stock) {
+        if (stock < 0) {
+            throw new ValidationException("stock", "must be non-negative");
+        }
+        return bulkUpdate(criteria, null, null, stock);
+    }
+    
+    // Lock the matching rows, then change them all with one UPDATE. The locked rows give exact before
+    // and after values for the in-memory views, so nothing is read back or loaded as an entity.
+    private int bulkUpdate(ItemSearchCriteria criteria, BigDecimal pricePercent, BigDecimal priceAmount, Integer stock) {
+        if (!resolveCategory(criteria)) {
+            return 0;
+        }
+        List<Object[]> rows = itemRepository.lockForBulkUpdate(criteria);
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        
+        List<Long> ids = new ArrayList<>(rows.size());
+        List<InventoryAggregateService.ItemState> before = new ArrayList<>(rows.size());
+        List<InventoryAggregateService.ItemState> after = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            Long id = (Long) row[0];
+            int oldStock = (Integer) row[1];
+            BigDecimal oldPrice = (BigDecimal) row[2];
+            Long categoryId = (Long) row[3];
+            String categoryName = (String) row[4];
+            // Same arithmetic as the UPDATE: ROUND(price + price * percent / 100, 2) or price + amount
+            BigDecimal newPrice = pricePercent != null
+                    ? oldPrice.add(oldPrice.multiply(pricePercent).movePointLeft(2)).setScale(2, RoundingMode.HALF_UP)
+                    : priceAmount != null ? oldPrice.add(priceAmount) : oldPrice;
+            if (newPrice.signum() <= 0 || newPrice.precision() - newPrice.scale() > 10) {
+                throw new ValidationException("price", "would become " + newPrice + " for item " + id);
+            }
+            ids.add(id);
+            before.add(new InventoryAggregateService.ItemState(categoryId, categoryName, oldStock, oldPrice));
+            after.add(new InventoryAggregateService.ItemState(categoryId, categoryName,
+                                                              stock != null ? stock : oldStock, newPrice));
         }
-        itemRepository.deleteById(id);
+        
+        int updated = itemRepository.bulkUpdate(criteria, pricePercent, priceAmount, stock);
+        if (updated != rows.size()) {
+            // A row started matching the filter after the lock was taken; roll back and let the client retry
+            throw new ObjectOptimisticLockingFailureException(
+                    "Items matching the filter changed during the bulk update", null);
+        }
+        
+        evictCachedItems(ids);
+        inventoryChanges.itemsChanged(ids, before, after, stock != null);
+        return updated;
     }
     
     // Search items by name
-    public List<Item> searchItemsByName(String name) {
-        return itemRepository.findByNameContainingIgnoreCase(name);
+    @Transactional(readOnly = true)
+    public List<ItemSummary> searchItemsByName(String name) {
+        ItemSearchCriteria criteria = new ItemSearchCriteria();
+        criteria.setName(name);
+        if (resolveNameFromIndex(criteria)) {
+            return withLiveStock(itemRepository.findByCriteria(criteria, Pageable.unpaged()).getContent());
+        }
+        return withLiveStock(itemRepository.findByNameContainingIgnoreCase(name));
     }
     
     // Get items by category
-    public List<Item> getItemsByCategory(String categoryName) {
-        return itemRepository.findByCategoryName(categoryName);
+    @Transactional(readOnly = true)
+    public List<ItemSummary> getItemsByCategory(String categoryName) {
+        return withLiveStock(itemRepository.findByCategoryName(categoryName));
     }
     
     // Get items by category with pagination
-    public Page<Item> getItemsByCategory(String categoryName, Pageable pageable) {
-        return itemRepository.findByCategoryName(categoryName, pageable);
+    @Transactional(readOnly = true)
+    public Page<ItemSummary> getItemsByCategory(String categoryName, Pageable pageable) {
+        return withLiveStock(itemRepository.findByCategoryName(categoryName, pageable));
     }
     
     // Get low stock items
-    public List<Item> getLowStockItems(Integer threshold) {
-        return itemRepository.findLowStockItems(threshold);
+    @Transactional(readOnly = true)
+    public List<ItemSummary> getLowStockItems(Integer threshold) {
+        return withLiveStock(itemRepository.findLowStockItems(threshold));
     }
     
     // Get items by price range
-    public List<Item> getItemsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
-        return itemRepository.findByPriceRange(minPrice, maxPrice);
+    @Transactional(readOnly = true)
+    public List<ItemSummary> getItemsByPriceRange(BigDecimal minPrice, BigDecimal maxPrice) {
+        return withLiveStock(itemRepository.findByPriceRange(minPrice, maxPrice));
     }
     
     // Get items by stock range
-    public List<Item> getItemsByStockRange(Integer minStock, Integer maxStock) {
-        return itemRepository.findByStockRange(minStock, maxStock);
+    @Transactional(readOnly = true)
+    public List<ItemSummary> getItemsByStockRange(Integer minStock, Integer maxStock) {
+        return withLiveStock(itemRepository.findByStockRange(minStock, maxStock));
     }
     
     // Complex search
-    public List<Item> searchItems(String name, String categoryName, 
+    @Transactional(readOnly = true)
+    public List<ItemSummary> searchItems(String name, String categoryName, 
                                  BigDecimal minPrice, BigDecimal maxPrice,
                                  Integer minStock, Integer maxStock) {
-        return itemRepository.findByMultipleCriteria(name, categoryName, 
-                                                    minPrice, maxPrice, 
-                                                    minStock, maxStock);
+        ItemSearchCriteria criteria = new ItemSearchCriteria(name, categoryName, minPrice, maxPrice, minStock, maxStock);
+        if (!resolveCategory(criteria)) {
+            return Collections.emptyList();
+        }
+        resolveNameFromIndex(criteria);
+        return withLiveStock(itemRepository.findByCriteria(criteria, Pageable.unpaged()).getContent());
     }
     
-    // Get dashboard statistics
-    public DashboardStats getDashboardStats() {
-        Long totalItems = itemRepository.getTotalItemCount();
-        Long totalStock = itemRepository.getTotalStockQuantity();
-        BigDecimal totalValue = itemRepository.getTotalStockValue();
-        List<Item> lowStockItems = itemRepository.findLowStockItems(10);
+    // Complex search with pagination; only the supplied filters reach the SQL
+    @Transactional(readOnly = true)
+    public Page<ItemSummary> searchItems(String name, String categoryName,
+                                  BigDecimal minPrice, BigDecimal maxPrice,
+                                  Integer minStock, Integer maxStock,
+                                  Pageable pageable) {
+        ItemSearchCriteria criteria = new ItemSearchCriteria(name, categoryName, minPrice, maxPrice, minStock, maxStock);
+        if (!resolveCategory(criteria)) {
+            return Page.empty(pageable);
+        }
+        resolveNameFromIndex(criteria);
+        return withLiveStock(itemRepository.findByCriteria(criteria, pageable));
+    }
+    
+    // Keyset page: fetch one row past the page size to learn whether another page follows
+    @Transactional(readOnly = true)
+    public CursorPage<ItemSummary> getItemsAfter(ItemSearchCriteria criteria, ItemCursor cursor, int size) {
+        if (!resolveCategory(criteria)) {
+            return new CursorPage<>(Collections.emptyList(), null);
+        }
+        resolveNameFromIndex(criteria);
+        List<ItemSummary> rows = itemRepository.findByKeyset(criteria, cursor.getSortBy(),
+                                                             cursor.getDirection().isAscending(),
+                                                             cursor.getLastValue(), cursor.getLastId(),
+                                                             size + 1);
+        boolean hasNext = rows.size() > size;
+        List<ItemSummary> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? cursor.after(content.get(content.size() - 1)).encode() : null;
+        return new CursorPage<>(withLiveStock(content), nextCursor);
+    }
+    
+    // Facet counts for the same filters as searchItems, from one grouped query
+    @Transactional(readOnly = true)
+    public ItemFacets getItemFacets(ItemSearchCriteria criteria) {
+        List<FacetCount> categories = new ArrayList<>();
+        long[] priceCounts = new long[priceBands.size() + 1];
+        long[] stockCounts = new long[stockBands.size() + 1];
         
-        return new DashboardStats(totalItems, totalStock, totalValue, lowStockItems.size());
+        if (resolveCategory(criteria)) {
+            resolveNameFromIndex(criteria);
+            Map<Long, FacetCount> byCategory = new LinkedHashMap<>();
+            for (Object[] row : itemRepository.countFacets(criteria, priceBands, stockBands)) {
+                long count = (Long) row[4];
+                byCategory.computeIfAbsent((Long) row[0], id -> new FacetCount(id, (String) row[1]))
+                          .count += count;
+                priceCounts[((Number) row[2]).intValue()] += count;
+                stockCounts[((Number) row[3]).intValue()] += count;
+            }
+            categories.addAll(byCategory.values());
+            categories.sort(Comparator.comparingLong(FacetCount::getCount).reversed()
+                                      .thenComparing(FacetCount::getName));
+        }
+        return new ItemFacets(categories, bands(priceBands, priceCounts), bands(stockBands, stockCounts));
+    }
+    
+    // Band i covers [bounds[i-1], bounds[i]); the first starts open, the last is open-ended
+    private static <N> List<BandCount<N>> bands(List<N> bounds, long[] counts) {
+        List<BandCount<N>> bands = new ArrayList<>(counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            N from = i > 0 ? bounds.get(i - 1) : null;
+            N to = i < bounds.size() ? bounds.get(i) : null;
+            bands.add(new BandCount<>(from, to, counts[i]));
+        }
+        return bands;
+    }
+    
+    // Swap the category name for its id (from the category cache), so the filter is on
+    // items.category_id and the (category_id, price|stock) indexes apply without a join;
+    // returns false when no such category exists and nothing can match
+    private boolean resolveCategory(ItemSearchCriteria criteria) {
+        if (criteria == null || criteria.getCategoryName() == null) {
+            return true;
+        }
+        Optional<Category> category = categoryService.getCategoryByName(criteria.getCategoryName());
+        if (category.isEmpty()) {
+            return false;
+        }
+        criteria.setCategoryId(category.get().getId());
+        criteria.setCategoryName(null);
+        return true;
+    }
+    
+    // Swap the name filter for the ids the trigram index matched, so the database never runs
+    // a leading-wildcard LIKE; returns false when the index cannot answer and the filter stays
+    private boolean resolveNameFromIndex(ItemSearchCriteria criteria) {
+        if (criteria == null || criteria.getName() == null || criteria.getName().isEmpty()) {
+            return false;
+        }
+        Optional<Set<Long>> ids = searchIndex.findIds(criteria.getName());
+        if (ids.isEmpty()) {
+            return false;
+        }
+        criteria.setItemIds(ids.get());
+        criteria.setName(null);
+        return true;
+    }
+    
+    // Stream every item to the consumer, detaching loaded rows in chunks so memory stays flat
+    @Transactional(readOnly = true)
+    public long exportItems(Consumer<Item> consumer) {
+        long count = 0;
+        try (Stream<Item> items = itemRepository.streamAllWithCategory()) {
+            Iterator<Item> iterator = items.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % ItemRepository.EXPORT_FETCH_SIZE == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+        return count;
+    }
+    
+    // Get dashboard statistics; served from memory, so no transaction or connection is needed
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public DashboardStats getDashboardStats() {
+        return inventoryAggregates.getDashboardStats();
+    }
+    
+    // Show live stock for hot items whose deltas are still buffered in memory
+    private <T extends Iterable<ItemSummary>> T withLiveStock(T items) {
+        for (ItemSummary item : items) {
+            hotStockService.mergePending(item);
+        }
+        return items;
+    }
+    
+    private Item withLiveStock(Item item) {
+        if (hotStockService.isHot(item.getId())) {
+            // Detach so the merged value is never flushed back as a regular update
+            entityManager.detach(item);
+            hotStockService.mergePending(item);
+        }
+        return item;
     }
     
     // Helper method to find or create category
     private Category findOrCreateCategory(String categoryName) {
-        Optional<Category> existingCategory = categoryRepository.findByNameIgnoreCase(categoryName);
+        Optional<Category> existingCategory = categoryService.getCategoryByName(categoryName);
         if (existingCategory.isPresent()) {
             return existingCategory.get();
         } else {
-            Category newCategory = new Category(categoryName, "Auto-generated category");
-            return categoryRepository.save(newCategory);
+            Category newCategory = categoryRepository.save(new Category(categoryName, "Auto-generated category"));
+            inventoryChanges.categorySaved(newCategory);
+            return newCategory;
+        }
+    }
+    
+    // Inner class for keyset-paginated results
+    public static class CursorPage<T> {
+        private final List<T> content;
+        private final String nextCursor;
+        
+        public CursorPage(List<T> content, String nextCursor) {
+            this.content = content;
+            this.nextCursor = nextCursor;
+        }
+        
+        public List<T> getContent() { return content; }
+        public String getNextCursor() { return nextCursor; }
+        public boolean isHasNext() { return nextCursor != null; }
+    }
+    
+    // Inner class for facet counts next to a search result
+    public static class ItemFacets {
+        private final List<FacetCount> categories;
+        private final List<BandCount<BigDecimal>> priceBands;
+        private final List<BandCount<Integer>> stockBands;
+        
+        public ItemFacets(List<FacetCount> categories, List<BandCount<BigDecimal>> priceBands,
+                          List<BandCount<Integer>> stockBands) {
+            this.categories = categories;
+            this.priceBands = priceBands;
+            this.stockBands = stockBands;
+        }
+        
+        public List<FacetCount> getCategories() { return categories; }
+        public List<BandCount<BigDecimal>> getPriceBands() { return priceBands; }
+        public List<BandCount<Integer>> getStockBands() { return stockBands; }
+    }
+    
+    // Inner class for a category facet
+    public static class FacetCount {
+        private final Long id;
+        private final String name;
+        private long count;
+        
+        public FacetCount(Long id, String name) {
+            this.id = id;
+            this.name = name;
         }
+        
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public long getCount() { return count; }
+    }
+    
+    // Inner class for a range facet; from is inclusive, to exclusive, null means unbounded
+    public static class BandCount<N> {
+        private final N from;
+        private final N to;
+        private final long count;
+        
+        public BandCount(N from, N to, long count) {
+            this.from = from;
+            this.to = to;
+            this.count = count;
+        }
+        
+        public N getFrom() { return from; }
+        public N getTo() { return to; }
+        public long getCount() { return count; }
     }
     
     // Inner class for dashboard statistics
@@ -0,0 +1,244 @@
+package com.sweetshop.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+// Radix tree: a node holds the whole run of characters leading to it, so a chain of single-child
+// nodes is stored once. Only branch nodes (two or more children) keep their best k values; a lookup
+// walks down the prefix and reads them, or merges the few values of a chain or leaf below it.
+// Children are kept sorted by first character. Not thread-safe; callers guard it.
+class PrefixTrie<T> {
+    
+    private final int k;
+    private final Comparator<T> ranking;
+    private final Node<T> root = new Node<>("", 0);
+    
+    PrefixTrie(int k, Comparator<T> ranking) {
+        this.k = k;
+        this.ranking = ranking;
+    }
+    
+    void put(String key, T value) {
+        List<Node<T>> path = new ArrayList<>();
+        path.add(root);
+        Node<T> node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            Node<T> child = node.child(key.charAt(matched));
+            if (child == null) {
+                child = new Node<>(key.substring(matched), key.length());
+                node.addChild(child);
+                matched = key.length();
+            } else {
+                int common = commonLength(child.label, key, matched);
+                if (common < child.label.length()) {
+                    child = split(node, child, common);
+                }
+                matched += common;
+            }
+            path.add(child);
+            node = child;
+        }
+        if (node.values == null) {
+            node.values = new ArrayList<>(1);
+        }
+        if (!node.values.contains(value)) {
+            node.values.add(value);
+        }
+        rerank(path);
+    }
+    
+    void remove(String key, T value) {
+        List<Node<T>> path = path(key);
+        if (path == null) {
+            return;
+        }
+        Node<T> node = path.get(path.size() - 1);
+        if (node.values == null || !node.values.remove(value)) {
+            return;
+        }
+        if (node.values.isEmpty()) {
+            node.values = null;
+        }
+        
+        // Drop nodes left without values or children, then fold a valueless single-child node into its child
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node<T> current = path.get(depth);
+            Node<T> parent = path.get(depth - 1);
+            if (current.values == null && current.children.isEmpty()) {
+                parent.removeChild(current);
+            } else if (current.values == null && current.children.size() == 1) {
+                Node<T> only = current.children.get(0);
+                only.label = current.label + only.label;
+                parent.replaceChild(only);
+            } else {
+                break;
+            }
+        }
+        rerank(path);
+    }
+    
+    // Re-sort the cached rankings on the paths of the given keys after values' ranks changed in
+    // place. Each branch node shared by several keys is rebuilt once, deepest first.
+    void rerank(Collection<String> keys) {
+        Set<Node<T>> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (String key : keys) {
+            List<Node<T>> path = path(key);
+            if (path != null) {
+                dirty.addAll(path);
+            }
+        }
+        // Shallowest first, like a path; a child is always deeper than its parent
+        List<Node<T>> nodes = new ArrayList<>(dirty);
+        nodes.sort(Comparator.comparingInt(node -> node.depth));
+        rerank(nodes);
+    }
+    
+    // Best values under the prefix, at most k of them
+    List<T> top(String prefix, int limit) {
+        Node<T> node = root;
+        int matched = 0;
+        while (matched < prefix.length()) {
+            Node<T> child = node.child(prefix.charAt(matched));
+            if (child == null) {
+                return Collections.emptyList();
+            }
+            int common = commonLength(child.label, prefix, matched);
+            if (matched + common < prefix.length() && common < child.label.length()) {
+                return Collections.emptyList();
+            }
+            matched += common;
+            node = child;
+        }
+        List<T> best = best(node);
+        return new ArrayList<>(best.subList(0, Math.min(limit, best.size())));
+    }
+    
+    // Nodes from the root to the node of exactly this key, or null when the key is absent
+    private List<Node<T>> path(String key) {
+        List<Node<T>> path = new ArrayList<>();
+        path.add(root);
+        Node<T> node = root;
+        int matched = 0;
+        while (matched < key.length()) {
+            node = node.child(key.charAt(matched));
+            if (node == null || !key.startsWith(node.label, matched)) {
+                return null;
+            }
+            matched += node.label.length();
+            path.add(node);
+        }
+        return path;
+    }
+    
+    // Cut the child's label after the first length characters, putting a new node in between
+    private Node<T> split(Node<T> parent, Node<T> child, int length) {
+        Node<T> middle = new Node<>(child.label.substring(0, length), child.depth - child.label.length() + length);
+        child.label = child.label.substring(length);
+        parent.replaceChild(middle);
+        middle.addChild(child);
+        return middle;
+    }
+    
+    // Rebuild the top-k of each branch node, walking the list from its deepest end so children come
+    // before parents; other nodes hold none
+    private void rerank(List<Node<T>> shallowFirst) {
+        for (int i = shallowFirst.size() - 1; i >= 0; i--) {
+            Node<T> node = shallowFirst.get(i);
+            node.top = null;
+            if (node.isBranch()) {
+                node.top = collect(node);
+            }
+        }
+    }
+    
+    private List<T> best(Node<T> node) {
+        return node.top != null ? node.top : collect(node);
+    }
+    
+    // Merge the node's own values with the best of each child
+    private List<T> collect(Node<T> node) {
+        List<T> candidates = new ArrayList<>();
+        if (node.values != null) {
+            candidates.addAll(node.values);
+        }
+        for (Node<T> child : node.children) {
+            candidates.addAll(best(child));
+        }
+        candidates.sort(ranking);
+        
+        // A value indexed under several keys can reach a node through more than one child
+        Set<T> seen = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<T> top = new ArrayList<>(Math.min(k, candidates.size()));
+        for (T candidate : candidates) {
+            if (top.size() == k) {
+                break;
+            }
+            if (seen.add(candidate)) {
+                top.add(candidate);
+            }
+        }
+        return top;
+    }
+    
+    private static int commonLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int length = 0;
+        while (length < max && label.charAt(length) == key.charAt(offset + length)) {
+            length++;
+        }
+        return length;
+    }
+    
+    private static class Node<T> {
+        private String label;
+        // Characters from the root to the end of the label; fixed however the nodes above are split or merged
+        private final int depth;
+        private char[] firsts = new char[0];
+        private final List<Node<T>> children = new ArrayList<>(0);
+        private List<T> values;
+        private List<T> top;
+        
+        Node(String label, int depth) {
+            this.label = label;
+            this.depth = depth;
+        }
+        
+        boolean isBranch() {
+            return children.size() > 1;
+        }
+        
+        Node<T> child(char c) {
+            int index = Arrays.binarySearch(firsts, 0, children.size(), c);
+            return index >= 0 ? children.get(index) : null;
+        }
+        
+        void addChild(Node<T> node) {
+            char c = node.label.charAt(0);
+            int index = -Arrays.binarySearch(firsts, 0, children.size(), c) - 1;
+            if (children.size() == firsts.length) {
+                firsts = Arrays.copyOf(firsts, Math.max(2, firsts.length * 2));
+            }
+            System.arraycopy(firsts, index, firsts, index + 1, children.size() - index);
+            firsts[index] = c;
+            children.add(index, node);
+        }
+        
+        // Put node where the child with the same first character is
+        void replaceChild(Node<T> node) {
+            children.set(Arrays.binarySearch(firsts, 0, children.size(), node.label.charAt(0)), node);
+        }
+        
+        void removeChild(Node<T> node) {
+            int index = Arrays.binarySearch(firsts, 0, children.size(), node.label.charAt(0));
+            System.arraycopy(firsts, index + 1, firsts, index, children.size() - index - 1);
+            children.remove(index);
+        }
+    }
+}
@@ -0,0 +1,324 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+// Type-ahead over item and category names. Every word start of a name is a key in a prefix
+// trie; items rank by stock and categories by item count. Names are updated after each commit;
+// stock-only changes are queued and reranked in batches, so a sale never takes the write lock.
+@Service
+public class SuggestService {
+    
+    private static final Logger log = LoggerFactory.getLogger(SuggestService.class);
+    
+    private static final Comparator<Suggestion> RANKING = Comparator
+            .comparingLong(Suggestion::getScore).reversed()
+            .thenComparing(Suggestion::getName, String.CASE_INSENSITIVE_ORDER)
+            .thenComparing(Suggestion::getId);
+    
+    @Value("${sweetshop.suggest.max-results:10}")
+    private int maxResults;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private PrefixTrie<Suggestion> itemTrie;
+    private PrefixTrie<Suggestion> categoryTrie;
+    private final Map<Long, Suggestion> items = new HashMap<>();
+    private final Map<Long, Long> itemCategories = new HashMap<>();
+    private final Map<Long, Suggestion> categories = new HashMap<>();
+    private final Map<Long, Long> categoryItemCounts = new HashMap<>();
+    // Latest committed stock of items whose rank is not yet updated; only the newest value per item is kept
+    private final Map<Long, Integer> pendingStocks = new ConcurrentHashMap<>();
+    
+    // Load before the first request; names only, so this stays small next to the catalog.
+    // Also rebuilds from scratch after bulk writes that bypassed itemChanged/categoryChanged
+    @PostConstruct
+    public void load() {
+        long started = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            lock.writeLock().lock();
+            try {
+                itemTrie = new PrefixTrie<>(maxResults, RANKING);
+                categoryTrie = new PrefixTrie<>(maxResults, RANKING);
+                items.clear();
+                itemCategories.clear();
+                categories.clear();
+                categoryItemCounts.clear();
+                for (Category category : categoryRepository.findAll()) {
+                    putCategory(category.getId(), category.getName());
+                }
+                try (Stream<Object[]> rows = itemRepository.streamSuggestFields()) {
+                    rows.forEach(row -> putItem((Long) row[0], (String) row[1], (Integer) row[2], (Long) row[3]));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+        log.info("Suggest index loaded: {} items, {} categories in {} ms",
+                 items.size(), categories.size(), System.currentTimeMillis() - started);
+    }
+    
+    // Best item and category names having a word that starts with the prefix
+    public Suggestions suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        int size = Math.min(limit, maxResults);
+        lock.readLock().lock();
+        try {
+            return new Suggestions(copies(itemTrie.top(key, size)), copies(categoryTrie.top(key, size)));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    // Scores change in place under the write lock, so responses get their own snapshot
+    private static List<Suggestion> copies(List<Suggestion> suggestions) {
+        List<Suggestion> copies = new ArrayList<>(suggestions.size());
+        for (Suggestion suggestion : suggestions) {
+            copies.add(new Suggestion(suggestion.id, suggestion.name, suggestion.score));
+        }
+        return copies;
+    }
+    
+    public int getMaxResults() {
+        return maxResults;
+    }
+    
+    // Item created, renamed, moved or restocked; item is null for deletes
+    public void itemChanged(Long id, Item item) {
+        String name = item != null ? item.getName() : null;
+        int stock = item != null ? item.getStock() : 0;
+        Long categoryId = item != null ? item.getCategory().getId() : null;
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                if (name == null) {
+                    removeItem(id);
+                } else {
+                    putItem(id, name, stock, categoryId);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    // Stock moved without any other change; only the item's rank is updated, at the next rerank
+    public void stockChanged(Long id, int stock) {
+        afterCommit(() -> pendingStocks.put(id, stock));
+    }
+    
+    // Stock of many items moved at once (bulk update)
+    public void stocksChanged(Map<Long, Integer> stocks) {
+        afterCommit(() -> pendingStocks.putAll(stocks));
+    }
+    
+    // Apply queued stock changes under one write lock, rebuilding each affected trie node once.
+    // The ranks change after the write's own version bump, so a rerank that changed anything bumps
+    // the version again; otherwise a poller would keep a 304 for the old order of /api/suggest
+    @Scheduled(fixedDelayString = "${sweetshop.suggest.rerank-interval-ms:1000}")
+    public void rerankPendingStocks() {
+        if (pendingStocks.isEmpty()) {
+            return;
+        }
+        List<String> keys = new ArrayList<>();
+        lock.writeLock().lock();
+        try {
+            for (Long id : new ArrayList<>(pendingStocks.keySet())) {
+                Integer stock = pendingStocks.remove(id);
+                Suggestion suggestion = items.get(id);
+                if (stock != null && suggestion != null && suggestion.score != stock) {
+                    suggestion.score = stock;
+                    keys.addAll(keys(suggestion.name));
+                }
+            }
+            itemTrie.rerank(keys);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!keys.isEmpty()) {
+            inventoryVersion.changed();
+        }
+    }
+    
+    public void categoryChanged(Category category) {
+        Long id = category.getId();
+        String name = category.getName();
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                putCategory(id, name);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    public void categoryRemoved(Long id) {
+        afterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                Suggestion suggestion = categories.remove(id);
+                if (suggestion != null) {
+                    keys(suggestion.name).forEach(key -> categoryTrie.remove(key, suggestion));
+                }
+                categoryItemCounts.remove(id);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+    
+    // Caller holds the write lock
+    private void putItem(Long id, String name, int stock, Long categoryId) {
+        // This write carries the latest stock, so an older queued one must not overwrite it
+        pendingStocks.remove(id);
+        Suggestion existing = items.get(id);
+        if (existing != null && existing.name.equals(name)) {
+            if (existing.score != stock) {
+                existing.score = stock;
+                itemTrie.rerank(keys(name));
+            }
+        } else {
+            if (existing != null) {
+                keys(existing.name).forEach(key -> itemTrie.remove(key, existing));
+            }
+            Suggestion suggestion = new Suggestion(id, name, stock);
+            items.put(id, suggestion);
+            keys(name).forEach(key -> itemTrie.put(key, suggestion));
+        }
+        
+        Long previousCategoryId = itemCategories.put(id, categoryId);
+        if (!categoryId.equals(previousCategoryId)) {
+            adjustCategoryCount(previousCategoryId, -1);
+            adjustCategoryCount(categoryId, 1);
+        }
+    }
+    
+    // Caller holds the write lock
+    private void removeItem(Long id) {
+        Suggestion suggestion = items.remove(id);
+        if (suggestion != null) {
+            keys(suggestion.name).forEach(key -> itemTrie.remove(key, suggestion));
+        }
+        adjustCategoryCount(itemCategories.remove(id), -1);
+    }
+    
+    // Caller holds the write lock
+    private void putCategory(Long id, String name) {
+        Suggestion existing = categories.remove(id);
+        if (existing != null) {
+            keys(existing.name).forEach(key -> categoryTrie.remove(key, existing));
+        }
+        Suggestion suggestion = new Suggestion(id, name, categoryItemCounts.getOrDefault(id, 0L));
+        categories.put(id, suggestion);
+        keys(name).forEach(key -> categoryTrie.put(key, suggestion));
+    }
+    
+    // Caller holds the write lock
+    private void adjustCategoryCount(Long categoryId, long delta) {
+        if (categoryId == null) {
+            return;
+        }
+        long count = categoryItemCounts.merge(categoryId, delta, Long::sum);
+        Suggestion suggestion = categories.get(categoryId);
+        if (suggestion != null) {
+            suggestion.score = count;
+            categoryTrie.rerank(keys(suggestion.name));
+        }
+    }
+    
+    // One key per word start, so "Kaju Katli" is found by both "kaju" and "kat"
+    private static List<String> keys(String name) {
+        String text = normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < text.length(); i++) {
+            boolean wordStart = i == 0 || !Character.isLetterOrDigit(text.charAt(i - 1));
+            if (wordStart && Character.isLetterOrDigit(text.charAt(i))) {
+                keys.add(text.substring(i));
+            }
+        }
+        return keys;
+    }
+    
+    private static String normalize(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+    
+    // Inner class for a single suggestion; score is stock for items and item count for categories
+    public static class Suggestion {
+        private final Long id;
+        private final String name;
+        private long score;
+        
+        public Suggestion(Long id, String name, long score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+        
+        public Long getId() { return id; }
+        public String getName() { return name; }
+        public long getScore() { return score; }
+    }
+    
+    // Inner class for the suggest response
+    public static class Suggestions {
+        private final List<Suggestion> items;
+        private final List<Suggestion> categories;
+        
+        public Suggestions(List<Suggestion> items, List<Suggestion> categories) {
+            this.items = items;
+            this.categories = categories;
+        }
+        
+        public List<Suggestion> getItems() { return items; }
+        public List<Suggestion> getCategories() { return categories; }
+    }
+}
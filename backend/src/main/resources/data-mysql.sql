@@ -32,3 +32,13 @@ ON DUPLICATE KEY UPDATE
 -- Reset auto-increment values
 ALTER TABLE categories AUTO_INCREMENT = 6;
 ALTER TABLE items AUTO_INCREMENT = 9;
+
+-- Seed the id sequence tables on first run only; a live sequence is never moved back. Hibernate
+-- hands out the block of 50 ids up to next_val, so next_val = MAX(id) + 50 starts right after the
+-- highest existing id. HAVING filters the single aggregate row once the table holds a value.
+INSERT INTO categories_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50 FROM categories
+HAVING NOT EXISTS (SELECT 1 FROM categories_seq);
+INSERT INTO items_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 50 FROM items
+HAVING NOT EXISTS (SELECT 1 FROM items_seq);
@@ -23,3 +23,7 @@ INSERT INTO items (id, name, category_id, stock, price, description, created_at,
 -- Reset sequence for auto-increment (H2 syntax)
 ALTER TABLE categories ALTER COLUMN id RESTART WITH 6;
 ALTER TABLE items ALTER COLUMN id RESTART WITH 9;
+
+-- Move the id sequences past the sample data
+ALTER SEQUENCE categories_seq RESTART WITH 101;
+ALTER SEQUENCE items_seq RESTART WITH 101;
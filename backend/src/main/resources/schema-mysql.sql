@@ -5,6 +5,15 @@
 -- CREATE DATABASE IF NOT EXISTS sweetshop_db CHARACTER SET utf8mb4 COLLATE utf8mb4_unicode_ci;
 -- USE sweetshop_db;
 
+-- Create id sequence tables (MySQL has no sequences; Hibernate pools ids from these in blocks of 50)
+CREATE TABLE IF NOT EXISTS categories_seq (
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB;
+
+CREATE TABLE IF NOT EXISTS items_seq (
+    next_val BIGINT NOT NULL
+) ENGINE=InnoDB;
+
 -- Create Categories table
 CREATE TABLE IF NOT EXISTS categories (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -23,6 +32,7 @@ CREATE TABLE IF NOT EXISTS items (
     stock INTEGER NOT NULL CHECK (stock >= 0),
     price DECIMAL(12,2) NOT NULL CHECK (price > 0),
     description VARCHAR(500) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT,
@@ -30,9 +40,55 @@ CREATE TABLE IF NOT EXISTS items (
     INDEX idx_items_name (name),
     INDEX idx_items_stock (stock),
     INDEX idx_items_price (price),
-    INDEX idx_items_created_at (created_at)
+    INDEX idx_items_created_at (created_at),
+    -- Category filter combined with a price or stock range
+    INDEX idx_items_category_price (category_id, price),
+    INDEX idx_items_category_stock (category_id, stock)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci;
 
+-- Upgrade a database created by an earlier version of this script: CREATE TABLE IF NOT EXISTS leaves
+-- an existing items table alone, so add the optimistic-lock column and the composite indexes here.
+-- MySQL has no ADD COLUMN/INDEX IF NOT EXISTS; each step checks information_schema and runs a no-op
+-- when the change is already there, so the script stays re-runnable.
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'ALTER TABLE items ADD COLUMN version BIGINT NOT NULL DEFAULT 0', 'DO 0')
+            FROM information_schema.columns
+            WHERE table_schema = DATABASE() AND table_name = 'items' AND column_name = 'version');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_items_category_price ON items (category_id, price)', 'DO 0')
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = 'items' AND index_name = 'idx_items_category_price');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_items_category_stock ON items (category_id, stock)', 'DO 0')
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = 'items' AND index_name = 'idx_items_category_stock');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+-- Functional index (MySQL 8.0.13+) for the import's case-insensitive name lookup, LOWER(name) IN (...)
+SET @ddl = (SELECT IF(COUNT(*) = 0, 'CREATE INDEX idx_items_name_lower ON items ((LOWER(name)))', 'DO 0')
+            FROM information_schema.statistics
+            WHERE table_schema = DATABASE() AND table_name = 'items' AND index_name = 'idx_items_name_lower');
+PREPARE migration FROM @ddl;
+EXECUTE migration;
+DEALLOCATE PREPARE migration;
+
+-- Append-only change log for incremental sync; one row per committed item or category write
+CREATE TABLE IF NOT EXISTS change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type VARCHAR(10) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    INDEX idx_change_log_changed_at (changed_at)
+) ENGINE=InnoDB;
+
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_items_category_name ON items(category_id, name);
 CREATE INDEX IF NOT EXISTS idx_items_stock_price ON items(stock, price);
@@ -1,6 +1,10 @@
 -- Database schema creation script
 -- This script creates the database tables for the Sweet Shop Inventory Management System
 
+-- Create id sequences (pooled by Hibernate in blocks of 50 so inserts can be batched)
+CREATE SEQUENCE IF NOT EXISTS categories_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+
 -- Create Categories table
 CREATE TABLE IF NOT EXISTS categories (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -18,14 +22,29 @@ CREATE TABLE IF NOT EXISTS items (
     stock INTEGER NOT NULL CHECK (stock >= 0),
     price DECIMAL(12,2) NOT NULL CHECK (price > 0),
     description VARCHAR(500) NOT NULL,
+    version BIGINT NOT NULL DEFAULT 0,
     created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
     updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (category_id) REFERENCES categories(id) ON DELETE RESTRICT
 );
 
+-- Append-only change log for incremental sync; one row per committed item or category write
+CREATE TABLE IF NOT EXISTS change_log (
+    seq BIGINT AUTO_INCREMENT PRIMARY KEY,
+    entity_type VARCHAR(10) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    deleted BOOLEAN NOT NULL DEFAULT FALSE,
+    changed_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
 -- Create indexes for better performance
 CREATE INDEX IF NOT EXISTS idx_items_category_id ON items(category_id);
 CREATE INDEX IF NOT EXISTS idx_items_name ON items(name);
 CREATE INDEX IF NOT EXISTS idx_items_stock ON items(stock);
 CREATE INDEX IF NOT EXISTS idx_items_price ON items(price);
+CREATE INDEX IF NOT EXISTS idx_items_created_at ON items(created_at);
+-- Category filter combined with a price or stock range
+CREATE INDEX IF NOT EXISTS idx_items_category_price ON items(category_id, price);
+CREATE INDEX IF NOT EXISTS idx_items_category_stock ON items(category_id, stock);
 CREATE INDEX IF NOT EXISTS idx_categories_name ON categories(name);
+CREATE INDEX IF NOT EXISTS idx_change_log_changed_at ON change_log(changed_at);
@@ -0,0 +1,95 @@
+package com.sweetshop.config;
+
+import com.sweetshop.service.InventoryVersionService;
+import com.sweetshop.service.ItemService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class InventoryETagInterceptorTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+    
+    @Autowired
+    private ItemService itemService;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    // One version covers every inventory read, so a tag from one endpoint is valid for another
+    @Test
+    void matchingETagIsAnswered304WithoutTouchingTheDatabase() throws Exception {
+        String eTag = fetch("/api/items", null).getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isEqualTo(inventoryVersion.getETag());
+        
+        SqlStatementStats stats = SqlStatementStats.record(() ->
+                mockMvc.perform(get("/api/categories").header(HttpHeaders.IF_NONE_MATCH, eTag))
+                        .andExpect(status().isNotModified()));
+        assertThat(stats.getStatements()).isZero();
+    }
+    
+    @Test
+    void committedWriteChangesTheETag() throws Exception {
+        String eTag = fetch("/api/items/4", null).getHeader(HttpHeaders.ETAG);
+        
+        mockMvc.perform(patch("/api/items/4/stock")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content("{\"delta\":1}"))
+                .andExpect(status().isOk());
+        
+        MockHttpServletResponse response = fetch("/api/items/4", eTag);
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNotEqualTo(eTag);
+    }
+    
+    @Test
+    void rolledBackWriteKeepsTheETag() throws Exception {
+        String eTag = fetch("/api/items/4", null).getHeader(HttpHeaders.ETAG);
+        
+        // adjustStock runs outside any caller's transaction, so roll back a write that joins this one
+        transactionTemplate.executeWithoutResult(tx -> {
+            itemService.applyStockDeltas(Map.of(4L, 1));
+            tx.setRollbackOnly();
+        });
+        
+        assertThat(inventoryVersion.getETag()).isEqualTo(eTag);
+        assertThat(fetch("/api/items/4", eTag).getStatus()).isEqualTo(304);
+    }
+    
+    @Test
+    void versionIsBumpedOnlyAfterCommit() {
+        long before = inventoryVersion.getVersion();
+        transactionTemplate.executeWithoutResult(tx -> {
+            inventoryVersion.changed();
+            // Readers inside the transaction still see the old version
+            assertThat(inventoryVersion.getVersion()).isEqualTo(before);
+        });
+        assertThat(inventoryVersion.getVersion()).isGreaterThan(before);
+    }
+    
+    private MockHttpServletResponse fetch(String url, String ifNoneMatch) throws Exception {
+        return mockMvc.perform(ifNoneMatch == null ? get(url) : get(url).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                .andReturn().getResponse();
+    }
+}
@@ -0,0 +1,253 @@
+package com.sweetshop.config;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Two embedded H2 databases that each know their own name stand in for the primary and the replica
+class ReadWriteRoutingDataSourceTest {
+    
+    private SwitchableDataSource replica;
+    private ReadWriteRoutingDataSource routing;
+    
+    @BeforeEach
+    void setUp() throws SQLException {
+        replica = new SwitchableDataSource(database("replica"));
+        routing = new ReadWriteRoutingDataSource(database("primary"), replica, 1);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        routing.unbindClient();
+    }
+    
+    @Test
+    void readOnlyTransactionsGoToTheReplicaAndTheRestToThePrimary() throws SQLException {
+        assertThat(readOnly()).isEqualTo("replica");
+        assertThat(readWrite(false)).isEqualTo("primary");
+    }
+    
+    @Test
+    void explicitCredentialsAreRoutedLikeTheDefaultOnes() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection("", "")) {
+            assertThat(name(connection)).isEqualTo("replica");
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+        try (Connection connection = routing.getConnection("", "")) {
+            assertThat(name(connection)).isEqualTo("primary");
+        }
+    }
+    
+    @Test
+    void clientReadsItsOwnWriteFromThePrimaryWhileOthersStayOnTheReplica() throws Exception {
+        AtomicInteger writes = new AtomicInteger();
+        routing.bindClient(false, writes::incrementAndGet);
+        assertThat(readOnly()).isEqualTo("replica");
+        
+        readWrite(true);
+        readWrite(true);
+        
+        assertThat(writes.get()).isEqualTo(1);
+        assertThat(readOnly()).isEqualTo("primary");
+        // Another request thread, from a client that has not written
+        assertThat(CompletableFuture.supplyAsync(this::readOnlyUnchecked).get()).isEqualTo("replica");
+    }
+    
+    @Test
+    void lockedReadRouteHoldsForTheRestOfTheRequest() throws Exception {
+        routing.bindClient(false, null);
+        assertThat(routing.lockReadRoute()).isTrue();
+        assertThat(readOnly()).isEqualTo("replica");
+        routing.unbindClient();
+        
+        routing.bindClient(true, null);
+        assertThat(routing.lockReadRoute()).isFalse();
+        routing.unbindClient();
+        
+        // A request that starts while the replica is down stays on the primary after it recovers
+        replica.down = true;
+        routing.checkReplica();
+        routing.bindClient(false, null);
+        assertThat(routing.lockReadRoute()).isFalse();
+        replica.down = false;
+        routing.checkReplica();
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(CompletableFuture.supplyAsync(this::readOnlyUnchecked).get()).isEqualTo("replica");
+    }
+    
+    @Test
+    void readsWithoutCommitAreNotWrites() throws SQLException {
+        AtomicInteger writes = new AtomicInteger();
+        routing.bindClient(false, writes::incrementAndGet);
+        
+        // Outside a transaction: auto-commit connection, no commit call
+        readWrite(false);
+        
+        assertThat(writes.get()).isZero();
+        assertThat(readOnly()).isEqualTo("replica");
+    }
+    
+    @Test
+    void backgroundWritesPinNobody() throws Exception {
+        CompletableFuture.runAsync(() -> {
+            try {
+                readWrite(true);
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }).get();
+        
+        routing.bindClient(false, null);
+        assertThat(readOnly()).isEqualTo("replica");
+    }
+    
+    @Test
+    void readsFallBackToThePrimaryWhileTheReplicaIsDown() throws SQLException {
+        replica.down = true;
+        assertThat(readOnly()).isEqualTo("primary");
+        assertThat(routing.isReplicaUp()).isFalse();
+        
+        // Stays on the primary after the replica recovers, until the health check sees it
+        replica.down = false;
+        assertThat(readOnly()).isEqualTo("primary");
+        routing.checkReplica();
+        assertThat(routing.isReplicaUp()).isTrue();
+        assertThat(readOnly()).isEqualTo("replica");
+    }
+    
+    @Test
+    void filterSetsTheCookieOnWriteAndPinsReadsThatCarryIt() throws Exception {
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(routing, 60_000);
+        
+        MockHttpServletRequest post = new MockHttpServletRequest("POST", "/api/items");
+        MockHttpServletResponse postResponse = new MockHttpServletResponse();
+        filter.doFilter(post, postResponse, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                try {
+                    readWrite(true);
+                } catch (SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }));
+        Cookie cookie = postResponse.getCookie(ReadYourWritesFilter.COOKIE);
+        assertThat(cookie).isNotNull();
+        
+        assertThat(readThroughFilter(filter, cookie)).isEqualTo("primary");
+        assertThat(readThroughFilter(filter, null)).isEqualTo("replica");
+        Cookie expired = new Cookie(ReadYourWritesFilter.COOKIE, String.valueOf(System.currentTimeMillis() - 120_000));
+        assertThat(readThroughFilter(filter, expired)).isEqualTo("replica");
+    }
+    
+    private String readThroughFilter(ReadYourWritesFilter filter, Cookie cookie) throws Exception {
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/items");
+        if (cookie != null) {
+            get.setCookies(cookie);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> database = new AtomicReference<>();
+        filter.doFilter(get, response, new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest request, HttpServletResponse response) {
+                database.set(readOnlyUnchecked());
+            }
+        }));
+        assertThat(response.getCookie(ReadYourWritesFilter.COOKIE)).isNull();
+        return database.get();
+    }
+    
+    private String readOnly() throws SQLException {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        try (Connection connection = routing.getConnection()) {
+            return name(connection);
+        } finally {
+            TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        }
+    }
+    
+    private String readOnlyUnchecked() {
+        try {
+            return readOnly();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    // A read-write connection, committed like a transaction or left in auto-commit
+    private String readWrite(boolean transactional) throws SQLException {
+        try (Connection connection = routing.getConnection()) {
+            if (!transactional) {
+                return name(connection);
+            }
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE whoami SET writes = writes + 1");
+            }
+            String name = name(connection);
+            connection.commit();
+            connection.setAutoCommit(true);
+            return name;
+        }
+    }
+    
+    private static String name(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("SELECT name FROM whoami")) {
+            rows.next();
+            return rows.getString(1);
+        }
+    }
+    
+    private static DataSource database(String name) throws SQLException {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE whoami (name VARCHAR(20), writes INT)");
+            statement.execute("INSERT INTO whoami VALUES ('" + name + "', 0)");
+        }
+        return dataSource;
+    }
+    
+    // A replica that can be taken down and brought back
+    private static class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+        
+        SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+        
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Connection refused");
+            }
+            return super.getConnection();
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.sweetshop.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.service.InventoryVersionService;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// The replica-h2 replica never replicates on its own, so it lags the primary until the test copies
+// rows across: a tagged listing read from it must carry a tag that moves once the rows arrive, and
+// only a tag naming the committed position may be confirmed without asking the replica
+@SpringBootTest(properties = "sweetshop.datasource.replica.url=jdbc:h2:mem:replica-${random.uuid};MODE=MySQL;DB_CLOSE_DELAY=-1")
+@AutoConfigureMockMvc
+@ActiveProfiles({"replica-h2", "test"})
+class ReplicaETagTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InventoryVersionService inventoryVersion;
+
+    @Autowired
+    @Qualifier("primaryDataSource")
+    private DataSource primary;
+
+    @Autowired
+    @Qualifier("replicaDataSource")
+    private DataSource replica;
+
+    @Test
+    void taggedListingIsReadFromTheReplicaUnderItsPosition() throws Exception {
+        String category = "Replica " + UUID.randomUUID().toString().substring(0, 8);
+        String body = objectMapper.writeValueAsString(Map.of("name", category + " Item", "category", category,
+                                                             "stock", 4, "price", "3.00", "description", "Lagging replica test"));
+        Cookie lastWrite = mockMvc.perform(post("/api/items").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getCookie(ReadYourWritesFilter.COOKIE);
+
+        // No read-your-writes cookie: the listing comes from the replica, which does not have the item yet
+        MockHttpServletResponse lagging = list(category, null);
+        assertThat(lagging.getStatus()).isEqualTo(200);
+        assertThat(content(lagging)).isEmpty();
+        String eTag = lagging.getHeader(HttpHeaders.ETAG);
+        assertThat(eTag).isNotEqualTo(committedTag()).endsWith("." + inventoryVersion.getVersion() + "\"");
+        
+        // The tag names less than the primary has committed, so it is only confirmed after asking the
+        // replica, which has not moved
+        assertThat(list(category, eTag).getStatus()).isEqualTo(304);
+        
+        // The writer reads its own write from the primary under the plain version
+        MockHttpServletResponse own = mockMvc.perform(get("/api/items").param("category", category).cookie(lastWrite))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+        assertThat(own.getHeader(HttpHeaders.ETAG)).isEqualTo(inventoryVersion.getETag());
+        assertThat(content(own)).hasSize(1);
+        
+        replicate(category);
+        
+        MockHttpServletResponse caughtUp = list(category, eTag);
+        assertThat(caughtUp.getStatus()).isEqualTo(200);
+        assertThat(caughtUp.getHeader(HttpHeaders.ETAG)).isEqualTo(committedTag());
+        assertThat(content(caughtUp)).hasSize(1);
+        assertThat(content(caughtUp).get(0).get("name").asText()).isEqualTo(category + " Item");
+        
+        // Once the replica has caught up, an unchanged poll is answered without touching either database
+        SqlStatementStats stats = SqlStatementStats.begin();
+        MockHttpServletResponse confirmed;
+        try {
+            confirmed = list(category, committedTag());
+        } finally {
+            stats.end();
+        }
+        assertThat(confirmed.getStatus()).isEqualTo(304);
+        assertThat(stats.getStatements()).isZero();
+    }
+    
+    private String committedTag() {
+        return "\"" + inventoryVersion.getPosition() + "." + inventoryVersion.getVersion() + "\"";
+    }
+    
+    private MockHttpServletResponse list(String category, String ifNoneMatch) throws Exception {
+        return mockMvc.perform(ifNoneMatch == null
+                                       ? get("/api/items").param("category", category)
+                                       : get("/api/items").param("category", category).header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch))
+                .andReturn().getResponse();
+    }
+
+    private JsonNode content(MockHttpServletResponse response) throws Exception {
+        return objectMapper.readTree(response.getContentAsString()).get("content");
+    }
+
+    // Apply the write to the replica the way replication would: the rows, then the change log entries
+    private void replicate(String category) {
+        JdbcTemplate from = new JdbcTemplate(primary);
+        JdbcTemplate to = new JdbcTemplate(replica);
+        Map<String, Object> categoryRow = from.queryForMap(
+                "SELECT id, name, description FROM categories WHERE name = ?", category);
+        to.update("INSERT INTO categories (id, name, description) VALUES (?, ?, ?)",
+                  categoryRow.get("ID"), categoryRow.get("NAME"), categoryRow.get("DESCRIPTION"));
+        Map<String, Object> itemRow = from.queryForMap(
+                "SELECT id, name, category_id, stock, price, description FROM items WHERE name = ?", category + " Item");
+        to.update("INSERT INTO items (id, name, category_id, stock, price, description) VALUES (?, ?, ?, ?, ?, ?)",
+                  itemRow.get("ID"), itemRow.get("NAME"), itemRow.get("CATEGORY_ID"), itemRow.get("STOCK"),
+                  itemRow.get("PRICE"), itemRow.get("DESCRIPTION"));
+        Long applied = to.queryForObject("SELECT COALESCE(MAX(seq), 0) FROM change_log", Long.class);
+        for (Map<String, Object> entry : from.queryForList(
+                "SELECT seq, entity_type, entity_id, deleted, changed_at FROM change_log WHERE seq > ? ORDER BY seq", applied)) {
+            to.update("INSERT INTO change_log (seq, entity_type, entity_id, deleted, changed_at) VALUES (?, ?, ?, ?, ?)",
+                      entry.get("SEQ"), entry.get("ENTITY_TYPE"), entry.get("ENTITY_ID"), entry.get("DELETED"),
+                      entry.get("CHANGED_AT"));
+        }
+    }
+}
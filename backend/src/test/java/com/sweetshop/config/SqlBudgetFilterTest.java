@@ -0,0 +1,122 @@
+package com.sweetshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Statements counted by SqlMonitoringDataSource end up in the per-endpoint metrics, tagged with the
+// route template, and requests over the budget are counted
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class SqlBudgetFilterTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Test
+    void itemListIsRecordedUnderItsRoute() throws Exception {
+        int statements = assertRecorded(get("/api/items?size=5"), "GET", "/api/items");
+        assertThat(statements).isEqualTo(2);
+    }
+    
+    @Test
+    void itemByIdIsRecordedUnderTheTemplateNotThePath() throws Exception {
+        assertRecorded(get("/api/items/3"), "GET", "/api/items/{id}");
+        assertThat(meterRegistry.find(SqlBudgetFilter.STATEMENTS_METRIC).tag("uri", "/api/items/3").summary()).isNull();
+    }
+    
+    @Test
+    void categoryListIsRecordedUnderItsRoute() throws Exception {
+        int statements = assertRecorded(get("/api/categories"), "GET", "/api/categories");
+        assertThat(statements).isEqualTo(1);
+    }
+    
+    // Checking for items must not load them: lookup, existence check, delete, then the change log id and row
+    @Test
+    void categoryDeleteDoesNotLoadItsItems() throws Exception {
+        String created = mockMvc.perform(post("/api/categories")
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content("{\"name\":\"Budget Test\",\"description\":\"Deleted again\"}"))
+                .andReturn().getResponse().getContentAsString();
+        long id = objectMapper.readTree(created).get("id").asLong();
+        
+        int statements = assertRecorded(delete("/api/categories/" + id), "DELETE", "/api/categories/{id}");
+        assertThat(statements).isEqualTo(5);
+    }
+    
+    @Test
+    void requestsOverTheBudgetAreCounted() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        SqlBudgetFilter filter = new SqlBudgetFilter(registry, 2);
+        
+        runStatements(filter, 2);
+        runStatements(filter, 3);
+        
+        DistributionSummary summary = registry.get(SqlBudgetFilter.STATEMENTS_METRIC)
+                .tags("method", "GET", "uri", "/api/items").summary();
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(5);
+        assertThat(registry.get(SqlBudgetFilter.OVER_BUDGET_METRIC).counter().count()).isEqualTo(1);
+    }
+    
+    // Perform the request and check it was recorded once, with the statements it ran; returns that count
+    private int assertRecorded(RequestBuilder request, String method, String uri) throws Exception {
+        double countBefore = summary(method, uri).map(DistributionSummary::count).orElse(0L);
+        double totalBefore = summary(method, uri).map(DistributionSummary::totalAmount).orElse(0.0);
+        
+        int statements = SqlStatementStats.record(() -> mockMvc.perform(request)).getStatements();
+        
+        DistributionSummary summary = summary(method, uri).orElseThrow();
+        assertThat(summary.count()).isEqualTo((long) countBefore + 1);
+        assertThat(summary.totalAmount() - totalBefore).isEqualTo(statements);
+        return statements;
+    }
+    
+    private Optional<DistributionSummary> summary(String method, String uri) {
+        return Optional.ofNullable(meterRegistry.find(SqlBudgetFilter.STATEMENTS_METRIC)
+                                              .tags("method", method, "uri", uri).summary());
+    }
+    
+    private static void runStatements(SqlBudgetFilter filter, int count) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/items");
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain(new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                req.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/api/items");
+                for (int i = 0; i < count; i++) {
+                    SqlStatementStats.statementExecuted(1_000, false);
+                }
+            }
+        }));
+    }
+}
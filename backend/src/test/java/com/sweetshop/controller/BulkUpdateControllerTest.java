@@ -0,0 +1,239 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.config.CacheConfig;
+import com.sweetshop.service.SuggestService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Each test works on items of its own new category, and compares aggregates before and after the
+// bulk update, so the rows of other tests sharing the context do not matter
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class BulkUpdateControllerTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private SuggestService suggestService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    private TestItems testItems;
+    private String category;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+        category = "Bulk " + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    @Test
+    void priceChangeUpdatesEveryMatchingRowAndBumpsItsVersion() throws Exception {
+        long cheap = createItem(category + " Cheap", 10, "2.00");
+        long middle = createItem(category + " Middle", 20, "4.00");
+        long dear = createItem(category + " Dear", 30, "10.00");
+        JsonNode staleDear = item(dear);
+        JsonNode dashboard = dashboard();
+        String eTag = eTag();
+        long start = position();
+        
+        JsonNode result = patchJson("/api/items/bulk/price", "{\"category\":\"" + category + "\",\"percent\":12.5}");
+        
+        assertThat(result.get("updated").asInt()).isEqualTo(3);
+        assertThat(price(cheap)).isEqualByComparingTo("2.25");
+        assertThat(price(middle)).isEqualByComparingTo("4.50");
+        assertThat(price(dear)).isEqualByComparingTo("11.25");
+        JsonNode freshDear = item(dear);
+        assertThat(freshDear.get("version").asLong()).isEqualTo(staleDear.get("version").asLong() + 1);
+        
+        // A client that read the item before the bulk update cannot overwrite the new price
+        perform(put("/api/items/" + dear).contentType(MediaType.APPLICATION_JSON).content(testItems.body(staleDear)),
+                status().isConflict());
+        assertThat(price(dear)).isEqualByComparingTo("11.25");
+        perform(put("/api/items/" + dear).contentType(MediaType.APPLICATION_JSON).content(testItems.body(freshDear)),
+                status().isOk());
+        
+        // 10 x 0.25 + 20 x 0.50 + 30 x 1.25
+        JsonNode after = dashboard();
+        assertThat(after.get("totalItems").asLong()).isEqualTo(dashboard.get("totalItems").asLong());
+        assertThat(after.get("totalStock").asLong()).isEqualTo(dashboard.get("totalStock").asLong());
+        assertThat(after.get("totalValue").decimalValue())
+                .isEqualByComparingTo(dashboard.get("totalValue").decimalValue().add(new BigDecimal("50.00")));
+        assertCategoryStatisticsMatchRows();
+        
+        assertThat(changedIds(start)).containsExactlyInAnyOrder(cheap, middle, dear);
+        assertThat(eTag()).isNotEqualTo(eTag);
+    }
+    
+    @Test
+    void stockResetRespectsTheFilterAndKeepsSearchAndSuggestionsInStep() throws Exception {
+        String prefix = "Bulkstock" + UUID.randomUUID().toString().substring(0, 8);
+        long first = createItem(prefix + " A", 1, "3.00");
+        long second = createItem(prefix + " B", 2, "3.00");
+        long third = createItem(prefix + " C", 3, "3.00");
+        suggestService.rerankPendingStocks();
+        assertThat(suggestedIds(prefix)).containsExactly(third, second, first);
+        JsonNode dashboard = dashboard();
+        long start = position();
+        Cache items = cacheManager.getCache(CacheConfig.ITEMS);
+        item(first);
+        item(third);
+        
+        JsonNode result = patchJson("/api/items/bulk/stock", "{\"category\":\"" + category + "\",\"maxStock\":2,\"stock\":17}");
+        
+        assertThat(result.get("updated").asInt()).isEqualTo(2);
+        // Only the updated items leave the cache
+        assertThat(items.get(first)).isNull();
+        assertThat(items.get(third)).isNotNull();
+        assertThat(item(first).get("stock").asInt()).isEqualTo(17);
+        assertThat(item(second).get("stock").asInt()).isEqualTo(17);
+        assertThat(item(third).get("stock").asInt()).isEqualTo(3);
+        
+        // Two items moved from 1 and 2 to 17, both out of low stock
+        JsonNode after = dashboard();
+        assertThat(after.get("totalStock").asLong()).isEqualTo(dashboard.get("totalStock").asLong() + 31);
+        assertThat(after.get("totalValue").decimalValue())
+                .isEqualByComparingTo(dashboard.get("totalValue").decimalValue().add(new BigDecimal("93.00")));
+        assertThat(after.get("lowStockItems").asInt()).isEqualTo(dashboard.get("lowStockItems").asInt() - 2);
+        assertCategoryStatisticsMatchRows();
+        
+        // Name search still finds every item with its new stock; suggestions rerank by stock
+        JsonNode found = getJson("/api/items?search=" + prefix + "&sortBy=id");
+        List<Integer> stocks = new ArrayList<>();
+        found.get("content").forEach(item -> stocks.add(item.get("stock").asInt()));
+        assertThat(stocks).containsExactly(17, 17, 3);
+        suggestService.rerankPendingStocks();
+        assertThat(suggestedIds(prefix)).containsExactly(first, second, third);
+        
+        assertThat(changedIds(start)).containsExactlyInAnyOrder(first, second);
+    }
+    
+    @Test
+    void filterMatchingNothingChangesNothing() throws Exception {
+        createItem(category + " Only", 5, "1.00");
+        String eTag = eTag();
+        long start = position();
+        
+        JsonNode result = patchJson("/api/items/bulk/stock", "{\"category\":\"" + category + "\",\"minStock\":6,\"stock\":0}");
+        
+        assertThat(result.get("updated").asInt()).isZero();
+        assertThat(position()).isEqualTo(start);
+        assertThat(eTag()).isEqualTo(eTag);
+        perform(patch("/api/items/bulk/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"No Such Category " + category + "\",\"stock\":0}"),
+                status().isOk());
+        assertThat(position()).isEqualTo(start);
+    }
+    
+    @Test
+    void invalidRequestsAreRejected() throws Exception {
+        perform(patch("/api/items/bulk/price").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"percent\":5,\"amount\":1.00}"),
+                status().isBadRequest());
+        perform(patch("/api/items/bulk/price").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"percent\":-100}"),
+                status().isBadRequest());
+        perform(patch("/api/items/bulk/stock").contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"category\":\"" + category + "\"}"),
+                status().isBadRequest());
+    }
+    
+    // The in-memory rollup of the test's category against the rows themselves
+    private void assertCategoryStatisticsMatchRows() throws Exception {
+        JsonNode stats = null;
+        for (JsonNode candidate : getJson("/api/categories/statistics")) {
+            if (category.equals(candidate.get("categoryName").asText())) {
+                stats = candidate;
+            }
+        }
+        assertThat(stats).isNotNull();
+        Map<String, Object> rows = jdbcTemplate.queryForMap(
+                "SELECT COUNT(*) AS item_count, SUM(i.stock) AS total_stock, SUM(i.stock * i.price) AS total_value "
+                        + "FROM items i JOIN categories c ON c.id = i.category_id WHERE c.name = ?", category);
+        assertThat(stats.get("itemCount").asLong()).isEqualTo(((Number) rows.get("ITEM_COUNT")).longValue());
+        assertThat(stats.get("totalStock").asLong()).isEqualTo(((Number) rows.get("TOTAL_STOCK")).longValue());
+        assertThat(stats.get("totalValue").decimalValue()).isEqualByComparingTo((BigDecimal) rows.get("TOTAL_VALUE"));
+    }
+    
+    private long createItem(String name, int stock, String price) throws Exception {
+        return testItems.create(name, category, stock, price);
+    }
+    
+    private JsonNode item(long id) throws Exception {
+        return getJson("/api/items/" + id);
+    }
+    
+    private BigDecimal price(long id) throws Exception {
+        return item(id).get("price").decimalValue();
+    }
+    
+    private JsonNode dashboard() throws Exception {
+        return getJson("/api/dashboard/stats");
+    }
+    
+    private List<Long> suggestedIds(String prefix) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        getJson("/api/suggest?q=" + prefix).get("items").forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+    
+    private String eTag() throws Exception {
+        return mockMvc.perform(get("/api/items/low-stock")).andExpect(status().isOk()).andReturn().getResponse().getHeader("ETag");
+    }
+    
+    private long position() throws Exception {
+        return getJson("/api/changes").get("nextSince").asLong();
+    }
+    
+    private List<Long> changedIds(long since) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        getJson("/api/changes?since=" + since).get("changes").forEach(change -> ids.add(change.get("id").asLong()));
+        return ids;
+    }
+    
+    private JsonNode patchJson(String url, String body) throws Exception {
+        return objectMapper.readTree(perform(patch(url).contentType(MediaType.APPLICATION_JSON).content(body), status().isOk()));
+    }
+    
+    private JsonNode getJson(String url) throws Exception {
+        return objectMapper.readTree(perform(get(url), status().isOk()));
+    }
+    
+    private String perform(RequestBuilder request, ResultMatcher expected) throws Exception {
+        return mockMvc.perform(request).andExpect(expected).andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,183 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.config.CacheConfig;
+import com.sweetshop.service.CategoryService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Each write must drop exactly the cache entries it made stale: one item for an item write, the
+// category's items and names for a category update, and nothing belonging to another category
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class CacheInvalidationTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private CategoryService categoryService;
+    
+    private TestItems testItems;
+    private String category;
+    private String otherCategory;
+    private Cache items;
+    private Cache categoriesByName;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+        category = "Cache " + UUID.randomUUID().toString().substring(0, 8);
+        otherCategory = category + " Other";
+        items = cacheManager.getCache(CacheConfig.ITEMS);
+        categoriesByName = cacheManager.getCache(CacheConfig.CATEGORIES_BY_NAME);
+    }
+    
+    @Test
+    void itemUpdateEvictsOnlyThatItem() throws Exception {
+        long updated = createItem(category + " Updated");
+        long untouched = createItem(category + " Untouched");
+        getItem(updated);
+        getItem(untouched);
+        assertThat(items.get(updated)).isNotNull();
+        assertThat(items.get(untouched)).isNotNull();
+        
+        mockMvc.perform(put("/api/items/{id}", updated)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(itemBody(category + " Updated", "9.99", getItem(updated).get("version").asLong())))
+                .andExpect(status().isOk());
+        
+        assertThat(items.get(updated)).isNull();
+        assertThat(items.get(untouched)).isNotNull();
+        assertThat(getItem(updated).get("price").decimalValue()).isEqualByComparingTo("9.99");
+    }
+    
+    @Test
+    void itemDeleteEvictsThatItem() throws Exception {
+        long deleted = createItem(category + " Deleted");
+        long untouched = createItem(category + " Untouched");
+        getItem(deleted);
+        getItem(untouched);
+        
+        mockMvc.perform(delete("/api/items/{id}", deleted)).andExpect(status().isNoContent());
+        
+        assertThat(items.get(deleted)).isNull();
+        assertThat(items.get(untouched)).isNotNull();
+        mockMvc.perform(get("/api/items/{id}", deleted)).andExpect(status().isNotFound());
+    }
+    
+    @Test
+    void categoryRenameEvictsItsItemsAndNamesOnly() throws Exception {
+        long id = createItem(category + " Renamed");
+        long other = createItem(otherCategory, otherCategory + " Item");
+        JsonNode item = getItem(id);
+        getItem(other);
+        long categoryId = item.get("category").get("id").asLong();
+        assertThat(categoryService.getCategoryByName(category)).isPresent();
+        assertThat(categoryService.getCategoryByName(otherCategory)).isPresent();
+        assertThat(categoriesByName.get(category.toLowerCase(Locale.ROOT))).isNotNull();
+        
+        String renamed = category + " New";
+        // Misses are not cached, so looking the new name up first must not hide the renamed category
+        assertThat(categoryService.getCategoryByName(renamed)).isEmpty();
+        updateCategory(categoryId, renamed, "Renamed");
+        
+        assertThat(items.get(id)).isNull();
+        assertThat(categoriesByName.get(category.toLowerCase(Locale.ROOT))).isNull();
+        assertThat(items.get(other)).isNotNull();
+        assertThat(categoriesByName.get(otherCategory.toLowerCase(Locale.ROOT))).isNotNull();
+        assertThat(getItem(id).get("category").get("name").asText()).isEqualTo(renamed);
+        assertThat(categoryService.getCategoryByName(category)).isEmpty();
+        assertThat(categoryService.getCategoryByName(renamed.toUpperCase(Locale.ROOT))).isPresent();
+    }
+    
+    @Test
+    void categoryDescriptionEditEvictsItsItemsAndNameOnly() throws Exception {
+        long id = createItem(category + " Described");
+        long other = createItem(otherCategory, otherCategory + " Item");
+        long categoryId = getItem(id).get("category").get("id").asLong();
+        getItem(other);
+        categoryService.getCategoryByName(category);
+        categoryService.getCategoryByName(otherCategory);
+        
+        updateCategory(categoryId, category, "Described");
+        
+        assertThat(items.get(id)).isNull();
+        assertThat(categoriesByName.get(category.toLowerCase(Locale.ROOT))).isNull();
+        assertThat(items.get(other)).isNotNull();
+        assertThat(categoriesByName.get(otherCategory.toLowerCase(Locale.ROOT))).isNotNull();
+        assertThat(getItem(id).get("category").get("description").asText()).isEqualTo("Described");
+    }
+    
+    @Test
+    void categoryDeleteEvictsOnlyItsName() throws Exception {
+        createItem(otherCategory, otherCategory + " Item");
+        String created = mockMvc.perform(post("/api/categories")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", category, "description", "Empty"))))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        long categoryId = objectMapper.readTree(created).get("id").asLong();
+        categoryService.getCategoryByName(category);
+        categoryService.getCategoryByName(otherCategory);
+        
+        mockMvc.perform(delete("/api/categories/{id}", categoryId)).andExpect(status().is2xxSuccessful());
+        
+        assertThat(categoriesByName.get(category.toLowerCase(Locale.ROOT))).isNull();
+        assertThat(categoriesByName.get(otherCategory.toLowerCase(Locale.ROOT))).isNotNull();
+        assertThat(categoryService.getCategoryByName(category)).isEmpty();
+    }
+    
+    private void updateCategory(long id, String name, String description) throws Exception {
+        mockMvc.perform(put("/api/categories/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(Map.of("name", name, "description", description))))
+                .andExpect(status().isOk());
+    }
+    
+    private JsonNode getItem(long id) throws Exception {
+        String body = mockMvc.perform(get("/api/items/{id}", id))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+    
+    private long createItem(String name) throws Exception {
+        return createItem(category, name);
+    }
+    
+    private long createItem(String categoryName, String name) throws Exception {
+        return testItems.create(name, categoryName, 5, "3.00");
+    }
+    
+    private String itemBody(String name, String price, long version) throws Exception {
+        return testItems.body(name, category, 5, price, version);
+    }
+}
@@ -0,0 +1,142 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.repository.ChangeLogEntry;
+import com.sweetshop.repository.ChangeLogRepository;
+import com.sweetshop.service.ChangeLogService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultMatcher;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Each test starts from the feed's current position, so writes made by other tests sharing the
+// context do not matter
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ChangeFeedControllerTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private ChangeLogRepository changeLogRepository;
+    
+    @Autowired
+    private ChangeLogService changeLogService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private TestItems testItems;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+    }
+    
+    @Test
+    void changesCarryTheCurrentStateOnceAndDeletesAsTombstones() throws Exception {
+        long start = position();
+        long kept = createItem("Feed Kept");
+        long removed = createItem("Feed Removed");
+        perform(patch("/api/items/" + kept + "/stock")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\":5}"), status().isOk());
+        perform(delete("/api/items/" + removed), status().isNoContent());
+        
+        JsonNode feed = changes(start);
+        JsonNode changes = feed.get("changes");
+        assertThat(changes).hasSize(2);
+        // Ordered by each entity's last change: the stock change, then the delete
+        assertThat(changes.get(0).get("id").asLong()).isEqualTo(kept);
+        assertThat(changes.get(0).get("item").get("stock").asInt()).isEqualTo(15);
+        assertThat(changes.get(0).has("deleted")).isFalse();
+        assertThat(changes.get(1).get("id").asLong()).isEqualTo(removed);
+        assertThat(changes.get(1).get("deleted").asBoolean()).isTrue();
+        assertThat(changes.get(1).has("item")).isFalse();
+        assertThat(feed.get("nextSince").asLong()).isEqualTo(position());
+        assertThat(feed.get("hasMore").asBoolean()).isFalse();
+        
+        assertThat(changes(feed.get("nextSince").asLong()).get("changes")).isEmpty();
+    }
+    
+    @Test
+    void feedWaitsAtARecentGapAndSkipsItOnceSettled() throws Exception {
+        long start = position();
+        // A rolled back append burns its sequence number, leaving a gap like an uncommitted writer would
+        transactionTemplate.executeWithoutResult(tx -> {
+            changeLogRepository.append(ChangeLogEntry.ITEM, List.of(1L), false);
+            tx.setRollbackOnly();
+        });
+        changeLogRepository.append(ChangeLogEntry.ITEM, List.of(2L), false);
+        long afterGap = position();
+        assertThat(afterGap).isGreaterThan(start + 1);
+        
+        JsonNode waiting = changes(start);
+        assertThat(waiting.get("changes")).isEmpty();
+        assertThat(waiting.get("nextSince").asLong()).isEqualTo(start);
+        assertThat(waiting.get("hasMore").asBoolean()).isTrue();
+        
+        jdbcTemplate.update("UPDATE change_log SET changed_at = DATEADD('MINUTE', -1, CURRENT_TIMESTAMP) WHERE seq = ?", afterGap);
+        JsonNode settled = changes(start);
+        assertThat(settled.get("changes")).hasSize(1);
+        assertThat(settled.get("changes").get(0).get("seq").asLong()).isEqualTo(afterGap);
+        assertThat(settled.get("nextSince").asLong()).isEqualTo(afterGap);
+    }
+    
+    @Test
+    void positionsCompactedAwayAreGone() throws Exception {
+        long start = position();
+        changeLogRepository.append(ChangeLogEntry.ITEM, List.of(1L, 2L, 3L), false);
+        long newest = position();
+        jdbcTemplate.update("UPDATE change_log SET changed_at = DATEADD('DAY', -30, CURRENT_TIMESTAMP) WHERE seq > ?", start);
+        
+        changeLogService.compact();
+        
+        // The newest entry survives so the position is kept; anything before it has to reload
+        perform(get("/api/changes").param("since", String.valueOf(start)), status().isGone());
+        assertThat(changes(newest - 1).get("changes")).hasSize(1);
+        assertThat(changes(newest).get("changes")).isEmpty();
+        assertThat(position()).isEqualTo(newest);
+    }
+    
+    private long createItem(String name) throws Exception {
+        return testItems.create(name, "Dry Sweet", 10, "5.00");
+    }
+    
+    private long position() throws Exception {
+        return objectMapper.readTree(perform(get("/api/changes"), status().isOk())).get("nextSince").asLong();
+    }
+    
+    private JsonNode changes(long since) throws Exception {
+        return objectMapper.readTree(perform(get("/api/changes").param("since", String.valueOf(since)), status().isOk()));
+    }
+    
+    private String perform(RequestBuilder request, ResultMatcher expected) throws Exception {
+        return mockMvc.perform(request).andExpect(expected).andReturn().getResponse().getContentAsString();
+    }
+}
@@ -0,0 +1,113 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class CheckoutControllerTest {
+    
+    private static final int BUYERS = 40;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private CategoryRepository categoryRepository;
+    
+    // Half the baskets list the two items one way round, half the other; only the scarce item runs out
+    @Test
+    void concurrentBasketsInOppositeOrderNeitherOversellNorDeadlock() throws Exception {
+        Category category = categoryRepository.save(new Category("Checkout Test", "Checkout concurrency"));
+        Long scarceId = itemRepository.save(new Item("Scarce Sweet", category, 25, new BigDecimal("10.00"), "Runs out")).getId();
+        Long plentyId = itemRepository.save(new Item("Plenty Sweet", category, 500, new BigDecimal("5.00"), "Never runs out")).getId();
+        
+        ExecutorService buyers = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> statuses = new ArrayList<>();
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                String scarce = line(scarceId, 1);
+                String plenty = line(plentyId, 2);
+                String body = i % 2 == 0 ? basket(scarce, plenty) : basket(plenty, scarce);
+                statuses.add(buyers.submit(() -> {
+                    start.await();
+                    return mockMvc.perform(post("/api/checkout")
+                                                   .contentType(MediaType.APPLICATION_JSON)
+                                                   .content(body))
+                            .andReturn().getResponse().getStatus();
+                }));
+            }
+            start.countDown();
+            
+            int sold = 0;
+            int rejected = 0;
+            for (Future<Integer> status : statuses) {
+                // A deadlock would show up as a timeout here, or as a 500 from the lock-wait error
+                int code = status.get(30, TimeUnit.SECONDS);
+                assertThat(code).isIn(200, 409);
+                if (code == 200) {
+                    sold++;
+                } else {
+                    rejected++;
+                }
+            }
+            
+            assertThat(sold).isEqualTo(25);
+            assertThat(rejected).isEqualTo(BUYERS - 25);
+            assertThat(itemRepository.findById(scarceId).orElseThrow().getStock()).isZero();
+            assertThat(itemRepository.findById(plentyId).orElseThrow().getStock()).isEqualTo(500 - sold * 2);
+        } finally {
+            buyers.shutdownNow();
+        }
+    }
+    
+    @Test
+    void repeatedLinesSummingPastIntRangeAreRejected() throws Exception {
+        Category category = categoryRepository.save(new Category("Checkout Overflow", "Checkout overflow"));
+        Long id = itemRepository.save(new Item("Overflow Sweet", category, 5, new BigDecimal("1.00"), "Overflow")).getId();
+        
+        mockMvc.perform(post("/api/checkout")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .content(basket(line(id, Integer.MAX_VALUE), line(id, 1))))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(containsString("'quantity'")));
+        assertThat(itemRepository.findById(id).orElseThrow().getStock()).isEqualTo(5);
+    }
+    
+    private static String basket(String firstLine, String secondLine) {
+        return "{\"lines\":[" + firstLine + "," + secondLine + "]}";
+    }
+    
+    private static String line(Long itemId, int quantity) {
+        return "{\"itemId\":" + itemId + ",\"quantity\":" + quantity + "}";
+    }
+}
@@ -0,0 +1,210 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sweetshop.config.CacheConfig;
+import com.sweetshop.service.InventoryVersionService;
+import com.sweetshop.service.ItemService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// A GET that lands right after a write's version bump, while the write's remaining after-commit
+// actions have yet to run, must already see the write: the new ETag may never label the old item
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ItemCacheVersionTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @SpyBean
+    private InventoryVersionService inventoryVersion;
+    
+    @Autowired
+    private ItemService itemService;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    
+    private final ExecutorService reader = Executors.newSingleThreadExecutor();
+    
+    // Item fetched right after each version bump, while probing
+    private final List<MockHttpServletResponse> probes = new ArrayList<>();
+    private volatile Long probedId;
+    
+    private TestItems testItems;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+    }
+    
+    @BeforeEach
+    void probeAfterEachBump() {
+        doAnswer(invocation -> {
+            Object result = invocation.callRealMethod();
+            Long id = probedId;
+            if (id != null && TransactionSynchronizationManager.isSynchronizationActive()) {
+                // Registered just after the bump's own hook, so it runs right after the bump
+                TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                    @Override
+                    public void afterCommit() {
+                        probes.add(fetchOnOtherThread(id));
+                    }
+                });
+            }
+            return result;
+        }).when(inventoryVersion).changed();
+    }
+    
+    @AfterEach
+    void stopReader() {
+        reader.shutdownNow();
+    }
+    
+    @Test
+    void updateIsVisibleUnderTheNewETag() throws Exception {
+        long id = createItem();
+        fetch(id);
+        
+        probedId = id;
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(itemBody("Race " + id, 5, "8.75", 0)))
+                .andExpect(status().isOk());
+        probedId = null;
+        
+        assertThat(probes).hasSize(1);
+        MockHttpServletResponse probe = probes.get(0);
+        assertThat(probe.getHeader(HttpHeaders.ETAG)).isEqualTo(inventoryVersion.getETag());
+        assertThat(objectMapper.readTree(probe.getContentAsString()).get("price").decimalValue())
+                .isEqualByComparingTo("8.75");
+    }
+    
+    // Without the version read there is nothing to check a concurrent edit against
+    @Test
+    void updateWithoutVersionIsRejected() throws Exception {
+        long id = createItem();
+        
+        mockMvc.perform(put("/api/items/{id}", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(itemBody("Race " + id, 5, "8.75")))
+                .andExpect(status().isBadRequest());
+        
+        assertThat(objectMapper.readTree(fetch(id).getContentAsString()).get("price").decimalValue())
+                .isEqualByComparingTo("4.00");
+    }
+    
+    @Test
+    void stockAdjustmentIsVisibleUnderTheNewETag() throws Exception {
+        long id = createItem();
+        fetch(id);
+        
+        probedId = id;
+        mockMvc.perform(patch("/api/items/{id}/stock", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\":-2}"))
+                .andExpect(status().isOk());
+        probedId = null;
+        
+        assertThat(probes).hasSize(1);
+        assertThat(objectMapper.readTree(probes.get(0).getContentAsString()).get("stock").asInt()).isEqualTo(3);
+    }
+    
+    @Test
+    void deleteIsVisibleUnderTheNewETag() throws Exception {
+        long id = createItem();
+        fetch(id);
+        
+        probedId = id;
+        mockMvc.perform(delete("/api/items/{id}", id)).andExpect(status().isNoContent());
+        probedId = null;
+        
+        assertThat(probes).hasSize(1);
+        assertThat(probes.get(0).getStatus()).isEqualTo(404);
+    }
+    
+    // The load's put waits for its own commit, by which time a writer has committed, evicted and bumped
+    @Test
+    void loadThatRacedAWriteIsNotCached() throws Exception {
+        long id = createItem();
+        
+        transactionTemplate.executeWithoutResult(tx -> {
+            assertThat(itemService.getItemById(id)).isPresent();
+            CompletableFuture.runAsync(() -> {
+                try {
+                    mockMvc.perform(put("/api/items/{id}", id)
+                                    .contentType(MediaType.APPLICATION_JSON)
+                                    .content(itemBody("Race " + id, 5, "6.25", 0)))
+                            .andExpect(status().isOk());
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }).join();
+        });
+        
+        assertThat(cacheManager.getCache(CacheConfig.ITEMS).get(id)).isNull();
+        assertThat(objectMapper.readTree(fetch(id).getContentAsString()).get("price").decimalValue())
+                .isEqualByComparingTo("6.25");
+        assertThat(cacheManager.getCache(CacheConfig.ITEMS).get(id)).isNotNull();
+    }
+    
+    private MockHttpServletResponse fetchOnOtherThread(long id) {
+        try {
+            return reader.submit(() -> fetch(id)).get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private MockHttpServletResponse fetch(long id) throws Exception {
+        return mockMvc.perform(get("/api/items/{id}", id)).andReturn().getResponse();
+    }
+    
+    private long createItem() throws Exception {
+        return testItems.create("Race " + UUID.randomUUID().toString().substring(0, 8), "Dry Sweet", 5, "4.00");
+    }
+    
+    private String itemBody(String name, int stock, String price) throws Exception {
+        return testItems.body(name, "Dry Sweet", stock, price);
+    }
+    
+    private String itemBody(String name, int stock, String price, long version) throws Exception {
+        return testItems.body(name, "Dry Sweet", stock, price, version);
+    }
+}
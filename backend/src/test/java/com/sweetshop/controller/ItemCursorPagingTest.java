@@ -0,0 +1,154 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Walks a fresh category with the cursor while other threads keep creating items in it, before and
+// after the cursor. Keyset pages must never repeat or skip a row that was there when the walk started.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ItemCursorPagingTest {
+    
+    private static final int SEEDED = 30;
+    private static final int WRITERS = 4;
+    private static final int CREATES_PER_WRITER = 40;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private TestItems testItems;
+    private String category;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+        category = "Cursor " + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    @Test
+    void nameOrderWalkSeesEverySeededItemOnceDespiteConcurrentCreates() throws Exception {
+        Set<Long> seeded = new HashSet<>();
+        for (int i = 0; i < SEEDED; i++) {
+            // Even numbers; the writers fill in odd ones, so new rows land on both sides of the cursor
+            seeded.add(createItem(String.format("%s %03d", category, i * 2), "5.00"));
+        }
+        
+        List<JsonNode> walked = walkWhileCreating("name", "asc",
+                n -> String.format("%s %03d w%d", category, (n * 7) % (SEEDED * 2) | 1, n), n -> "5.00");
+        
+        List<String> names = new ArrayList<>();
+        walked.forEach(item -> names.add(item.get("name").asText()));
+        assertThat(names).isSorted().doesNotHaveDuplicates();
+        assertThat(ids(walked)).containsAll(seeded);
+    }
+    
+    @Test
+    void priceOrderWalkBreaksTiesByIdDespiteConcurrentCreates() throws Exception {
+        Set<Long> seeded = new HashSet<>();
+        for (int i = 0; i < SEEDED; i++) {
+            // Three prices only, so most of the seek relies on the id tie-break
+            seeded.add(createItem(category + " Seeded " + i, (i % 3 + 1) + ".00"));
+        }
+        
+        List<JsonNode> walked = walkWhileCreating("price", "desc",
+                n -> category + " Written " + n, n -> (n % 3 + 1) + ".00");
+        
+        // Strictly descending by (price, id)
+        for (int i = 1; i < walked.size(); i++) {
+            BigDecimal previousPrice = walked.get(i - 1).get("price").decimalValue();
+            BigDecimal price = walked.get(i).get("price").decimalValue();
+            int byPrice = price.compareTo(previousPrice);
+            assertThat(byPrice).isLessThanOrEqualTo(0);
+            if (byPrice == 0) {
+                assertThat(walked.get(i).get("id").asLong()).isLessThan(walked.get(i - 1).get("id").asLong());
+            }
+        }
+        assertThat(ids(walked)).doesNotHaveDuplicates().containsAll(seeded);
+    }
+    
+    // Page through the category five rows at a time while the writers create items, until the walk ends
+    private List<JsonNode> walkWhileCreating(String sortBy, String sortDir, IntFunction<String> name,
+                                             IntFunction<String> price) throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(WRITERS);
+        AtomicBoolean walking = new AtomicBoolean(true);
+        List<Future<Integer>> created = new ArrayList<>();
+        List<JsonNode> walked = new ArrayList<>();
+        try {
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                created.add(writers.submit(() -> {
+                    int count = 0;
+                    while (walking.get() && count < CREATES_PER_WRITER) {
+                        int n = count++ * WRITERS + writer;
+                        createItem(name.apply(n), price.apply(n));
+                    }
+                    return count;
+                }));
+            }
+            
+            String cursor = "";
+            do {
+                String body = mockMvc.perform(get("/api/items")
+                                .param("category", category)
+                                .param("cursor", cursor)
+                                .param("size", "5")
+                                .param("sortBy", sortBy)
+                                .param("sortDir", sortDir))
+                        .andExpect(status().isOk())
+                        .andReturn().getResponse().getContentAsString();
+                JsonNode page = objectMapper.readTree(body);
+                page.get("content").forEach(walked::add);
+                cursor = page.hasNonNull("nextCursor") ? page.get("nextCursor").asText() : null;
+            } while (cursor != null);
+        } finally {
+            walking.set(false);
+            writers.shutdown();
+        }
+        assertThat(writers.awaitTermination(30, TimeUnit.SECONDS)).isTrue();
+        int total = 0;
+        for (Future<Integer> writer : created) {
+            total += writer.get();
+        }
+        // The walk really ran alongside the writers
+        assertThat(total).isPositive();
+        return walked;
+    }
+    
+    private long createItem(String name, String price) throws Exception {
+        return testItems.create(name, category, 10, price);
+    }
+    
+    private static List<Long> ids(List<JsonNode> items) {
+        List<Long> ids = new ArrayList<>();
+        items.forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,109 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Exports the whole inventory and looks for an item whose name and description need escaping
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ItemExportTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private String name;
+    private long id;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        name = "Export \"Quoted\", Sweet " + UUID.randomUUID().toString().substring(0, 8);
+        String body = objectMapper.writeValueAsString(Map.of("name", name, "category", "Dry Sweet", "stock", 7,
+                                                             "price", "12.50", "description", "Line one\nLine two"));
+        String created = mockMvc.perform(post("/api/items").contentType(MediaType.APPLICATION_JSON).content(body))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        id = objectMapper.readTree(created).get("id").asLong();
+    }
+    
+    @Test
+    void ndjsonIsOneEscapedObjectPerItem() throws Exception {
+        MockHttpServletResponse response = export("ndjson");
+        assertThat(response.getContentType()).startsWith("application/x-ndjson");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"items.ndjson\"");
+        
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).endsWith("\n");
+        List<JsonNode> items = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            items.add(objectMapper.readTree(line));
+        }
+        assertThat(items).hasSize(itemCount());
+        
+        JsonNode item = items.stream().filter(node -> node.get("id").asLong() == id).findFirst().orElseThrow();
+        assertThat(item.get("name").asText()).isEqualTo(name);
+        assertThat(item.get("category").asText()).isEqualTo("Dry Sweet");
+        assertThat(item.get("stock").asInt()).isEqualTo(7);
+        assertThat(item.get("price").decimalValue()).isEqualByComparingTo("12.50");
+        assertThat(item.get("description").asText()).isEqualTo("Line one\nLine two");
+    }
+    
+    @Test
+    void csvQuotesFieldsWithSeparatorsQuotesAndLineBreaks() throws Exception {
+        MockHttpServletResponse response = export("csv");
+        assertThat(response.getContentType()).startsWith("text/csv");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"items.csv\"");
+        
+        String body = response.getContentAsString(StandardCharsets.UTF_8);
+        assertThat(body).startsWith("id,name,category,stock,price,description,createdAt,updatedAt\r\n");
+        String quotedName = "\"" + name.replace("\"", "\"\"") + "\"";
+        assertThat(body).contains("\r\n" + id + "," + quotedName + ",Dry Sweet,7,12.50,\"Line one\nLine two\",");
+        // Header plus one record per item; the only bare line feed is the one inside the quoted description
+        assertThat(body.split("\r\n")).hasSize(itemCount() + 1);
+    }
+    
+    @Test
+    void formatIsCaseInsensitive() throws Exception {
+        assertThat(export("CSV").getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"items.csv\"");
+        assertThat(export("NDJSON").getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"items.ndjson\"");
+        mockMvc.perform(get("/api/items/export").param("format", "xml")).andExpect(status().isBadRequest());
+    }
+    
+    private MockHttpServletResponse export(String format) throws Exception {
+        return mockMvc.perform(get("/api/items/export").param("format", format))
+                .andExpect(status().isOk())
+                .andReturn().getResponse();
+    }
+    
+    private int itemCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+    }
+}
@@ -0,0 +1,106 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Facet bands under the default bounds (price 100, 250, 500; stock 1, 10, 50): each band is
+// [from, to), so a value exactly on a bound counts in the band above it
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ItemFacetsTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    private TestItems testItems;
+    private String category;
+    
+    @BeforeEach
+    void setUp() throws Exception {
+        testItems = new TestItems(mockMvc, objectMapper);
+        category = "Facets " + UUID.randomUUID().toString().substring(0, 8);
+        createItem("99.99", 0);
+        createItem("100.00", 1);
+        createItem("249.99", 9);
+        createItem("250.00", 10);
+        createItem("499.99", 49);
+        createItem("500.00", 50);
+    }
+    
+    @Test
+    void valuesOnABoundCountInTheBandAboveIt() throws Exception {
+        JsonNode facets = facets("category=" + category);
+        
+        assertThat(counts(facets.get("priceBands"))).containsExactly(1L, 2L, 2L, 1L);
+        assertThat(counts(facets.get("stockBands"))).containsExactly(1L, 2L, 2L, 1L);
+        assertThat(facets.get("categories")).hasSize(1);
+        assertThat(facets.get("categories").get(0).get("count").asLong()).isEqualTo(6);
+    }
+    
+    @Test
+    void bandsCarryTheirBoundsOpenAtBothEnds() throws Exception {
+        // An open end is left out of the JSON
+        JsonNode prices = facets("category=" + category).get("priceBands");
+        
+        assertThat(prices).hasSize(4);
+        assertThat(prices.get(0).has("from")).isFalse();
+        assertThat(prices.get(0).get("to").decimalValue()).isEqualByComparingTo("100");
+        assertThat(prices.get(1).get("from").decimalValue()).isEqualByComparingTo("100");
+        assertThat(prices.get(3).get("from").decimalValue()).isEqualByComparingTo("500");
+        assertThat(prices.get(3).has("to")).isFalse();
+    }
+    
+    @Test
+    void bandsCountTheFilteredItemsOnly() throws Exception {
+        // The filter bounds are inclusive; the band bounds split the rest as before
+        JsonNode facets = facets("category=" + category + "&minPrice=100&maxPrice=250");
+        
+        assertThat(counts(facets.get("priceBands"))).containsExactly(0L, 2L, 1L, 0L);
+        assertThat(counts(facets.get("stockBands"))).containsExactly(0L, 2L, 1L, 0L);
+    }
+    
+    @Test
+    void unknownCategoryHasEmptyBands() throws Exception {
+        JsonNode facets = facets("category=" + category + " Missing");
+        
+        assertThat(facets.get("categories")).isEmpty();
+        assertThat(counts(facets.get("priceBands"))).containsExactly(0L, 0L, 0L, 0L);
+        assertThat(counts(facets.get("stockBands"))).containsExactly(0L, 0L, 0L, 0L);
+    }
+    
+    private JsonNode facets(String query) throws Exception {
+        String body = mockMvc.perform(get("/api/items?facets=true&" + query))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body).get("facets");
+    }
+    
+    private static List<Long> counts(JsonNode bands) {
+        List<Long> counts = new ArrayList<>();
+        bands.forEach(band -> counts.add(band.get("count").asLong()));
+        return counts;
+    }
+    
+    private void createItem(String price, int stock) throws Exception {
+        testItems.create(category + " " + price, category, stock, price);
+    }
+}
@@ -0,0 +1,223 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.h2.api.Trigger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Posts CSV bodies to the import endpoint and checks what was written and which lines were rejected
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ItemImportTest {
+    
+    private static final String HEADER = "name,category,stock,price,description\r\n";
+    
+    // Names the database refuses to insert, so a batch passes validation and still fails on write
+    private static final String REJECTED = "Rejected ";
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private String category;
+    
+    @BeforeEach
+    void setUp() {
+        category = "Import " + UUID.randomUUID().toString().substring(0, 8);
+    }
+    
+    @AfterEach
+    void dropTrigger() {
+        jdbcTemplate.execute("DROP TRIGGER IF EXISTS reject_items");
+    }
+    
+    @Test
+    void quotedFieldsKeepSeparatorsQuotesAndLineBreaks() throws Exception {
+        String name = category + " \"Kaju\", Katli";
+        JsonNode result = importCsv(HEADER
+                + "\"" + name.replace("\"", "\"\"") + "\"," + category + ",5,\"1,5\",x\r\n"
+                + "\"" + name.replace("\"", "\"\"") + "\"," + category + ",5,12.50,\"Line one\r\nLine two, \"\"best\"\"\"\r\n"
+                + category + " Plain," + category + ",3,4.00,Plain\r\n");
+        
+        // The price "1,5" is one quoted field that is not a number; the line break inside the quoted
+        // description does not start a new record
+        assertThat(result.get("processed").asLong()).isEqualTo(3);
+        assertThat(result.get("created").asLong()).isEqualTo(2);
+        assertThat(result.get("failed").asLong()).isEqualTo(1);
+        assertThat(error(result, 0)).containsEntry(2L, "Stock and price must be numeric");
+        
+        Map<String, Object> row = jdbcTemplate.queryForMap(
+                "SELECT stock, price, description FROM items WHERE name = ?", name);
+        assertThat(row.get("STOCK")).isEqualTo(5);
+        assertThat(row.get("DESCRIPTION")).isEqualTo("Line one\r\nLine two, \"best\"");
+    }
+    
+    @Test
+    void rejectedRowsAreReportedByTheLineTheyStartOn() throws Exception {
+        JsonNode result = importCsv(HEADER
+                + category + " One," + category + ",1,1.00,\"Two\nlines\"\n"
+                + category + " Two," + category + ",many,1.00,Bad stock\n"
+                + category + " Three," + category + ",-1,1.00,Negative stock\n"
+                + category + " Four," + category + ",1\n"
+                + "\n"
+                + category + " Five," + category + ",2,2.00,Fine\n");
+        
+        assertThat(result.get("processed").asLong()).isEqualTo(5);
+        assertThat(result.get("created").asLong()).isEqualTo(2);
+        assertThat(result.get("failed").asLong()).isEqualTo(3);
+        assertThat(error(result, 0)).containsEntry(4L, "Stock and price must be numeric");
+        assertThat(error(result, 1)).containsEntry(5L, "Stock quantity must be non-negative");
+        assertThat(error(result, 2)).containsEntry(6L, "Missing value for column 'price'");
+        assertThat(countInCategory()).isEqualTo(2);
+        
+        // A second import of the same names updates in place
+        result = importCsv(HEADER + category + " One," + category + ",9,1.00,Updated\n");
+        assertThat(result.get("created").asLong()).isZero();
+        assertThat(result.get("updated").asLong()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock FROM items WHERE name = ?", Integer.class,
+                                               category + " One")).isEqualTo(9);
+    }
+    
+    @Test
+    void nameRepeatedInABatchIsWrittenOnceFromItsLastRow() throws Exception {
+        JsonNode result = importCsv(HEADER
+                + category + " Ladoo," + category + ",1,1.00,First\n"
+                + category + " Barfi," + category + ",2,2.00,Other\n"
+                + category.toUpperCase(Locale.ROOT) + " LADOO," + category + ",3,3.00,Last\n");
+        
+        assertThat(result.get("processed").asLong()).isEqualTo(3);
+        assertThat(result.get("created").asLong()).isEqualTo(2);
+        assertThat(result.get("updated").asLong()).isZero();
+        assertThat(result.get("duplicates").asLong()).isEqualTo(1);
+        assertThat(countInCategory()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT description FROM items WHERE LOWER(name) = ?", String.class,
+                                               (category + " Ladoo").toLowerCase(Locale.ROOT))).isEqualTo("Last");
+    }
+    
+    // Matched on the same lower-cased key as the batch deduplication, even on H2's case-sensitive collation
+    @Test
+    void existingItemIsUpdatedWhateverTheCaseOfItsName() throws Exception {
+        importCsv(HEADER + category + " Ladoo," + category + ",1,1.00,First\n");
+        
+        JsonNode result = importCsv(HEADER + category.toUpperCase(Locale.ROOT) + " LADOO," + category + ",4,4.00,Again\n");
+        
+        assertThat(result.get("created").asLong()).isZero();
+        assertThat(result.get("updated").asLong()).isEqualTo(1);
+        assertThat(countInCategory()).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT stock FROM items WHERE name = ?", Integer.class,
+                                               category + " Ladoo")).isEqualTo(4);
+    }
+    
+    @Test
+    void unterminatedQuoteIsReportedAsARowError() throws Exception {
+        JsonNode result = importCsv(HEADER
+                + category + " Kept," + category + ",1,1.00,Fine\n"
+                + category + " Open," + category + ",1,1.00,\"Never closed\n");
+        
+        assertThat(result.get("processed").asLong()).isEqualTo(2);
+        assertThat(result.get("created").asLong()).isEqualTo(1);
+        assertThat(result.get("failed").asLong()).isEqualTo(1);
+        assertThat(error(result, 0)).containsEntry(3L, "Unterminated quoted field");
+        assertThat(countInCategory()).isEqualTo(1);
+    }
+    
+    @Test
+    void failedBatchIsRetriedRowByRow() throws Exception {
+        jdbcTemplate.execute("CREATE TRIGGER reject_items BEFORE INSERT ON items FOR EACH ROW CALL \""
+                + RejectNamedItems.class.getName() + "\"");
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 10; i++) {
+            String name = (i == 3 || i == 7 ? REJECTED : "") + category + " " + i;
+            csv.append(name).append(',').append(category).append(",1,1.00,Batch\n");
+        }
+        
+        JsonNode result = importCsv(csv.toString());
+        
+        // Every valid row of the failed batch is still written; only the two refused lines are reported
+        assertThat(result.get("processed").asLong()).isEqualTo(10);
+        assertThat(result.get("created").asLong()).isEqualTo(8);
+        assertThat(result.get("failed").asLong()).isEqualTo(2);
+        assertThat(error(result, 0)).containsOnlyKeys(5L);
+        assertThat(error(result, 1)).containsOnlyKeys(9L);
+        assertThat(result.get("errors").get(0).get("message").asText()).contains("refused");
+        assertThat(countInCategory()).isEqualTo(8);
+    }
+    
+    @Test
+    void reportedErrorsAreCappedButTheFailedCountIsExact() throws Exception {
+        StringBuilder csv = new StringBuilder(HEADER);
+        for (int i = 0; i < 1005; i++) {
+            csv.append(category).append(' ').append(i).append(',').append(category).append(",x,1.00,Bad\n");
+        }
+        
+        JsonNode result = importCsv(csv.toString());
+        
+        assertThat(result.get("processed").asLong()).isEqualTo(1005);
+        assertThat(result.get("failed").asLong()).isEqualTo(1005);
+        assertThat(result.get("errors")).hasSize(1000);
+        assertThat(result.get("errors").get(999).get("line").asLong()).isEqualTo(1001);
+    }
+    
+    @Test
+    void headerWithoutRequiredColumnsIsRejected() throws Exception {
+        mockMvc.perform(post("/api/items/import").contentType("text/csv").content("name,category,stock\n"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(post("/api/items/import").contentType("text/csv").content(""))
+                .andExpect(status().isBadRequest());
+    }
+    
+    private JsonNode importCsv(String csv) throws Exception {
+        String body = mockMvc.perform(post("/api/items/import").contentType("text/csv").content(csv))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(body);
+    }
+    
+    private static Map<Long, String> error(JsonNode result, int index) {
+        JsonNode error = result.get("errors").get(index);
+        return Map.of(error.get("line").asLong(), error.get("message").asText());
+    }
+    
+    private int countInCategory() {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM items i JOIN categories c ON c.id = i.category_id WHERE c.name = ?",
+                Integer.class, category);
+    }
+    
+    // Refuses inserts of items whose name marks them as rejected
+    public static class RejectNamedItems implements Trigger {
+        
+        @Override
+        public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+            for (Object value : newRow) {
+                if (value instanceof String name && name.startsWith(REJECTED)) {
+                    throw new SQLException("Item " + name + " refused");
+                }
+            }
+        }
+    }
+}
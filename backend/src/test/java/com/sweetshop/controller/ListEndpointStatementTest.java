@@ -0,0 +1,91 @@
+package com.sweetshop.controller;
+
+import com.sweetshop.config.CacheConfig;
+import com.sweetshop.config.SqlStatementStats;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// SQL statements per read endpoint on the sample data. List endpoints read DTO projections with the
+// category joined in, so their count must not grow with the number of rows or categories returned.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class ListEndpointStatementTest {
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private CacheManager cacheManager;
+    
+    // Other tests share the context, so start every test from empty caches: the first read misses
+    @BeforeEach
+    void clearCaches() {
+        cacheManager.getCache(CacheConfig.ITEMS).clear();
+        cacheManager.getCache(CacheConfig.CATEGORIES_BY_NAME).clear();
+    }
+    
+    @Test
+    void pagedItemListRunsThePageAndCountQueries() throws Exception {
+        assertThat(statements("/api/items?size=5")).isEqualTo(2);
+        assertThat(statements("/api/items?size=5&sortBy=price&sortDir=desc")).isEqualTo(2);
+        // A first page holding every row already tells the total
+        assertThat(statements("/api/items?size=100")).isEqualTo(1);
+    }
+    
+    @Test
+    void keysetListingsRunOneQuery() throws Exception {
+        assertThat(statements("/api/items?cursor=&size=5")).isEqualTo(1);
+        assertThat(statements("/api/items/low-stock")).isEqualTo(1);
+        assertThat(statements("/api/items/low-stock?cursor=")).isEqualTo(1);
+    }
+    
+    @Test
+    void filteredItemListsRunNoExtraQueries() throws Exception {
+        assertThat(statements("/api/items?minPrice=100&maxPrice=400&size=5")).isEqualTo(2);
+        // Plus the category name lookup, which is cached from then on
+        assertThat(statements("/api/items?category=Dry Sweet")).isEqualTo(2);
+        assertThat(statements("/api/items?category=Dry Sweet")).isEqualTo(1);
+    }
+    
+    @Test
+    void facetsAddOneGroupedQuery() throws Exception {
+        assertThat(statements("/api/items?facets=true&size=5")).isEqualTo(3);
+    }
+    
+    @Test
+    void itemByIdIsOneQueryAndThenCached() throws Exception {
+        assertThat(statements("/api/items/2")).isEqualTo(1);
+        assertThat(statements("/api/items/2")).isZero();
+    }
+    
+    @Test
+    void categoryReadsRunOneQuery() throws Exception {
+        assertThat(statements("/api/categories")).isEqualTo(1);
+        assertThat(statements("/api/categories/1")).isEqualTo(1);
+        assertThat(statements("/api/categories/name/Dry Sweet")).isEqualTo(1);
+        assertThat(statements("/api/categories/with-items")).isEqualTo(1);
+        assertThat(statements("/api/categories/search?name=sweet")).isEqualTo(1);
+        assertThat(statements("/api/categories/names")).isEqualTo(1);
+    }
+    
+    @Test
+    void statisticsAreServedFromMemory() throws Exception {
+        assertThat(statements("/api/categories/statistics")).isZero();
+        assertThat(statements("/api/dashboard/stats")).isZero();
+    }
+    
+    private int statements(String url) throws Exception {
+        return SqlStatementStats.record(() -> mockMvc.perform(get(url)).andExpect(status().isOk())).getStatements();
+    }
+}
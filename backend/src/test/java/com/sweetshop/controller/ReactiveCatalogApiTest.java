@@ -0,0 +1,120 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.sweetshop.config.ReactiveApiServer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// The reactive API on its own Netty port, reading over R2DBC from the same embedded H2 database the
+// servlet side writes through JDBC. A page size of three makes every listing span several keyset pages.
+@SpringBootTest(properties = {
+    "spring.datasource.url=jdbc:h2:mem:reactive-api-test;MODE=MySQL;DB_CLOSE_DELAY=-1",
+    "sweetshop.reactive.enabled=true",
+    "sweetshop.reactive.port=0",
+    "sweetshop.reactive.r2dbc.url=r2dbc:h2:mem:///reactive-api-test?MODE=MySQL&DB_CLOSE_DELAY=-1",
+    "sweetshop.reactive.r2dbc.username=sa",
+    "sweetshop.reactive.r2dbc.password=",
+    "sweetshop.reactive.page-size=3"
+})
+@ActiveProfiles({"h2", "test"})
+class ReactiveCatalogApiTest {
+    
+    @Autowired
+    private ReactiveApiServer server;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private WebTestClient client;
+    
+    @BeforeEach
+    void setUp() {
+        client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+    }
+    
+    @Test
+    void itemsStreamEveryRowInIdOrderAcrossPages() {
+        JsonNode items = client.get().uri("/api/items").exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+        
+        assertThat(ids(items)).containsExactlyElementsOf(
+                jdbcTemplate.queryForList("SELECT id FROM items ORDER BY id", Long.class));
+        assertThat(items.get(0).get("category").get("name").asText()).isNotEmpty();
+    }
+    
+    @Test
+    void itemsFilterByCategoryNameIgnoringCase() {
+        List<Long> expected = jdbcTemplate.queryForList(
+                "SELECT i.id FROM items i JOIN categories c ON c.id = i.category_id WHERE c.name = 'Milk Sweet' ORDER BY i.id",
+                Long.class);
+        assertThat(expected).isNotEmpty();
+        assertThat(ids(get("/api/items?category=milk sweet"))).containsExactlyElementsOf(expected);
+    }
+    
+    @Test
+    void limitStopsTheStream() {
+        assertThat(get("/api/items?limit=4")).hasSize(4);
+    }
+    
+    @Test
+    void ndjsonIsOneObjectPerLine() {
+        String body = client.get().uri("/api/items").accept(MediaType.APPLICATION_NDJSON).exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+                .expectBody(String.class).returnResult().getResponseBody();
+        
+        Integer count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+        assertThat(body.trim().split("\n")).hasSize(count).allSatisfy(line -> assertThat(line).startsWith("{\"id\":"));
+    }
+    
+    @Test
+    void lowStockItemsComeLowestFirst() {
+        List<Long> expected = jdbcTemplate.queryForList("SELECT id FROM items WHERE stock < 30 ORDER BY stock, id", Long.class);
+        assertThat(expected).hasSizeGreaterThan(3);
+        assertThat(ids(get("/api/items/low-stock?threshold=30"))).containsExactlyElementsOf(expected);
+    }
+    
+    @Test
+    void categoriesCarryTheirItemCounts() {
+        List<Long> counts = new ArrayList<>();
+        get("/api/categories").forEach(category -> counts.add(category.get("itemCount").asLong()));
+        
+        assertThat(counts).containsExactlyElementsOf(jdbcTemplate.queryForList(
+                "SELECT COUNT(i.id) FROM categories c LEFT JOIN items i ON i.category_id = c.id GROUP BY c.id ORDER BY c.id",
+                Long.class));
+    }
+    
+    @Test
+    void invalidParametersAreRejected() {
+        client.get().uri("/api/items?limit=0").exchange()
+                .expectStatus().isBadRequest()
+                .expectBody().jsonPath("$.message").isEqualTo("limit must be at least 1");
+        client.get().uri("/api/items/low-stock?threshold=few").exchange()
+                .expectStatus().isBadRequest();
+    }
+    
+    private JsonNode get(String uri) {
+        return client.get().uri(uri).exchange()
+                .expectStatus().isOk()
+                .expectBody(JsonNode.class).returnResult().getResponseBody();
+    }
+    
+    private static List<Long> ids(JsonNode items) {
+        List<Long> ids = new ArrayList<>();
+        items.forEach(item -> ids.add(item.get("id").asLong()));
+        return ids;
+    }
+}
@@ -0,0 +1,137 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Adjusts stock through PATCH /api/items/{id}/stock, concurrently and at the edges of the int range
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles({"h2", "test"})
+class StockAdjustmentTest {
+    
+    private static final int THREADS = 8;
+    private static final int ADJUSTMENTS_PER_THREAD = 50;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private TestItems testItems;
+    
+    @BeforeEach
+    void setUp() {
+        testItems = new TestItems(mockMvc, objectMapper);
+    }
+    
+    @Test
+    void concurrentAdjustmentsAddUpAndNeverGoNegative() throws Exception {
+        long id = createItem(20);
+        ExecutorService tills = Executors.newFixedThreadPool(THREADS);
+        List<Future<Integer>> applied = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int till = t;
+                applied.add(tills.submit(() -> {
+                    // Takes outweigh restocks, so the item keeps running dry and some takes are refused
+                    int sum = 0;
+                    for (int i = 0; i < ADJUSTMENTS_PER_THREAD; i++) {
+                        int delta = (i + till) % 3 == 0 ? 4 : -3;
+                        MockHttpServletResponse response = adjust(id, delta);
+                        if (response.getStatus() == 200) {
+                            int stock = objectMapper.readTree(response.getContentAsString()).get("stock").asInt();
+                            assertThat(stock).isNotNegative();
+                            sum += delta;
+                        } else {
+                            assertThat(response.getStatus()).isEqualTo(409);
+                            assertThat(delta).isNegative();
+                        }
+                    }
+                    return sum;
+                }));
+            }
+        } finally {
+            tills.shutdown();
+        }
+        assertThat(tills.awaitTermination(60, TimeUnit.SECONDS)).isTrue();
+        
+        int total = 0;
+        for (Future<Integer> till : applied) {
+            total += till.get();
+        }
+        assertThat(stock(id)).isEqualTo(20 + total).isNotNegative();
+    }
+    
+    @Test
+    void deltasOutsideTheAcceptedRangeAreRejected() throws Exception {
+        long id = createItem(10);
+        for (int delta : new int[] {Integer.MIN_VALUE, -1_000_001, 1_000_001, Integer.MAX_VALUE}) {
+            assertThat(adjust(id, delta).getStatus()).isEqualTo(400);
+        }
+        mockMvc.perform(patch("/api/items/{id}/stock", id).contentType(MediaType.APPLICATION_JSON).content("{}"))
+                .andExpect(status().isBadRequest());
+        assertThat(stock(id)).isEqualTo(10);
+    }
+    
+    @Test
+    void incrementPastTheStockRangeIsRejectedInsteadOfOverflowing() throws Exception {
+        long id = createItem(Integer.MAX_VALUE - 5);
+        
+        assertThat(adjust(id, 6).getStatus()).isEqualTo(400);
+        assertThat(stock(id)).isEqualTo(Integer.MAX_VALUE - 5);
+        
+        assertThat(adjust(id, 5).getStatus()).isEqualTo(200);
+        assertThat(stock(id)).isEqualTo(Integer.MAX_VALUE);
+    }
+    
+    @Test
+    void insufficientStockReportsTheRequestedQuantity() throws Exception {
+        long id = createItem(3);
+        
+        MockHttpServletResponse response = adjust(id, -1_000_000);
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(objectMapper.readTree(response.getContentAsString()).get("message").asText())
+                .endsWith("(requested 1000000)");
+        assertThat(stock(id)).isEqualTo(3);
+    }
+    
+    private MockHttpServletResponse adjust(long id, int delta) throws Exception {
+        return mockMvc.perform(patch("/api/items/{id}/stock", id)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"delta\":" + delta + "}"))
+                .andReturn().getResponse();
+    }
+    
+    private long createItem(int stock) throws Exception {
+        return testItems.create("Stock " + UUID.randomUUID().toString().substring(0, 8), "Dry Sweet", stock, "2.00");
+    }
+    
+    private int stock(long id) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM items WHERE id = ?", Integer.class, id);
+    }
+}
@@ -0,0 +1,66 @@
+package com.sweetshop.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Creates items through the API for controller tests; request bodies are written by the
+// application's ObjectMapper, so names with quotes or backslashes need no escaping
+class TestItems {
+    
+    private static final String DESCRIPTION = "Test item";
+    
+    private final MockMvc mockMvc;
+    private final ObjectMapper objectMapper;
+    
+    TestItems(MockMvc mockMvc, ObjectMapper objectMapper) {
+        this.mockMvc = mockMvc;
+        this.objectMapper = objectMapper;
+    }
+    
+    // POST a new item and return its id
+    long create(String name, String category, int stock, String price) throws Exception {
+        String created = mockMvc.perform(post("/api/items")
+                                                 .contentType(MediaType.APPLICATION_JSON)
+                                                 .content(body(name, category, stock, price)))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return objectMapper.readTree(created).get("id").asLong();
+    }
+    
+    // Item body without a version, as sent by POST
+    String body(String name, String category, int stock, String price) throws Exception {
+        return objectMapper.writeValueAsString(fields(name, category, stock, price));
+    }
+    
+    // Item body for a PUT against the given version
+    String body(String name, String category, int stock, String price, long version) throws Exception {
+        Map<String, Object> fields = fields(name, category, stock, price);
+        fields.put("version", version);
+        return objectMapper.writeValueAsString(fields);
+    }
+    
+    // PUT body that writes back an item as read, carrying the version it was read at
+    String body(JsonNode item) throws Exception {
+        return body(item.get("name").asText(), item.get("category").get("name").asText(), item.get("stock").asInt(),
+                    item.get("price").decimalValue().toPlainString(), item.get("version").asLong());
+    }
+    
+    private static Map<String, Object> fields(String name, String category, int stock, String price) {
+        Map<String, Object> fields = new LinkedHashMap<>();
+        fields.put("name", name);
+        fields.put("category", category);
+        fields.put("stock", stock);
+        fields.put("price", new BigDecimal(price));
+        fields.put("description", DESCRIPTION);
+        return fields;
+    }
+}
@@ -0,0 +1,96 @@
+package com.sweetshop.repository;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs EXPLAIN on the statements findByCriteria generates for each supported filter combination and
+// checks which index H2 picks for the items table
+@SpringBootTest
+@ActiveProfiles({"h2", "test"})
+class ItemRepositoryPlanTest {
+    
+    // H2 prints the access path of each table as a comment after it, e.g. /* PUBLIC.IDX_ITEMS_PRICE: PRICE >= ?1 */
+    private static final Pattern ITEMS_ACCESS = Pattern.compile("\"PUBLIC\"\\.\"ITEMS\" \"\\w+\"\\s*/\\* PUBLIC\\.([^*]+)\\*/");
+    
+    @Autowired
+    private ItemRepository itemRepository;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Test
+    void priceRangeUsesThePriceIndex() {
+        assertItemsAccess(criteria -> {
+            criteria.setMinPrice(new BigDecimal("100"));
+            criteria.setMaxPrice(new BigDecimal("400"));
+        }, "IDX_ITEMS_PRICE: PRICE");
+    }
+    
+    @Test
+    void stockRangeUsesTheStockIndex() {
+        assertItemsAccess(criteria -> criteria.setMaxStock(10), "IDX_ITEMS_STOCK: STOCK");
+    }
+    
+    @Test
+    void categoryAndPriceUseTheCompositeIndex() {
+        assertItemsAccess(criteria -> {
+            criteria.setCategoryId(1L);
+            criteria.setMinPrice(new BigDecimal("100"));
+        }, "IDX_ITEMS_CATEGORY_PRICE: CATEGORY_ID = ?1 AND PRICE");
+    }
+    
+    @Test
+    void categoryAndStockUseTheCompositeIndex() {
+        assertItemsAccess(criteria -> {
+            criteria.setCategoryId(1L);
+            criteria.setMaxStock(10);
+        }, "IDX_ITEMS_CATEGORY_STOCK: CATEGORY_ID = ?1 AND STOCK");
+    }
+    
+    // Any index led by category_id will do, including the one H2 creates for the foreign key
+    @Test
+    void categoryAloneUsesACategoryIndex() {
+        assertItemsAccess(criteria -> criteria.setCategoryId(1L), ": CATEGORY_ID = ?1");
+    }
+    
+    @Test
+    void resolvedIdsUseThePrimaryKey() {
+        assertItemsAccess(criteria -> criteria.setItemIds(List.of(1L, 2L, 3L)), "PRIMARY_KEY_");
+    }
+    
+    // Explains both the page query and its count query, as the list endpoints run them
+    private void assertItemsAccess(Consumer<ItemSearchCriteria> filters, String expectedAccess) {
+        ItemSearchCriteria criteria = new ItemSearchCriteria();
+        filters.accept(criteria);
+        
+        RecordingStatementInspector.start();
+        List<String> statements;
+        try {
+            // A second page of one row always runs the count query as well
+            itemRepository.findByCriteria(criteria, PageRequest.of(1, 1, Sort.by("name", "id")));
+        } finally {
+            statements = RecordingStatementInspector.stop();
+        }
+        assertThat(statements).hasSize(2);
+        
+        for (String sql : statements) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+            Matcher access = ITEMS_ACCESS.matcher(plan);
+            assertThat(access.find()).as(plan).isTrue();
+            assertThat(access.group(1).replaceAll("\\s+", " ")).as(plan).contains(expectedAccess);
+        }
+    }
+}
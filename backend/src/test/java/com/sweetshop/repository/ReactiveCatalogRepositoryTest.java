@@ -0,0 +1,77 @@
+package com.sweetshop.repository;
+
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.scheduler.Schedulers;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Subscribers change the items they receive (the handler merges live stock into them); the next
+// keyset page must still start after the row as it was read
+class ReactiveCatalogRepositoryTest {
+    
+    private ReactiveCatalogRepository repository;
+    
+    @BeforeEach
+    void setUp() throws SQLException {
+        String name = "reactive-catalog-" + UUID.randomUUID();
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE categories (id BIGINT PRIMARY KEY, name VARCHAR(50))");
+            statement.execute("CREATE TABLE items (id BIGINT PRIMARY KEY, name VARCHAR(100), category_id BIGINT, " +
+                              "stock INT, price DECIMAL(10, 2), description VARCHAR(500), version BIGINT, " +
+                              "created_at TIMESTAMP, updated_at TIMESTAMP)");
+            statement.execute("INSERT INTO categories VALUES (1, 'Dry Sweet')");
+            // Stock 1 to 8, ids in reverse so the low-stock order differs from the id order
+            for (int stock = 1; stock <= 8; stock++) {
+                statement.execute("INSERT INTO items VALUES (" + (20 - stock) + ", 'Item " + stock + "', 1, " + stock +
+                                  ", 1.00, NULL, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+            }
+        }
+        ConnectionPool pool = new ConnectionPool(ConnectionPoolConfiguration.builder(
+                ConnectionFactories.get("r2dbc:h2:mem:///" + name + "?MODE=MySQL&DB_CLOSE_DELAY=-1")).build());
+        repository = new ReactiveCatalogRepository(pool, 3, Schedulers.boundedElastic());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        repository.destroy();
+    }
+    
+    @Test
+    void lowStockPagesSeekFromTheStockAsRead() {
+        // As if every item were hot with far more stock in memory than in the table
+        List<ItemSummary> items = repository.findLowStockItems(10)
+                .doOnNext(item -> item.setStock(item.getStock() + 100))
+                .collectList().block();
+        
+        assertThat(items).extracting(ItemSummary::getStock).containsExactly(101, 102, 103, 104, 105, 106, 107, 108);
+        
+        // And with less: a seek from the merged stock would repeat rows
+        items = repository.findLowStockItems(10)
+                .doOnNext(item -> item.setStock(0))
+                .collectList().block();
+        
+        assertThat(items).extracting(ItemSummary::getId).containsExactly(19L, 18L, 17L, 16L, 15L, 14L, 13L, 12L);
+    }
+    
+    @Test
+    void itemPagesCoverEveryRowOnce() {
+        List<ItemSummary> items = repository.findItems("dry sweet").collectList().block();
+        
+        assertThat(items).extracting(ItemSummary::getId).containsExactly(12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L);
+    }
+}
@@ -0,0 +1,35 @@
+package com.sweetshop.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Keeps the SQL Hibernate sends on the current thread between start and stop, for tests that look at
+// the generated statements. The test profile registers it for every context, so it records nothing
+// unless a test has started it on its own thread.
+public class RecordingStatementInspector implements StatementInspector {
+    private static final long serialVersionUID = 1L;
+    
+    private static final ThreadLocal<List<String>> statements = new ThreadLocal<>();
+    
+    @Override
+    public String inspect(String sql) {
+        List<String> recorded = statements.get();
+        if (recorded != null) {
+            recorded.add(sql);
+        }
+        return sql;
+    }
+    
+    public static void start() {
+        statements.set(new ArrayList<>());
+    }
+    
+    // Stop recording on this thread and return what was recorded since start
+    public static List<String> stop() {
+        List<String> recorded = statements.get();
+        statements.remove();
+        return recorded != null ? recorded : List.of();
+    }
+}
@@ -0,0 +1,204 @@
+package com.sweetshop.service;
+
+import com.sweetshop.exception.ValidationException;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// The items row is simulated by an AtomicInteger: flushes add their deltas to it, direct writers
+// (PUT, import, bulk stock) overwrite it and then ask for a resync
+class HotStockServiceTest {
+    
+    private static final Long ITEM_ID = 1L;
+    
+    private final AtomicInteger row = new AtomicInteger();
+    private ItemRepository itemRepository;
+    private ItemService itemService;
+    private HotStockService hotStock;
+    
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        itemService = mock(ItemService.class);
+        when(itemRepository.findById(ITEM_ID)).thenAnswer(invocation -> {
+            Item item = new Item();
+            item.setId(ITEM_ID);
+            item.setStock(row.get());
+            return Optional.of(item);
+        });
+        
+        hotStock = new HotStockService();
+        ReflectionTestUtils.setField(hotStock, "enabled", true);
+        ReflectionTestUtils.setField(hotStock, "hotItemIds", Set.of(ITEM_ID));
+        ReflectionTestUtils.setField(hotStock, "stripes", 4);
+        ReflectionTestUtils.setField(hotStock, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(hotStock, "itemService", itemService);
+    }
+    
+    @Test
+    void flushWritesCoalescedDeltaOnce() {
+        row.set(100);
+        hotStock.adjust(ITEM_ID, -3);
+        hotStock.adjust(ITEM_ID, -2);
+        applyDeltasToRow(null, null);
+        
+        hotStock.flush();
+        hotStock.flush();
+        
+        assertThat(row.get()).isEqualTo(95);
+        assertThat(hotStock.available(ITEM_ID)).isEqualTo(95);
+        verify(itemService, times(1)).applyStockDeltas(anyMap());
+    }
+    
+    @Test
+    void resyncDuringFlushNeitherLosesNorRepeatsTheDelta() throws Exception {
+        row.set(100);
+        hotStock.adjust(ITEM_ID, -10);
+        
+        // A PUT sets the row to 50 and commits just before the flush's UPDATE lands on it
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        applyDeltasToRow(flushStarted, releaseFlush);
+        row.set(50);
+        
+        Thread flusher = new Thread(hotStock::flush);
+        flusher.start();
+        assertThat(flushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        
+        // The PUT's after-commit resync arrives while the flush is still writing
+        Thread resyncer = new Thread(() -> hotStock.resyncAfterCommit(ITEM_ID));
+        resyncer.start();
+        resyncer.join(200);
+        releaseFlush.countDown();
+        flusher.join(5000);
+        resyncer.join(5000);
+        assertThat(flusher.isAlive()).isFalse();
+        assertThat(resyncer.isAlive()).isFalse();
+        
+        // 50 from the PUT plus the -10 sold before it; nothing left to flush
+        hotStock.flush();
+        assertThat(row.get()).isEqualTo(40);
+        assertThat(hotStock.available(ITEM_ID)).isEqualTo(40);
+        verify(itemService, times(1)).applyStockDeltas(anyMap());
+    }
+    
+    @Test
+    void salesDuringFlushAreFlushedNextTime() throws Exception {
+        row.set(100);
+        hotStock.adjust(ITEM_ID, -10);
+        CountDownLatch flushStarted = new CountDownLatch(1);
+        CountDownLatch releaseFlush = new CountDownLatch(1);
+        applyDeltasToRow(flushStarted, releaseFlush);
+        
+        Thread flusher = new Thread(hotStock::flush);
+        flusher.start();
+        assertThat(flushStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        hotStock.adjust(ITEM_ID, -5);
+        releaseFlush.countDown();
+        flusher.join(5000);
+        
+        applyDeltasToRow(null, null);
+        hotStock.flush();
+        assertThat(row.get()).isEqualTo(85);
+        assertThat(hotStock.available(ITEM_ID)).isEqualTo(85);
+    }
+    
+    @Test
+    void outOfRangeAmountsAreRejectedWithoutTouchingTheCounter() {
+        row.set(100);
+        
+        // -Integer.MIN_VALUE is still negative; it must not pass as a take of nothing
+        assertThatThrownBy(() -> hotStock.adjust(ITEM_ID, Integer.MIN_VALUE)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> hotStock.adjust(ITEM_ID, Integer.MAX_VALUE)).isInstanceOf(ValidationException.class);
+        assertThatThrownBy(() -> hotStock.tryTake(ITEM_ID, -5)).isInstanceOf(IllegalArgumentException.class);
+        
+        assertThat(hotStock.available(ITEM_ID)).isEqualTo(100);
+    }
+    
+    @Test
+    void restockPastTheIntRangeIsRejected() {
+        row.set(Integer.MAX_VALUE - 10);
+        
+        assertThat(hotStock.adjust(ITEM_ID, 10)).isEqualTo(Integer.MAX_VALUE);
+        assertThatThrownBy(() -> hotStock.adjust(ITEM_ID, 1)).isInstanceOf(ValidationException.class);
+        assertThat(hotStock.available(ITEM_ID)).isEqualTo(Integer.MAX_VALUE);
+        
+        // The coalesced delta stays within the int range too
+        applyDeltasToRow(null, null);
+        hotStock.flush();
+        assertThat(row.get()).isEqualTo(Integer.MAX_VALUE);
+    }
+    
+    // Every till holds at most one basket and the stock covers all of them, so a take can only fail
+    // spuriously, when its sweep misses units another till is moving between stripes
+    @Test
+    void concurrentTakesNeverFailWhileTheTotalCoversThem() throws Exception {
+        int tills = 8;
+        int amount = 3;
+        HotStockService.StripedCounter counter = new HotStockService.StripedCounter(4, tills * amount);
+        
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < tills; t++) {
+            Thread till = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < 20_000; i++) {
+                    if (counter.tryTake(amount)) {
+                        counter.add(amount);
+                    } else {
+                        failures.incrementAndGet();
+                    }
+                }
+            });
+            till.start();
+            threads.add(till);
+        }
+        start.countDown();
+        for (Thread till : threads) {
+            till.join(30_000);
+        }
+        
+        assertThat(failures.get()).isZero();
+        assertThat(counter.available()).isEqualTo(tills * amount);
+        assertThat(counter.tryTake(tills * amount + 1)).isFalse();
+    }
+    
+    // Let applyStockDeltas add each delta to the simulated row, optionally pausing before the write
+    private void applyDeltasToRow(CountDownLatch started, CountDownLatch release) {
+        doAnswer(invocation -> {
+            Map<Long, Integer> deltas = invocation.getArgument(0);
+            if (started != null) {
+                started.countDown();
+                release.await(5, TimeUnit.SECONDS);
+            }
+            row.addAndGet(deltas.getOrDefault(ITEM_ID, 0));
+            return null;
+        }).when(itemService).applyStockDeltas(anyMap());
+    }
+}
@@ -0,0 +1,150 @@
+package com.sweetshop.service;
+
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// The reload snapshot is served by mocked repositories; a concurrent write is a captured
+// TransactionSynchronization whose commit callbacks the test fires at chosen points of the reload
+class InventoryAggregateServiceTest {
+    
+    private static final Long CATEGORY_ID = 1L;
+    
+    private CategoryRepository categoryRepository;
+    private ItemRepository itemRepository;
+    private InventoryAggregateService aggregates;
+    
+    @BeforeEach
+    void setUp() {
+        categoryRepository = mock(CategoryRepository.class);
+        itemRepository = mock(ItemRepository.class);
+        aggregates = new InventoryAggregateService();
+        ReflectionTestUtils.setField(aggregates, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(aggregates, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(aggregates, "inventoryVersion", mock(InventoryVersionService.class));
+        ReflectionTestUtils.setField(aggregates, "transactionTemplate",
+                                     new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        
+        // One item of stock 20 at 1.00
+        when(categoryRepository.getCategoryRollups()).thenReturn(rollups(1, 20));
+        when(itemRepository.countByStockLessThan(anyInt())).thenReturn(0L);
+        aggregates.reload();
+    }
+    
+    @Test
+    void commitAfterTheSnapshotIsReplayed() {
+        TransactionSynchronization create = createItemInTransaction();
+        
+        // The create commits after the rollup query fixed the snapshot, so the snapshot lacks it
+        when(categoryRepository.getCategoryRollups()).thenReturn(rollups(1, 20));
+        when(itemRepository.countByStockLessThan(anyInt())).thenAnswer(invocation -> {
+            commit(create);
+            return 0L;
+        });
+        aggregates.reload();
+        
+        assertTotals(2, 25);
+    }
+    
+    @Test
+    void commitInTheSnapshotIsNotAppliedTwice() {
+        TransactionSynchronization create = createItemInTransaction();
+        create.beforeCommit(false);
+        
+        // The create is in the database before the snapshot, but its after-commit callback runs
+        // while the snapshot is read; the reload cannot tell and takes another snapshot
+        AtomicInteger queries = new AtomicInteger();
+        when(categoryRepository.getCategoryRollups()).thenAnswer(invocation -> {
+            queries.incrementAndGet();
+            return rollups(2, 25);
+        });
+        when(itemRepository.countByStockLessThan(anyInt())).thenAnswer(invocation -> {
+            if (queries.get() == 1) {
+                create.afterCommit();
+                create.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+            }
+            return 0L;
+        });
+        aggregates.reload();
+        
+        assertThat(queries.get()).isEqualTo(2);
+        assertTotals(2, 25);
+    }
+    
+    @Test
+    void commitRacingTheSnapshotQueryRetriesTheReload() {
+        TransactionSynchronization create = createItemInTransaction();
+        
+        // Whether the first query saw the create is unknown; the second one does see it
+        AtomicInteger queries = new AtomicInteger();
+        when(categoryRepository.getCategoryRollups()).thenAnswer(invocation -> {
+            if (queries.incrementAndGet() == 1) {
+                commit(create);
+                return rollups(1, 20);
+            }
+            return rollups(2, 25);
+        });
+        aggregates.reload();
+        
+        assertThat(queries.get()).isEqualTo(2);
+        assertTotals(2, 25);
+    }
+    
+    @Test
+    void rolledBackWriteIsNeverApplied() {
+        TransactionSynchronization create = createItemInTransaction();
+        create.beforeCommit(false);
+        create.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        
+        aggregates.reload();
+        
+        assertTotals(1, 20);
+    }
+    
+    // Record the creation of an item of stock 5 at 1.00 and return its unfired commit callbacks
+    private TransactionSynchronization createItemInTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            aggregates.itemChanged(null, new InventoryAggregateService.ItemState(
+                    CATEGORY_ID, "Candy", 5, BigDecimal.ONE));
+            return TransactionSynchronizationManager.getSynchronizations().get(0);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+    
+    private static void commit(TransactionSynchronization synchronization) {
+        synchronization.beforeCommit(false);
+        synchronization.afterCommit();
+        synchronization.afterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+    
+    private static List<Object[]> rollups(long itemCount, long totalStock) {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[] {CATEGORY_ID, "Candy", itemCount, totalStock, BigDecimal.valueOf(totalStock)});
+        return rows;
+    }
+    
+    private void assertTotals(long itemCount, long totalStock) {
+        ItemService.DashboardStats stats = aggregates.getDashboardStats();
+        assertThat(stats.getTotalItems()).isEqualTo(itemCount);
+        assertThat(stats.getTotalStock()).isEqualTo(totalStock);
+        assertThat(stats.getTotalValue()).isEqualByComparingTo(BigDecimal.valueOf(totalStock));
+    }
+}
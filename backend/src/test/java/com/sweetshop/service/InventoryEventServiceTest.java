@@ -0,0 +1,208 @@
+package com.sweetshop.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Subscribers are stood in by emitters that record what they are sent; some of them stop reading
+// after their first item event until the test lets them go on
+class InventoryEventServiceTest {
+    
+    private static final int BUFFER_SIZE = 4;
+    private static final int SENDER_THREADS = 2;
+    private static final int MAX_SENDER_THREADS = 3;
+    private static final Pattern EVENT = Pattern.compile("event:(\\w+)\\ndata:.*?\"id\":(\\d+)|event:(\\w+)");
+    
+    private final List<RecordingEmitter> emitters = Collections.synchronizedList(new ArrayList<>());
+    private InventoryEventService events;
+    
+    @BeforeEach
+    void setUp() {
+        events = new InventoryEventService(SENDER_THREADS, MAX_SENDER_THREADS) {
+            @Override
+            SseEmitter createEmitter() {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+        ReflectionTestUtils.setField(events, "bufferSize", BUFFER_SIZE);
+        ReflectionTestUtils.setField(events, "maxSubscribers", 10);
+        ReflectionTestUtils.setField(events, "sendTimeoutMs", 50L);
+        ReflectionTestUtils.setField(events, "objectMapper", new ObjectMapper());
+        ReflectionTestUtils.setField(events, "inventoryVersion", new InventoryVersionService());
+    }
+    
+    @AfterEach
+    void tearDown() {
+        emitters.forEach(emitter -> emitter.release.countDown());
+        events.shutdown();
+    }
+    
+    @Test
+    void stalledSubscriberGetsOneResyncThenOnlyNewerEvents() throws Exception {
+        events.subscribe();
+        RecordingEmitter slow = emitters.get(0);
+        slow.stallAfter = "item";
+        events.subscribe();
+        RecordingEmitter healthy = emitters.get(1);
+        
+        events.itemChanged(1L, 10, null, null);
+        healthy.awaitEvents("item:1");
+        assertThat(slow.stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        // Paced by the subscriber that keeps reading, so only the stalled one falls behind
+        for (long id = 2; id <= 20; id++) {
+            events.itemChanged(id, 10, null, null);
+            healthy.awaitEvents("item:" + id);
+        }
+        slow.release.countDown();
+        
+        List<String> slowEvents = slow.awaitEvents("item:20");
+        assertThat(slowEvents.subList(0, 3)).containsExactly("ready", "item:1", "resync");
+        assertThat(slowEvents.stream().filter("resync"::equals)).hasSize(1);
+        // Whatever follows the resync is in order and ends with the latest change
+        List<Long> afterResync = slowEvents.subList(3, slowEvents.size()).stream()
+                .map(event -> Long.parseLong(event.substring("item:".length())))
+                .collect(Collectors.toList());
+        assertThat(afterResync).isSorted().hasSizeLessThanOrEqualTo(BUFFER_SIZE - 1).endsWith(20L);
+        
+        // The other subscriber kept up and lost nothing
+        List<String> healthyEvents = healthy.awaitEvents("item:20");
+        assertThat(healthyEvents).hasSize(21).doesNotContain("resync");
+    }
+    
+    @Test
+    void subscribersBlockedPastTheDeadlineAreDroppedWithoutStarvingOthers() throws Exception {
+        for (int i = 0; i < SENDER_THREADS; i++) {
+            events.subscribe();
+            emitters.get(i).stallAfter = "item";
+        }
+        events.subscribe();
+        RecordingEmitter healthy = emitters.get(SENDER_THREADS);
+        healthy.awaitEvents("ready");
+        
+        // Every sender thread is now blocked in a stalled write
+        events.itemChanged(1L, 10, null, null);
+        for (RecordingEmitter stalled : emitters.subList(0, SENDER_THREADS)) {
+            assertThat(stalled.stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        Thread.sleep(100);
+        events.dropStalledSubscribers();
+        
+        assertThat(events.getSubscriberCount()).isEqualTo(1);
+        events.itemChanged(2L, 10, null, null);
+        assertThat(healthy.awaitEvents("item:2")).containsExactly("ready", "item:1", "item:2");
+        
+        // Once their writes return, the dropped streams are ended and get nothing more
+        emitters.forEach(emitter -> emitter.release.countDown());
+        for (RecordingEmitter stalled : emitters.subList(0, SENDER_THREADS)) {
+            assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+            assertThat(stalled.sent).containsExactly("ready", "item:1");
+        }
+        events.itemChanged(3L, 10, null, null);
+        healthy.awaitEvents("item:3");
+    }
+    
+    @Test
+    void senderPoolStopsGrowingAtItsCapAndRefusesNewSubscribers() throws Exception {
+        for (int i = 0; i < SENDER_THREADS; i++) {
+            events.subscribe();
+            emitters.get(i).stallAfter = "item";
+        }
+        events.itemChanged(1L, 10, null, null);
+        for (RecordingEmitter stalled : emitters) {
+            assertThat(stalled.stalled.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        Thread.sleep(100);
+        events.dropStalledSubscribers();
+        
+        // One replacement fits under the cap; the other blocked send has none, so no one new is taken on
+        assertThat(events.getSubscriberCount()).isZero();
+        assertThat(senderPoolSize()).isEqualTo(MAX_SENDER_THREADS);
+        assertThat(events.subscribe()).isEmpty();
+        
+        emitters.forEach(emitter -> emitter.release.countDown());
+        for (RecordingEmitter stalled : new ArrayList<>(emitters)) {
+            assertThat(stalled.completed.await(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(senderPoolSize()).isEqualTo(SENDER_THREADS);
+        assertThat(events.subscribe()).isPresent();
+    }
+    
+    @Test
+    void bulkChangeLargerThanTheBufferSendsOneResyncInstead() throws Exception {
+        events.subscribe();
+        events.subscribe();
+        
+        assertThat(events.resyncForBulkChange(BUFFER_SIZE)).isFalse();
+        assertThat(events.resyncForBulkChange(BUFFER_SIZE + 1)).isTrue();
+        
+        for (RecordingEmitter emitter : emitters) {
+            assertThat(emitter.awaitEvents("resync")).containsExactly("ready", "resync");
+        }
+        assertThat(events.getResyncCount()).isEqualTo(2);
+    }
+    
+    private int senderPoolSize() {
+        return ((ThreadPoolExecutor) ReflectionTestUtils.getField(events, "senders")).getMaximumPoolSize();
+    }
+    
+    // Records each event as "type" or "type:id"; optionally blocks in send after the first event of a type
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        private final CountDownLatch stalled = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+        private volatile String stallAfter;
+        
+        @Override
+        public void send(SseEventBuilder builder) {
+            StringBuilder text = new StringBuilder();
+            builder.build().forEach(part -> text.append(part.getData()));
+            Matcher event = EVENT.matcher(text);
+            if (!event.find()) {
+                return;
+            }
+            String type = event.group(1) != null ? event.group(1) : event.group(3);
+            sent.add(event.group(2) != null ? type + ":" + event.group(2) : type);
+            if (type.equals(stallAfter) && stalled.getCount() > 0) {
+                stalled.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        
+        @Override
+        public synchronized void complete() {
+            super.complete();
+            completed.countDown();
+        }
+        
+        List<String> awaitEvents(String last) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (!sent.contains(last) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(sent).contains(last);
+            return new ArrayList<>(sent);
+        }
+    }
+}
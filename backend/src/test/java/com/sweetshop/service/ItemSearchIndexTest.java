@@ -0,0 +1,168 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ItemSearchIndexTest {
+    
+    private final Map<Long, String> names = new HashMap<>();
+    private ItemRepository itemRepository;
+    private ItemSearchIndex index;
+    
+    @BeforeEach
+    void setUp() {
+        itemRepository = mock(ItemRepository.class);
+        when(itemRepository.streamSearchableText()).thenAnswer(invocation -> names.entrySet().stream()
+                .map(entry -> new Object[] {entry.getKey(), entry.getValue(), null}));
+        
+        index = new ItemSearchIndex();
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxCandidates", 5000);
+        ReflectionTestUtils.setField(index, "itemRepository", itemRepository);
+    }
+    
+    @Test
+    void searchesWaitForTheBuild() {
+        names.put(1L, "Kaju Katli");
+        assertThat(index.findIds("kaju")).isEmpty();
+        index.build();
+        assertThat(index.findIds("kaju")).contains(Set.of(1L));
+    }
+    
+    @Test
+    void matchesContainEveryTrigramOfTheQuery() {
+        names.put(1L, "Kaju Katli");
+        names.put(2L, "Kaju Roll");
+        names.put(3L, "Katli Box");
+        names.put(4L, "Rasgulla");
+        index.build();
+        
+        assertThat(index.findIds("KATLI")).contains(Set.of(1L, 3L));
+        assertThat(index.findIds("kaju k")).contains(Set.of(1L));
+        assertThat(index.findIds("ull")).contains(Set.of(4L));
+        assertThat(index.findIds("xyz")).contains(Set.of());
+    }
+    
+    // All trigrams of "abcd" occur in "abcxbcd", but the string itself does not
+    @Test
+    void candidatesSharingTheTrigramsButNotTheSubstringAreDropped() {
+        names.put(1L, "abcxbcd");
+        names.put(2L, "zabcdz");
+        index.build();
+        
+        assertThat(index.findIds("abcd")).contains(Set.of(2L));
+    }
+    
+    // A query without a whole trigram would have to scan every indexed text under the read lock
+    @Test
+    void shortQueriesFallBackToTheDatabase() {
+        names.put(1L, "Kaju Katli");
+        names.put(2L, "Laddu");
+        index.build();
+        
+        assertThat(index.findIds("dd")).isEmpty();
+        assertThat(index.findIds("k")).isEmpty();
+        assertThat(index.findIds("add")).contains(Set.of(2L));
+    }
+    
+    @Test
+    void moreMatchesThanMaxCandidatesFallBackToTheDatabase() {
+        ReflectionTestUtils.setField(index, "maxCandidates", 3);
+        names.put(1L, "Mango Barfi");
+        names.put(2L, "Mango Ladoo");
+        names.put(3L, "Mango Peda");
+        names.put(4L, "Kesar Peda");
+        index.build();
+        
+        assertThat(index.findIds("peda")).contains(Set.of(3L, 4L));
+        assertThat(index.findIds("mango")).contains(Set.of(1L, 2L, 3L));
+        
+        names.put(5L, "Mango Roll");
+        index.itemChanged(5L, item("Mango Roll"));
+        assertThat(index.findIds("mango")).isEmpty();
+    }
+    
+    @Test
+    void writesUpdateThePostings() {
+        names.put(1L, "Kaju Katli");
+        index.build();
+        
+        index.itemChanged(1L, item("Pista Roll"));
+        index.itemChanged(2L, item("Kaju Roll"));
+        assertThat(index.findIds("katli")).contains(Set.of());
+        assertThat(index.findIds("roll")).contains(Set.of(1L, 2L));
+        
+        index.itemChanged(2L, null);
+        assertThat(index.findIds("kaju")).contains(Set.of());
+        assertThat(index.findIds("roll")).contains(Set.of(1L));
+    }
+    
+    // Random names over a small alphabet share many trigrams; every answer must equal a plain scan
+    @Test
+    void agreesWithASubstringScan() {
+        Random random = new Random(7);
+        for (long id = 1; id <= 300; id++) {
+            names.put(id, randomText(random, 4 + random.nextInt(12)));
+        }
+        index.build();
+        
+        for (int step = 0; step < 500; step++) {
+            if (step % 5 == 0) {
+                long id = 1 + random.nextInt(320);
+                if (random.nextInt(4) == 0) {
+                    names.remove(id);
+                    index.itemChanged(id, null);
+                } else {
+                    String name = randomText(random, 4 + random.nextInt(12));
+                    names.put(id, name);
+                    index.itemChanged(id, item(name));
+                }
+            }
+            String query = randomText(random, 1 + random.nextInt(5));
+            if (query.length() < 3) {
+                assertThat(index.findIds(query)).as(query).isEmpty();
+            } else {
+                assertThat(index.findIds(query)).as(query).contains(scan(query));
+            }
+        }
+    }
+    
+    private Set<Long> scan(String query) {
+        Set<Long> ids = new HashSet<>();
+        for (Map.Entry<Long, String> entry : names.entrySet()) {
+            if (entry.getValue().toLowerCase(Locale.ROOT).contains(query.toLowerCase(Locale.ROOT))) {
+                ids.add(entry.getKey());
+            }
+        }
+        return ids;
+    }
+    
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcAB ";
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return text.toString();
+    }
+    
+    private static Item item(String name) {
+        Item item = new Item();
+        item.setName(name);
+        return item;
+    }
+}
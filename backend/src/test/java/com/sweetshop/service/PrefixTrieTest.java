@@ -0,0 +1,173 @@
+package com.sweetshop.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixTrieTest {
+    
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingLong((Entry entry) -> entry.score).reversed()
+            .thenComparing(entry -> entry.name);
+    
+    @Test
+    void prefixEndingInsideAnEdgeFindsTheKeysBelowIt() {
+        PrefixTrie<Entry> trie = new PrefixTrie<>(10, RANKING);
+        Entry katli = new Entry("kaju katli", 5);
+        Entry kalakand = new Entry("kalakand", 7);
+        trie.put("kaju katli", katli);
+        trie.put("katli", katli);
+        trie.put("kalakand", kalakand);
+        
+        assertThat(trie.top("kaj", 10)).containsExactly(katli);
+        assertThat(trie.top("ka", 10)).containsExactly(kalakand, katli);
+        assertThat(trie.top("kat", 10)).containsExactly(katli);
+        assertThat(trie.top("kx", 10)).isEmpty();
+        assertThat(trie.top("kaju katli!", 10)).isEmpty();
+        assertThat(trie.top("ka", 1)).containsExactly(kalakand);
+    }
+    
+    @Test
+    void removeFoldsEmptyNodesAndKeepsTheRest() {
+        PrefixTrie<Entry> trie = new PrefixTrie<>(10, RANKING);
+        Entry rasgulla = new Entry("rasgulla", 3);
+        Entry rasmalai = new Entry("rasmalai", 4);
+        Entry ras = new Entry("ras", 1);
+        trie.put("rasgulla", rasgulla);
+        trie.put("rasmalai", rasmalai);
+        trie.put("ras", ras);
+        
+        trie.remove("rasmalai", rasmalai);
+        trie.remove("ras", ras);
+        
+        assertThat(trie.top("r", 10)).containsExactly(rasgulla);
+        assertThat(trie.top("rasg", 10)).containsExactly(rasgulla);
+        assertThat(trie.top("rasm", 10)).isEmpty();
+        trie.remove("rasgulla", rasgulla);
+        assertThat(trie.top("r", 10)).isEmpty();
+    }
+    
+    @Test
+    void rerankAppliesScoreChangesMadeInPlace() {
+        PrefixTrie<Entry> trie = new PrefixTrie<>(2, RANKING);
+        Entry barfi = new Entry("barfi", 1);
+        Entry besan = new Entry("besan ladoo", 2);
+        Entry boondi = new Entry("boondi ladoo", 3);
+        trie.put("barfi", barfi);
+        trie.put("besan ladoo", besan);
+        trie.put("ladoo", besan);
+        trie.put("boondi ladoo", boondi);
+        trie.put("ladoo", boondi);
+        assertThat(trie.top("b", 2)).containsExactly(boondi, besan);
+        
+        barfi.score = 10;
+        besan.score = 0;
+        trie.rerank(List.of("barfi", "besan ladoo", "ladoo"));
+        
+        assertThat(trie.top("b", 2)).containsExactly(barfi, boondi);
+        assertThat(trie.top("ladoo", 2)).containsExactly(boondi, besan);
+    }
+    
+    // Random puts, removes and rank changes over a small alphabet, so edges are split and folded often;
+    // every prefix is checked against a scan of all keys
+    @Test
+    void matchesBruteForceUnderRandomChanges() {
+        Random random = new Random(42);
+        int k = 3;
+        PrefixTrie<Entry> trie = new PrefixTrie<>(k, RANKING);
+        Map<String, Set<Entry>> index = new HashMap<>();
+        List<Entry> entries = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            entries.add(new Entry("e" + i, random.nextInt(20)));
+        }
+        
+        for (int step = 0; step < 3000; step++) {
+            String key = randomKey(random);
+            Entry entry = entries.get(random.nextInt(entries.size()));
+            int action = random.nextInt(4);
+            if (action < 2) {
+                trie.put(key, entry);
+                index.computeIfAbsent(key, ignored -> new LinkedHashSet<>()).add(entry);
+            } else if (action == 2) {
+                Set<Entry> values = index.get(key);
+                if (values != null && !values.isEmpty()) {
+                    Entry removed = values.iterator().next();
+                    values.remove(removed);
+                    trie.remove(key, removed);
+                }
+            } else {
+                entry.score = random.nextInt(20);
+                List<String> keys = new ArrayList<>();
+                index.forEach((indexed, values) -> {
+                    if (values.contains(entry)) {
+                        keys.add(indexed);
+                    }
+                });
+                trie.rerank(keys);
+            }
+            
+            if (step % 25 == 0) {
+                for (String prefix : prefixes(index.keySet())) {
+                    assertThat(trie.top(prefix, k)).as("prefix '%s' at step %d", prefix, step)
+                            .containsExactlyElementsOf(bruteForce(index, prefix, k));
+                }
+            }
+        }
+    }
+    
+    private static String randomKey(Random random) {
+        StringBuilder key = new StringBuilder();
+        int length = 1 + random.nextInt(5);
+        for (int i = 0; i < length; i++) {
+            key.append("abc".charAt(random.nextInt(3)));
+        }
+        return key.toString();
+    }
+    
+    private static Set<String> prefixes(Set<String> keys) {
+        Set<String> prefixes = new HashSet<>();
+        for (String key : keys) {
+            for (int i = 1; i <= key.length() + 1; i++) {
+                prefixes.add(i <= key.length() ? key.substring(0, i) : key + "a");
+            }
+        }
+        return prefixes;
+    }
+    
+    private static List<Entry> bruteForce(Map<String, Set<Entry>> index, String prefix, int k) {
+        Set<Entry> matches = new HashSet<>();
+        index.forEach((key, values) -> {
+            if (key.startsWith(prefix)) {
+                matches.addAll(values);
+            }
+        });
+        List<Entry> sorted = new ArrayList<>(matches);
+        sorted.sort(RANKING);
+        return sorted.subList(0, Math.min(k, sorted.size()));
+    }
+    
+    private static class Entry {
+        private final String name;
+        private long score;
+        
+        Entry(String name, long score) {
+            this.name = name;
+            this.score = score;
+        }
+        
+        @Override
+        public String toString() {
+            return name + ":" + score;
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.sweetshop.service;
+
+import com.sweetshop.model.Category;
+import com.sweetshop.model.Item;
+import com.sweetshop.repository.CategoryRepository;
+import com.sweetshop.repository.ItemRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Outside a transaction the after-commit hooks run at once, so each call below is a committed write
+class SuggestServiceTest {
+    
+    private SuggestService suggestService;
+    private InventoryVersionService inventoryVersion;
+    private Category category;
+    
+    @BeforeEach
+    void setUp() {
+        category = new Category("Ladoo", "Round sweets");
+        category.setId(1L);
+        CategoryRepository categoryRepository = mock(CategoryRepository.class);
+        ItemRepository itemRepository = mock(ItemRepository.class);
+        when(categoryRepository.findAll()).thenReturn(List.of(category));
+        when(itemRepository.streamSuggestFields()).thenReturn(Stream.of(
+                new Object[] {1L, "Besan Ladoo", 5, 1L},
+                new Object[] {2L, "Boondi Ladoo", 8, 1L}));
+        
+        inventoryVersion = new InventoryVersionService();
+        suggestService = new SuggestService();
+        ReflectionTestUtils.setField(suggestService, "maxResults", 10);
+        ReflectionTestUtils.setField(suggestService, "categoryRepository", categoryRepository);
+        ReflectionTestUtils.setField(suggestService, "itemRepository", itemRepository);
+        ReflectionTestUtils.setField(suggestService, "transactionTemplate",
+                                     new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        ReflectionTestUtils.setField(suggestService, "inventoryVersion", inventoryVersion);
+        suggestService.load();
+    }
+    
+    @Test
+    void stockChangesRerankInOneBatch() {
+        suggestService.stockChanged(1L, 20);
+        suggestService.stocksChanged(Map.of(2L, 1));
+        assertThat(itemNames("ladoo")).containsExactly("Boondi Ladoo", "Besan Ladoo");
+        long version = inventoryVersion.getVersion();
+        
+        suggestService.rerankPendingStocks();
+        
+        assertThat(itemNames("ladoo")).containsExactly("Besan Ladoo", "Boondi Ladoo");
+        assertThat(suggestService.suggest("b", 10).getItems().get(0).getScore()).isEqualTo(20);
+        // The new order is a new response under the ETag-guarded /api/suggest
+        assertThat(inventoryVersion.getVersion()).isGreaterThan(version);
+    }
+    
+    @Test
+    void rerankWithoutRankChangesKeepsTheVersion() {
+        suggestService.stockChanged(1L, 5);
+        long version = inventoryVersion.getVersion();
+        
+        suggestService.rerankPendingStocks();
+        suggestService.rerankPendingStocks();
+        
+        assertThat(inventoryVersion.getVersion()).isEqualTo(version);
+    }
+    
+    @Test
+    void itemWriteSupersedesQueuedStock() {
+        suggestService.stockChanged(1L, 20);
+        suggestService.itemChanged(1L, item(1L, "Besan Ladoo", 2));
+        
+        suggestService.rerankPendingStocks();
+        
+        assertThat(itemNames("ladoo")).containsExactly("Boondi Ladoo", "Besan Ladoo");
+        assertThat(suggestService.suggest("besan", 10).getItems().get(0).getScore()).isEqualTo(2);
+    }
+    
+    @Test
+    void renameAndDeleteApplyImmediately() {
+        suggestService.itemChanged(1L, item(1L, "Motichoor Ladoo", 5));
+        suggestService.itemChanged(2L, null);
+        
+        assertThat(itemNames("ladoo")).containsExactly("Motichoor Ladoo");
+        assertThat(itemNames("besan")).isEmpty();
+        assertThat(itemNames("mot")).containsExactly("Motichoor Ladoo");
+        assertThat(suggestService.suggest("lad", 10).getCategories().get(0).getScore()).isEqualTo(1);
+    }
+    
+    private List<String> itemNames(String prefix) {
+        return suggestService.suggest(prefix, 10).getItems().stream().map(SuggestService.Suggestion::getName).toList();
+    }
+    
+    private Item item(Long id, String name, int stock) {
+        Item item = new Item();
+        item.setId(id);
+        item.setName(name);
+        item.setStock(stock);
+        item.setCategory(category);
+        return item;
+    }
+}
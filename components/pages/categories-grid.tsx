@@ -34,43 +34,69 @@ const categoryDescriptions: Record<string, string> = {
   "Syrup-based": "Sweets soaked in sugar syrup",
 }
 
+interface CategoryStats {
+  categoryName: string
+  itemCount: number
+  totalStock: number
+  totalValue: number
+}
+
+// Same figures from a local item list, for the mock data fallback
+function statsFromItems(items: Item[]): CategoryStats[] {
+  const categories = Array.from(new Set(items.map((s) => s.category.name)))
+  return categories.map((category) => {
+    const categoryItems = items.filter((s) => s.category.name === category)
+    return {
+      categoryName: category,
+      itemCount: categoryItems.length,
+      totalStock: categoryItems.reduce((sum, item) => sum + item.stock, 0),
+      totalValue: categoryItems.reduce((sum, item) => sum + item.stock * item.price, 0),
+    }
+  })
+}
+
 export default function CategoriesGrid() {
-  const [items, setItems] = useState<Item[]>([])
+  const [categoryStats, setCategoryStats] = useState<CategoryStats[]>([])
+  const [samples, setSamples] = useState<Record<string, Item[]>>({})
 
   useEffect(() => {
-    const fetchItems = async () => {
+    const fetchCategories = async () => {
       try {
-        const response = await fetch("/api/items")
-        const data = await response.json()
-        setItems(data)
+        // Totals come from the backend's aggregates; only the three sample items per category are read
+        const response = await fetch("/api/categories/statistics")
+        const data: CategoryStats[] = await response.json()
+        setCategoryStats(data)
+
+        const pages = await Promise.all(
+          data.map(async (stats) => {
+            const params = new URLSearchParams({ category: stats.categoryName, size: "3" })
+            const page = await (await fetch(`/api/items?${params.toString()}`)).json()
+            return [stats.categoryName, page.content] as const
+          }),
+        )
+        setSamples(Object.fromEntries(pages))
       } catch (error) {
-        console.error("Failed to fetch items:", error)
+        console.error("Failed to fetch categories:", error)
         // Fallback to mock data if API fails
-        setItems(mockSweets)
+        setCategoryStats(statsFromItems(mockSweets))
+        setSamples(
+          Object.fromEntries(
+            statsFromItems(mockSweets).map((stats) => [
+              stats.categoryName,
+              mockSweets.filter((s) => s.category.name === stats.categoryName).slice(0, 3),
+            ]),
+          ),
+        )
       }
     }
 
-    fetchItems()
+    fetchCategories()
   }, [])
 
-  const categories = Array.from(new Set(items.map((s) => s.category.name)))
-
-  const getCategoryStats = (category: string) => {
-    const categoryItems = items.filter((s) => s.category.name === category)
-    const totalStock = categoryItems.reduce((sum, item) => sum + item.stock, 0)
-    const totalValue = categoryItems.reduce((sum, item) => sum + item.stock * item.price, 0)
-
-    return {
-      itemCount: categoryItems.length,
-      totalStock,
-      totalValue,
-    }
-  }
-
   return (
     <div className="grid grid-cols-1 md:grid-cols-2 lg:grid-cols-3 gap-6">
-      {categories.map((category) => {
-        const stats = getCategoryStats(category)
+      {categoryStats.map((stats) => {
+        const category = stats.categoryName
         const icon = categoryIcons[category] || "🍬"
 
         return (
@@ -106,14 +132,11 @@ export default function CategoriesGrid() {
               </div>
 
               <div className="flex gap-2 flex-wrap">
-                {items
-                  .filter((s) => s.category.name === category)
-                  .slice(0, 3)
-                  .map((sweet) => (
-                    <Badge key={sweet.id} variant="secondary" className="bg-secondary/20 text-secondary">
-                      {sweet.name}
-                    </Badge>
-                  ))}
+                {(samples[category] || []).map((sweet) => (
+                  <Badge key={sweet.id} variant="secondary" className="bg-secondary/20 text-secondary">
+                    {sweet.name}
+                  </Badge>
+                ))}
                 {stats.itemCount > 3 && (
                   <Badge variant="outline" className="bg-muted/50">
                     +{stats.itemCount - 3} more
@@ -26,41 +26,72 @@ const categoryData = [
   { name: "Syrup-based", value: 0 },
 ]
 
+interface DashboardStats {
+  totalItems: number
+  totalStock: number
+  totalValue: number
+  lowStockItems: number
+}
+
+// Same figures from a local item list, for the mock data fallback
+function statsFromItems(items: Item[]): DashboardStats {
+  return {
+    totalItems: items.length,
+    totalStock: items.reduce((sum, item) => sum + item.stock, 0),
+    totalValue: items.reduce((sum, item) => sum + item.stock * item.price, 0),
+    lowStockItems: items.filter((item) => item.stock < 10).length,
+  }
+}
+
+function categoryStockFromItems(items: Item[]): Record<string, number> {
+  const stock: Record<string, number> = {}
+  items.forEach((item) => {
+    stock[item.category.name] = (stock[item.category.name] || 0) + item.stock
+  })
+  return stock
+}
+
 export default function Dashboard() {
-  const [items, setItems] = useState<Item[]>([])
+  const [stats, setStats] = useState<DashboardStats>(statsFromItems([]))
+  const [categoryStock, setCategoryStock] = useState<Record<string, number>>({})
 
   useEffect(() => {
-    const fetchItems = async () => {
+    const fetchStats = async () => {
       try {
-        const response = await fetch("/api/items")
-        const data = await response.json()
-        setItems(data)
+        // Totals come from the backend's in-memory aggregates instead of reading every item
+        const [dashboard, categories] = await Promise.all([
+          fetch("/api/dashboard/stats").then((response) => response.json()),
+          fetch("/api/categories/statistics").then((response) => response.json()),
+        ])
+        setStats(dashboard)
+        setCategoryStock(
+          Object.fromEntries(
+            categories.map((c: { categoryName: string; totalStock: number }) => [c.categoryName, c.totalStock]),
+          ),
+        )
       } catch (error) {
-        console.error("Failed to fetch items:", error)
+        console.error("Failed to fetch statistics:", error)
         // Fallback to mock data if API fails
-        setItems(mockSweets)
+        setStats(statsFromItems(mockSweets))
+        setCategoryStock(categoryStockFromItems(mockSweets))
       }
     }
 
-    fetchItems()
+    fetchStats()
   }, [])
 
-  // Calculate statistics
-  const totalItems = items.length
-  const totalStock = items.reduce((sum, item) => sum + item.stock, 0)
-  const totalValue = items.reduce((sum, item) => sum + item.stock * item.price, 0)
-  const lowStockItems = items.filter((item) => item.stock < 10).length
+  const { totalItems, totalStock, totalValue, lowStockItems } = stats
 
   // Prepare category data
   const categoryDistribution = categoryData.map((cat) => ({
     ...cat,
-    value: items.filter((s) => s.category.name === cat.name).reduce((sum, s) => sum + s.stock, 0),
+    value: categoryStock[cat.name] || 0,
   }))
 
   // Prepare stock by category for bar chart
   const stockByCategory = categoryData.map((cat) => ({
     name: cat.name,
-    stock: items.filter((s) => s.category.name === cat.name).reduce((sum, s) => sum + s.stock, 0),
+    stock: categoryStock[cat.name] || 0,
   }))
 
   const COLORS = ["#B8956A", "#E8B4B8", "#F5DEB3", "#DEB887", "#D2B48C"]